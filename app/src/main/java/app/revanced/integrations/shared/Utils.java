@@ -26,6 +26,7 @@ import android.widget.RelativeLayout;
 import android.widget.Toast;
 import android.widget.Toolbar;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -34,9 +35,11 @@ import java.util.*;
 import java.util.regex.Pattern;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import app.revanced.integrations.shared.settings.BooleanSetting;
 import app.revanced.integrations.shared.settings.preference.ReVancedAboutPreference;
@@ -190,6 +193,64 @@ public class Utils {
         return backgroundThreadPool.submit(call);
     }
 
+    /**
+     * Background tasks submitted with a key that have not yet completed.
+     */
+    @GuardedBy("itself")
+    private static final Map<Object, Future<?>> coalescedBackgroundTasks = new HashMap<>();
+
+    /**
+     * Number of tasks that used an already running task, instead of running again.
+     */
+    private static final AtomicLong coalescedBackgroundTaskCount = new AtomicLong();
+
+    /**
+     * Runs a task on a background thread, unless a task with the same key is still running.
+     * If a task with the same key is still running, then the future of that task is returned
+     * and this task is not run (single flight).
+     *
+     * Once a task completes it is removed, and the next call with the same key runs again.
+     * The future is shared by all callers, and callers must not cancel it.
+     *
+     * @param key Key of the task, such as a network request and its parameters.
+     *            Keys must be unique across all callers, and must implement equals and hashCode.
+     */
+    @NonNull
+    public static <T> Future<T> submitOnBackgroundThreadCoalesced(@NonNull Object key, @NonNull Callable<T> call) {
+        Objects.requireNonNull(key);
+        synchronized (coalescedBackgroundTasks) {
+            //noinspection unchecked
+            Future<T> running = (Future<T>) coalescedBackgroundTasks.get(key);
+            if (running != null) {
+                final long count = coalescedBackgroundTaskCount.incrementAndGet();
+                Logger.printDebug(() -> "Using running task: " + key + " (coalesced tasks: " + count + ")");
+                return running;
+            }
+
+            FutureTask<T> task = new FutureTask<>(call) {
+                @Override
+                protected void done() {
+                    synchronized (coalescedBackgroundTasks) {
+                        if (coalescedBackgroundTasks.get(key) == this) {
+                            coalescedBackgroundTasks.remove(key);
+                        }
+                    }
+                }
+            };
+            coalescedBackgroundTasks.put(key, task);
+            backgroundThreadPool.execute(task);
+            return task;
+        }
+    }
+
+    /**
+     * @return Number of tasks that were not run, because a task with the same key was already running.
+     * @see #submitOnBackgroundThreadCoalesced(Object, Callable)
+     */
+    public static long getCoalescedBackgroundTaskCount() {
+        return coalescedBackgroundTaskCount.get();
+    }
+
     /**
      * Simulates a delay by doing meaningless calculations.
      * Used for debugging to verify UI timeout logic.
@@ -224,6 +285,40 @@ public class Utils {
         return -1;
     }
 
+    /**
+     * Same as {@link String#indexOf(String)}, but searches any CharSequence
+     * (such as a StringBuilder) without creating a String.
+     */
+    public static int indexOf(@NonNull CharSequence text, @NonNull String target) {
+        final int targetLength = target.length();
+        for (int i = 0, lastIndex = text.length() - targetLength; i <= lastIndex; i++) {
+            if (regionMatches(text, i, target)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@link String#startsWith(String)}, but for any CharSequence.
+     */
+    public static boolean startsWith(@NonNull CharSequence text, @NonNull String prefix) {
+        return text.length() >= prefix.length() && regionMatches(text, 0, prefix);
+    }
+
+    /**
+     * Same as {@link String#endsWith(String)}, but for any CharSequence.
+     */
+    public static boolean endsWith(@NonNull CharSequence text, @NonNull String suffix) {
+        final int startIndex = text.length() - suffix.length();
+        return startIndex >= 0 && regionMatches(text, startIndex, suffix);
+    }
+
+    private static boolean regionMatches(CharSequence text, int startIndex, String target) {
+        for (int i = 0, length = target.length(); i < length; i++) {
+            if (text.charAt(startIndex + i) != target.charAt(i)) return false;
+        }
+        return true;
+    }
+
     /**
      * @return zero, if the resource is not found
      */
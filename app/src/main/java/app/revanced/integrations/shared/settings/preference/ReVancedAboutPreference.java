@@ -269,7 +269,7 @@ class SocialLinksRoutes {
     };
 
     private static final String SOCIAL_LINKS_PROVIDER = "https://api.revanced.app/v2";
-    private static final Route.CompiledRoute GET_SOCIAL = new Route(GET, "/socials").compile();
+    private static final Route.CompiledRoute GET_SOCIAL = new Route(GET, "/socials", 5000, 5000).compile();
 
     @Nullable
     private static volatile WebLink[] fetchedLinks;
@@ -286,8 +286,6 @@ class SocialLinksRoutes {
             if (!Utils.isNetworkConnected()) return NO_CONNECTION_STATIC_LINKS;
 
             HttpURLConnection connection = Requester.getConnectionFromCompiledRoute(SOCIAL_LINKS_PROVIDER, GET_SOCIAL);
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
             Logger.printDebug(() -> "Fetching social links from: " + connection.getURL());
 
             // Do not show an exception toast if the server is down
@@ -0,0 +1,60 @@
+package app.revanced.integrations.youtube;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Knuth-Morris-Pratt search of a single byte pattern.
+ *
+ * If searching for more than 1 pattern, then {@link ByteTrieSearch} gives better performance.
+ */
+public final class ByteKmpSearch {
+
+    private ByteKmpSearch() {
+    }
+
+    // Modified implementation from https://stackoverflow.com/a/1507813
+
+    /**
+     * Finds the first occurrence of the pattern in a range of the byte array.
+     *
+     * @param startIndex Start index to search, inclusive.
+     * @param endIndex   End index to search, exclusive.
+     * @param failure    Failure function of the pattern, from {@link #createFailurePattern(byte[])}.
+     * @return Index of the match, or -1 if not found.
+     */
+    public static int indexOf(@NonNull final byte[] data, final int startIndex, final int endIndex,
+                              @NonNull final byte[] pattern, @NonNull final int[] failure) {
+        int patternLength = pattern.length;
+        for (int i = startIndex, j = 0; i < endIndex; i++) {
+            while (j > 0 && pattern[j] != data[i]) {
+                j = failure[j - 1];
+            }
+            if (pattern[j] == data[i]) {
+                j++;
+            }
+            if (j == patternLength) {
+                return i - patternLength + 1;
+            }
+        }
+        return -1;
+    }
+
+    @NonNull
+    public static int[] createFailurePattern(@NonNull byte[] pattern) {
+        // Computes the failure function using a boot-strapping process,
+        // where the pattern is matched against itself.
+        final int patternLength = pattern.length;
+        final int[] failure = new int[patternLength];
+
+        for (int i = 1, j = 0; i < patternLength; i++) {
+            while (j > 0 && pattern[j] != pattern[i]) {
+                j = failure[j - 1];
+            }
+            if (pattern[j] == pattern[i]) {
+                j++;
+            }
+            failure[i] = j;
+        }
+        return failure;
+    }
+}
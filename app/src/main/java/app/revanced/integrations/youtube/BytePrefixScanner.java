@@ -0,0 +1,173 @@
+package app.revanced.integrations.youtube;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Bit parallel search for a small number of byte patterns (multi pattern Shift-And).
+ *
+ * The first bytes of every pattern (the prefixes) are packed into a single 64-bit state,
+ * and each byte of the searched text updates the state of all patterns using a single table lookup.
+ * When a state bit reaches the end of a prefix, the remainder of that pattern is compared.
+ *
+ * While no prefix is partially matched, bytes that cannot start any pattern are skipped
+ * using a lookup table, which quickly passes over the large parts of a buffer that cannot match.
+ */
+final class BytePrefixScanner {
+
+    private static final int STATE_BITS = Long.SIZE;
+
+    /**
+     * Shortest prefix each pattern can use. With shorter prefixes too many candidates
+     * are verified, and the frozen trie is then faster.
+     */
+    private static final int MINIMUM_PREFIX_LENGTH = 2;
+
+    /**
+     * @return A scanner of the patterns, or NULL if there are too many patterns to fit in the state bits.
+     */
+    @Nullable
+    static BytePrefixScanner create(@NonNull List<byte[]> patterns,
+                                    @NonNull List<TrieSearch.TriePatternMatchedCallback<byte[]>> callbacks) {
+        final int numberOfPatterns = patterns.size();
+        if (numberOfPatterns == 0 || numberOfPatterns * MINIMUM_PREFIX_LENGTH > STATE_BITS) {
+            return null;
+        }
+        return new BytePrefixScanner(patterns, callbacks);
+    }
+
+    /**
+     * For each byte value, the state bits of all prefix positions that are the byte.
+     */
+    private final long[] byteMasks = new long[256];
+    /**
+     * If a byte value is the first byte of any pattern.
+     */
+    private final boolean[] isFirstByte = new boolean[256];
+    /**
+     * State bits of the first byte of each prefix.
+     */
+    private final long startBits;
+    /**
+     * State bits of the last byte of each prefix.
+     */
+    private final long endBits;
+    /**
+     * Index of the pattern that ends at each state bit.
+     */
+    private final int[] endBitPatternIndexes = new int[STATE_BITS];
+
+    private final byte[][] patterns;
+    private final int[] prefixLengths;
+    /**
+     * Callback of each pattern. Null values always match.
+     */
+    private final TrieSearch.TriePatternMatchedCallback<byte[]>[] callbacks;
+
+    @SuppressWarnings("unchecked")
+    private BytePrefixScanner(List<byte[]> patternList,
+                              List<TrieSearch.TriePatternMatchedCallback<byte[]>> callbackList) {
+        final int numberOfPatterns = patternList.size();
+        patterns = patternList.toArray(new byte[0][]);
+        callbacks = callbackList.toArray(new TrieSearch.TriePatternMatchedCallback[0]);
+        prefixLengths = new int[numberOfPatterns];
+
+        final int maximumPrefixLength = STATE_BITS / numberOfPatterns;
+        long start = 0;
+        long end = 0;
+        int bit = 0;
+        for (int i = 0; i < numberOfPatterns; i++) {
+            final byte[] pattern = patterns[i];
+            final int prefixLength = Math.min(pattern.length, maximumPrefixLength);
+            prefixLengths[i] = prefixLength;
+
+            start |= 1L << bit;
+            isFirstByte[pattern[0] & 0xFF] = true;
+            for (int j = 0; j < prefixLength; j++) {
+                byteMasks[pattern[j] & 0xFF] |= 1L << (bit + j);
+            }
+
+            final int endBit = bit + prefixLength - 1;
+            end |= 1L << endBit;
+            endBitPatternIndexes[endBit] = i;
+            bit += prefixLength;
+        }
+        startBits = start;
+        endBits = end;
+    }
+
+    /**
+     * Callbacks are called in order of where the pattern prefix ends.
+     *
+     * @see TrieSearch#matches(Object, int, int, Object)
+     */
+    boolean matches(byte[] text, int startIndex, int endIndex, @Nullable Object callbackParameter) {
+        final long[] masks = byteMasks;
+        final boolean[] firstBytes = isFirstByte;
+        final long start = startBits;
+        final long end = endBits;
+
+        long state = 0;
+        for (int i = startIndex; i < endIndex; i++) {
+            if (state == 0) {
+                // No prefix is partially matched. Skip all bytes that cannot start a pattern.
+                while (!firstBytes[text[i] & 0xFF]) {
+                    if (++i == endIndex) {
+                        return false;
+                    }
+                }
+            }
+
+            // Shifting the end bit of a prefix into the start bit of the next prefix
+            // does nothing, as all start bits are always set before masking.
+            state = ((state << 1) | start) & masks[text[i] & 0xFF];
+
+            final long prefixEndBits = state & end;
+            if (prefixEndBits != 0 && verifyCandidates(text, i, endIndex, prefixEndBits, callbackParameter)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param prefixEndIndex Index of the last byte of the matched prefixes.
+     * @param prefixEndBits  State bits of the matched prefixes.
+     */
+    private boolean verifyCandidates(byte[] text, int prefixEndIndex, int endIndex,
+                                     long prefixEndBits, @Nullable Object callbackParameter) {
+        do {
+            final int patternIndex = endBitPatternIndexes[Long.numberOfTrailingZeros(prefixEndBits)];
+            prefixEndBits &= prefixEndBits - 1; // Clear the lowest bit.
+
+            final byte[] pattern = patterns[patternIndex];
+            final int patternLength = pattern.length;
+            final int prefixLength = prefixLengths[patternIndex];
+            final int matchStartIndex = prefixEndIndex - prefixLength + 1;
+            if (matchStartIndex + patternLength > endIndex) {
+                continue;
+            }
+
+            boolean patternMatches = true;
+            for (int j = prefixLength; j < patternLength; j++) {
+                if (text[matchStartIndex + j] != pattern[j]) {
+                    patternMatches = false;
+                    break;
+                }
+            }
+            if (!patternMatches) {
+                continue;
+            }
+
+            TrieSearch.TriePatternMatchedCallback<byte[]> callback = callbacks[patternIndex];
+            if (callback == null || callback.patternMatched(text, matchStartIndex, patternLength, callbackParameter)) {
+                return true;
+            }
+        } while (prefixEndBits != 0);
+
+        return false;
+    }
+}
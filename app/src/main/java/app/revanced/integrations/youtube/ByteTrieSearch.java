@@ -1,9 +1,19 @@
 package app.revanced.integrations.youtube;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Byte pattern searching using a prefix tree (trie).
+ *
+ * If few enough patterns are used, then a frozen search uses a bit parallel {@link BytePrefixScanner}
+ * instead of the trie. The scanner is faster for the common case of searching a large
+ * proto buffer for a handful of patterns.
+ */
 public final class ByteTrieSearch extends TrieSearch<byte[]> {
 
     private static final class ByteTrieNode extends TrieNode<byte[]> {
@@ -27,6 +37,113 @@ public final class ByteTrieSearch extends TrieSearch<byte[]> {
         }
     }
 
+    /**
+     * Node that compares UTF-8 bytes using the lower case of each character.
+     */
+    private static final class CaseInsensitiveByteTrieNode extends TrieNode<byte[]> {
+        CaseInsensitiveByteTrieNode() {
+            super();
+        }
+        CaseInsensitiveByteTrieNode(char nodeCharacterValue) {
+            super(nodeCharacterValue);
+        }
+        @Override
+        TrieNode<byte[]> createNode(char nodeCharacterValue) {
+            return new CaseInsensitiveByteTrieNode(nodeCharacterValue);
+        }
+        @Override
+        char getCharValue(byte[] text, int index) {
+            return (char) getLowerCaseUtf8Byte(text, index);
+        }
+        @Override
+        int getTextLength(byte[] text) {
+            return text.length;
+        }
+    }
+
+    /**
+     * Folds a byte of UTF-8 text to lower case.
+     *
+     * ASCII is folded directly. For all other bytes the entire UTF-8 character containing the index is decoded,
+     * and the byte at the same position of the lower case character is used.
+     * Characters with a lower case that uses a different number of bytes are not folded,
+     * as that would change the indexes of all the following bytes.
+     *
+     * @return The lower case byte, or the original byte if it has no lower case or is not valid UTF-8.
+     */
+    private static byte getLowerCaseUtf8Byte(byte[] text, int index) {
+        final byte value = text[index];
+        if (value >= 0) {
+            // ASCII.
+            if (value >= 'A' && value <= 'Z') {
+                return (byte) (value + ('a' - 'A'));
+            }
+            return value;
+        }
+
+        // Find the first byte of the character.
+        int characterStartIndex = index;
+        while ((text[characterStartIndex] & 0xC0) == 0x80) {
+            if (characterStartIndex == 0 || index - characterStartIndex == 3) {
+                return value; // Not valid UTF-8.
+            }
+            characterStartIndex--;
+        }
+
+        final int firstByte = text[characterStartIndex];
+        final int byteCount;
+        int codePoint;
+        if ((firstByte & 0xE0) == 0xC0) {
+            byteCount = 2;
+            codePoint = firstByte & 0x1F;
+        } else if ((firstByte & 0xF0) == 0xE0) {
+            byteCount = 3;
+            codePoint = firstByte & 0x0F;
+        } else if ((firstByte & 0xF8) == 0xF0) {
+            byteCount = 4;
+            codePoint = firstByte & 0x07;
+        } else {
+            return value; // ASCII or an invalid first byte.
+        }
+
+        final int characterEndIndex = characterStartIndex + byteCount;
+        if (index >= characterEndIndex || characterEndIndex > text.length) {
+            return value;
+        }
+        for (int i = characterStartIndex + 1; i < characterEndIndex; i++) {
+            final int continuationByte = text[i];
+            if ((continuationByte & 0xC0) != 0x80) {
+                return value;
+            }
+            codePoint = (codePoint << 6) | (continuationByte & 0x3F);
+        }
+
+        final int lowerCase = Character.toLowerCase(codePoint);
+        if (lowerCase == codePoint || getUtf8ByteCount(lowerCase) != byteCount) {
+            return value;
+        }
+
+        final int byteOffset = index - characterStartIndex;
+        if (byteOffset == 0) {
+            switch (byteCount) {
+                case 2:
+                    return (byte) (0xC0 | (lowerCase >> 6));
+                case 3:
+                    return (byte) (0xE0 | (lowerCase >> 12));
+                default:
+                    return (byte) (0xF0 | (lowerCase >> 18));
+            }
+        }
+        return (byte) (0x80 | ((lowerCase >> (6 * (byteCount - 1 - byteOffset))) & 0x3F));
+    }
+
+    private static int getUtf8ByteCount(int codePoint) {
+        if (codePoint < 0x80) return 1;
+        if (codePoint < 0x800) return 2;
+        if (codePoint < 0x10000) return 3;
+        return 4;
+    }
+
     /**
      * Helper method for the common usage of converting Strings to raw UTF-8 bytes.
      */
@@ -39,7 +156,78 @@ public final class ByteTrieSearch extends TrieSearch<byte[]> {
         return replacement;
     }
 
+    private final boolean caseInsensitive;
+
+    /**
+     * Callbacks of each pattern, in the same order as {@link #getPatterns()}.
+     * Null after freezing.
+     *
+     * Field is intentionally not initialized, as patterns are added by the super constructor.
+     */
+    @Nullable
+    private List<TriePatternMatchedCallback<byte[]>> patternCallbacks;
+
+    /**
+     * Non null if frozen and the patterns fit into the scanner.
+     */
+    @Nullable
+    private volatile BytePrefixScanner prefixScanner;
+
     public ByteTrieSearch(@NonNull byte[]... patterns) {
-        super(new ByteTrieNode(), patterns);
+        this(false, patterns);
+    }
+
+    /**
+     * @param caseInsensitive If patterns match UTF-8 text regardless of upper/lower case.
+     *                        Only characters with an upper and lower case of equal UTF-8 byte length are folded,
+     *                        which includes all ASCII and nearly all other cased characters.
+     */
+    public ByteTrieSearch(boolean caseInsensitive, @NonNull byte[]... patterns) {
+        super(caseInsensitive ? new CaseInsensitiveByteTrieNode() : new ByteTrieNode(), patterns);
+        this.caseInsensitive = caseInsensitive;
+    }
+
+    @Override
+    void addPattern(@NonNull byte[] pattern, int patternLength, @Nullable TriePatternMatchedCallback<byte[]> callback) {
+        final int numberOfPatterns = numberOfPatterns();
+        super.addPattern(pattern, patternLength, callback);
+        if (numberOfPatterns == numberOfPatterns()) {
+            return; // Empty pattern was ignored.
+        }
+
+        if (patternCallbacks == null) {
+            patternCallbacks = new ArrayList<>();
+        }
+        patternCallbacks.add(callback);
+    }
+
+    /**
+     * Freezes the trie, and if possible uses a bit parallel scanner for all searches.
+     * Case insensitive searches always use the trie.
+     */
+    @Override
+    public synchronized void freeze() {
+        if (isFrozen()) {
+            return;
+        }
+        super.freeze();
+
+        if (!caseInsensitive && patternCallbacks != null) {
+            prefixScanner = BytePrefixScanner.create(getPatterns(), patternCallbacks);
+        }
+        patternCallbacks = null;
+    }
+
+    @Override
+    public boolean matches(@NonNull byte[] textToSearch, int startIndex, int endIndex, @Nullable Object callbackParameter) {
+        BytePrefixScanner scanner = prefixScanner;
+        if (scanner != null) {
+            if (endIndex > textToSearch.length) {
+                throw new IllegalArgumentException("endIndex: " + endIndex
+                        + " is greater than texToSearchLength: " + textToSearch.length);
+            }
+            return scanner.matches(textToSearch, startIndex, endIndex, callbackParameter);
+        }
+        return super.matches(textToSearch, startIndex, endIndex, callbackParameter);
     }
 }
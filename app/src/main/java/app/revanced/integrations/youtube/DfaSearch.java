@@ -0,0 +1,890 @@
+package app.revanced.integrations.youtube;
+
+import androidx.annotation.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Searches for glob and regular expression patterns using a deterministic finite automaton (DFA).
+ *
+ * All patterns are combined into a single automaton, and searching reads each byte of the text once
+ * regardless of the number of patterns or their complexity.
+ *
+ * Patterns are compiled into a Thompson NFA, converted into a DFA using subset construction,
+ * and the DFA is then minimized. Compiling fails if the DFA exceeds {@link #MAXIMUM_NUMBER_OF_STATES}.
+ *
+ * Glob syntax: '*' matches any text and '?' matches any single ASCII character (or a single byte).
+ * '\' followed by any character matches that character literally.
+ *
+ * Regular expression syntax is limited to: literals, '.', character classes ('[a-z_]', '[^0-9]'),
+ * groups, alternation ('|'), the quantifiers '*', '+', '?',
+ * the escapes '\d', '\w', '\s' (and '\' followed by any other character to match it literally),
+ * and the anchors '^' and '$' at the start and end of the expression.
+ *
+ * Patterns match bytes. Text that is not ASCII is matched as UTF-8, and '.' and negated classes match a single byte.
+ * Unless anchored, a pattern can match anywhere in the text.
+ *
+ * Groups can be nested at most {@link #MAXIMUM_GROUP_DEPTH} deep.
+ *
+ * Patterns must be added before calling {@link #compile()}.
+ */
+public final class DfaSearch {
+
+    /**
+     * Maximum number of states before minimization.
+     * Limits the compile time and memory of expressions that have an exponential number of states.
+     */
+    public static final int MAXIMUM_NUMBER_OF_STATES = 1024;
+
+    /**
+     * Maximum nesting of regular expression groups.
+     * Expressions are parsed recursively, and deeper nesting could overflow the stack.
+     */
+    public static final int MAXIMUM_GROUP_DEPTH = 32;
+
+    private static final int STATE_ACCEPTS = 1;
+    /**
+     * State accepts only if it is the end of the text.
+     */
+    private static final int STATE_ACCEPTS_AT_END = 2;
+    /**
+     * State that can never reach an accepting state.
+     */
+    private static final int STATE_DEAD = 4;
+
+    /**
+     * Symbol used for characters of a {@link CharSequence} that are not ASCII.
+     * Byte value never occurs in UTF-8, so it matches only wildcards and negated classes.
+     */
+    private static final int NON_ASCII_CHARACTER_SYMBOL = 0xFF;
+
+    /**
+     * Thompson NFA of all patterns.
+     */
+    private static final class Nfa {
+        static final int NODE_EPSILON = 0;
+        static final int NODE_BYTE_SET = 1;
+        static final int NODE_ACCEPT = 2;
+
+        final List<Integer> types = new ArrayList<>();
+        /**
+         * Bytes matched by each byte set node, or null for other nodes.
+         */
+        final List<boolean[]> byteSets = new ArrayList<>();
+        final List<Integer> outs = new ArrayList<>();
+        final List<Integer> outs2 = new ArrayList<>();
+        final List<Boolean> acceptsOnlyAtEnd = new ArrayList<>();
+
+        /**
+         * Start node of each pattern that can match anywhere in the text.
+         */
+        final List<Integer> unanchoredStarts = new ArrayList<>();
+        /**
+         * Start node of each pattern that must match at the start of the text.
+         */
+        final List<Integer> anchoredStarts = new ArrayList<>();
+
+        int size() {
+            return types.size();
+        }
+
+        int addNode(int type, boolean[] byteSet) {
+            types.add(type);
+            byteSets.add(byteSet);
+            outs.add(-1);
+            outs2.add(-1);
+            acceptsOnlyAtEnd.add(false);
+            return types.size() - 1;
+        }
+
+        int addEpsilon() {
+            return addNode(NODE_EPSILON, null);
+        }
+
+        void setOut(int node, int out) {
+            outs.set(node, out);
+        }
+
+        void setOut2(int node, int out) {
+            outs2.set(node, out);
+        }
+    }
+
+    /**
+     * Part of the NFA with a single start node, and a single end epsilon node that has no transitions.
+     */
+    private static final class Fragment {
+        final int start;
+        final int end;
+        /**
+         * If every match of this fragment is exactly {@link #prefix} (which is then also the suffix).
+         */
+        final boolean isLiteral;
+        /**
+         * Literal text every match of this fragment starts with.
+         */
+        final String prefix;
+        /**
+         * Literal text every match of this fragment ends with.
+         */
+        final String suffix;
+        /**
+         * Longest literal text every match of this fragment contains.
+         */
+        final String requiredLiteral;
+
+        Fragment(int start, int end, boolean isLiteral, String prefix, String suffix, String requiredLiteral) {
+            this.start = start;
+            this.end = end;
+            this.isLiteral = isLiteral;
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.requiredLiteral = requiredLiteral;
+        }
+
+        /**
+         * @return The same fragment, with no literal text.
+         */
+        static Fragment nonLiteral(int start, int end) {
+            return new Fragment(start, end, false, "", "", "");
+        }
+    }
+
+    /**
+     * Parses regular expressions and globs into NFA fragments.
+     */
+    private static final class PatternParser {
+        final Nfa nfa;
+        final String pattern;
+        int index;
+        /**
+         * Number of groups currently open.
+         */
+        int groupDepth;
+
+        PatternParser(Nfa nfa, String pattern) {
+            this.nfa = nfa;
+            this.pattern = pattern;
+        }
+
+        private IllegalArgumentException syntaxError(String message) {
+            return new IllegalArgumentException(message + " at index " + index + ": " + pattern);
+        }
+
+        Fragment parseGlob() {
+            Fragment result = empty();
+            while (index < pattern.length()) {
+                final char c = pattern.charAt(index++);
+                if (c == '\\' && index < pattern.length()) {
+                    result = concatenate(result, literal(pattern.charAt(index++)));
+                } else if (c == '*') {
+                    result = concatenate(result, star(anyCharacter()));
+                } else if (c == '?') {
+                    result = concatenate(result, anyCharacter());
+                } else {
+                    result = concatenate(result, literal(c));
+                }
+            }
+            return result;
+        }
+
+        Fragment parseRegex(int endIndex) {
+            Fragment result = parseAlternation(endIndex);
+            if (index != endIndex) {
+                throw syntaxError("Unexpected ')'");
+            }
+            return result;
+        }
+
+        private Fragment parseAlternation(int endIndex) {
+            Fragment result = parseConcatenation(endIndex);
+            while (index < endIndex && pattern.charAt(index) == '|') {
+                index++;
+                result = alternate(result, parseConcatenation(endIndex));
+            }
+            return result;
+        }
+
+        private Fragment parseConcatenation(int endIndex) {
+            Fragment result = empty();
+            while (index < endIndex) {
+                final char c = pattern.charAt(index);
+                if (c == '|' || c == ')') {
+                    break;
+                }
+                result = concatenate(result, parseRepetition(endIndex));
+            }
+            return result;
+        }
+
+        private Fragment parseRepetition(int endIndex) {
+            Fragment atom = parseAtom(endIndex);
+            while (index < endIndex) {
+                final char c = pattern.charAt(index);
+                if (c == '*') {
+                    atom = star(atom);
+                } else if (c == '+') {
+                    atom = plus(atom);
+                } else if (c == '?') {
+                    atom = optional(atom);
+                } else {
+                    break;
+                }
+                index++;
+            }
+            return atom;
+        }
+
+        private Fragment parseAtom(int endIndex) {
+            final char c = pattern.charAt(index++);
+            switch (c) {
+                case '(': {
+                    if (++groupDepth > MAXIMUM_GROUP_DEPTH) {
+                        throw syntaxError("Groups are nested deeper than " + MAXIMUM_GROUP_DEPTH);
+                    }
+                    Fragment group = parseAlternation(endIndex);
+                    if (index >= endIndex || pattern.charAt(index) != ')') {
+                        throw syntaxError("Missing ')'");
+                    }
+                    index++;
+                    groupDepth--;
+                    return group;
+                }
+                case '[':
+                    return byteSet(parseCharacterClass(endIndex));
+                case '.':
+                    return anyCharacter();
+                case '\\':
+                    if (index >= endIndex) {
+                        throw syntaxError("Incomplete escape");
+                    }
+                    boolean[] escapeClass = getEscapeClass(pattern.charAt(index));
+                    if (escapeClass != null) {
+                        index++;
+                        return byteSet(escapeClass);
+                    }
+                    return literal(pattern.charAt(index++));
+                case '*':
+                case '+':
+                case '?':
+                    throw syntaxError("Nothing to repeat");
+                case '{':
+                case '}':
+                    throw syntaxError("Counted repetition is not supported");
+                case '^':
+                case '$':
+                    throw syntaxError("Anchors are only supported at the start and end");
+                default:
+                    return literal(c);
+            }
+        }
+
+        private boolean[] parseCharacterClass(int endIndex) {
+            boolean[] set = new boolean[256];
+            final boolean negated = index < endIndex && pattern.charAt(index) == '^';
+            if (negated) {
+                index++;
+            }
+
+            boolean first = true;
+            while (true) {
+                if (index >= endIndex) {
+                    throw syntaxError("Missing ']'");
+                }
+                char c = pattern.charAt(index++);
+                if (c == ']' && !first) {
+                    break;
+                }
+                first = false;
+
+                if (c == '\\') {
+                    if (index >= endIndex) {
+                        throw syntaxError("Incomplete escape");
+                    }
+                    c = pattern.charAt(index++);
+                    boolean[] escapeClass = getEscapeClass(c);
+                    if (escapeClass != null) {
+                        for (int i = 0; i < 256; i++) {
+                            set[i] |= escapeClass[i];
+                        }
+                        continue;
+                    }
+                }
+
+                char rangeEnd = c;
+                if (index + 1 < endIndex && pattern.charAt(index) == '-' && pattern.charAt(index + 1) != ']') {
+                    rangeEnd = pattern.charAt(index + 1);
+                    index += 2;
+                    if (rangeEnd == '\\') {
+                        if (index >= endIndex) {
+                            throw syntaxError("Incomplete escape");
+                        }
+                        rangeEnd = pattern.charAt(index++);
+                    }
+                }
+                if (c > 0x7F || rangeEnd > 0x7F) {
+                    throw syntaxError("Character classes must be ASCII");
+                }
+                if (rangeEnd < c) {
+                    throw syntaxError("Invalid range");
+                }
+                for (int i = c; i <= rangeEnd; i++) {
+                    set[i] = true;
+                }
+            }
+
+            if (negated) {
+                for (int i = 0; i < 256; i++) {
+                    set[i] = !set[i];
+                }
+            }
+            return set;
+        }
+
+        private static boolean[] getEscapeClass(char c) {
+            boolean[] set = new boolean[256];
+            switch (c) {
+                case 'd':
+                    setRange(set, '0', '9');
+                    return set;
+                case 'w':
+                    setRange(set, 'a', 'z');
+                    setRange(set, 'A', 'Z');
+                    setRange(set, '0', '9');
+                    set['_'] = true;
+                    return set;
+                case 's':
+                    set[' '] = true;
+                    set['\t'] = true;
+                    set['\n'] = true;
+                    set['\r'] = true;
+                    set['\f'] = true;
+                    return set;
+                default:
+                    return null;
+            }
+        }
+
+        private static void setRange(boolean[] set, char start, char end) {
+            for (int i = start; i <= end; i++) {
+                set[i] = true;
+            }
+        }
+
+        private static boolean[] anyByte() {
+            boolean[] set = new boolean[256];
+            Arrays.fill(set, true);
+            return set;
+        }
+
+        private Fragment anyCharacter() {
+            return byteSet(anyByte());
+        }
+
+        private Fragment empty() {
+            final int node = nfa.addEpsilon();
+            return new Fragment(node, node, true, "", "", "");
+        }
+
+        private Fragment byteSet(boolean[] set) {
+            final int node = nfa.addNode(Nfa.NODE_BYTE_SET, set);
+            final int end = nfa.addEpsilon();
+            nfa.setOut(node, end);
+            return Fragment.nonLiteral(node, end);
+        }
+
+        /**
+         * @return A fragment matching the UTF-8 bytes of the character.
+         */
+        private Fragment literal(char c) {
+            if (c <= 0x7F) {
+                boolean[] set = new boolean[256];
+                set[c] = true;
+                Fragment fragment = byteSet(set);
+                String text = String.valueOf(c);
+                return new Fragment(fragment.start, fragment.end, true, text, text, text);
+            }
+
+            // Literal text is used only for ASCII.
+            byte[] bytes = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+            Fragment result = empty();
+            for (byte b : bytes) {
+                boolean[] set = new boolean[256];
+                set[b & 0xFF] = true;
+                result = concatenate(result, byteSet(set));
+            }
+            return Fragment.nonLiteral(result.start, result.end);
+        }
+
+        private static String longest(String first, String second) {
+            return first.length() >= second.length() ? first : second;
+        }
+
+        private Fragment concatenate(Fragment first, Fragment second) {
+            nfa.setOut(first.end, second.start);
+
+            // Literal text can span from the end of the first fragment into the start of the second.
+            String spanning = first.suffix + second.prefix;
+            String requiredLiteral = longest(longest(first.requiredLiteral, second.requiredLiteral), spanning);
+            if (first.isLiteral && second.isLiteral) {
+                return new Fragment(first.start, second.end, true, spanning, spanning, spanning);
+            }
+            String prefix = first.isLiteral ? spanning : first.prefix;
+            String suffix = second.isLiteral ? spanning : second.suffix;
+            return new Fragment(first.start, second.end, false, prefix, suffix, requiredLiteral);
+        }
+
+        private Fragment alternate(Fragment first, Fragment second) {
+            final int start = nfa.addEpsilon();
+            final int end = nfa.addEpsilon();
+            nfa.setOut(start, first.start);
+            nfa.setOut2(start, second.start);
+            nfa.setOut(first.end, end);
+            nfa.setOut(second.end, end);
+            return Fragment.nonLiteral(start, end);
+        }
+
+        private Fragment star(Fragment fragment) {
+            final int start = nfa.addEpsilon();
+            final int end = nfa.addEpsilon();
+            nfa.setOut(start, fragment.start);
+            nfa.setOut2(start, end);
+            nfa.setOut(fragment.end, fragment.start);
+            nfa.setOut2(fragment.end, end);
+            return Fragment.nonLiteral(start, end);
+        }
+
+        private Fragment plus(Fragment fragment) {
+            final int end = nfa.addEpsilon();
+            nfa.setOut(fragment.end, fragment.start);
+            nfa.setOut2(fragment.end, end);
+            // Every match contains at least one repetition.
+            return new Fragment(fragment.start, end, false, fragment.prefix, fragment.suffix,
+                    fragment.requiredLiteral);
+        }
+
+        private Fragment optional(Fragment fragment) {
+            final int start = nfa.addEpsilon();
+            final int end = nfa.addEpsilon();
+            nfa.setOut(start, fragment.start);
+            nfa.setOut2(start, end);
+            nfa.setOut(fragment.end, end);
+            return Fragment.nonLiteral(start, end);
+        }
+    }
+
+    private final Nfa nfa = new Nfa();
+    private final List<String> patterns = new ArrayList<>();
+
+    private volatile boolean compiled;
+
+    /**
+     * Byte equivalence class of each byte value.  Bytes in the same class always have the same transitions.
+     * There can be up to 256 classes, so the class must be read as unsigned ({@code & 0xFF}).
+     */
+    private byte[] byteClasses;
+    private int numberOfByteClasses;
+    /**
+     * Transitions of all states, indexed by state * {@link #numberOfByteClasses} + byte class.
+     */
+    private int[] transitions;
+    private byte[] stateFlags;
+    private int startState;
+
+    /**
+     * Adds a glob pattern.
+     *
+     * @param anchorStart If the pattern must match the start of the text.
+     * @return The longest literal text that every match of the pattern contains.
+     * @throws IllegalArgumentException If the pattern is empty.
+     */
+    @NonNull
+    public String addGlob(@NonNull String glob, boolean anchorStart) {
+        verifyNotCompiled();
+        if (glob.isEmpty()) {
+            throw new IllegalArgumentException("Empty pattern");
+        }
+
+        PatternParser parser = new PatternParser(nfa, glob);
+        Fragment fragment = parser.parseGlob();
+        addPattern(glob, fragment, anchorStart, false);
+        return fragment.requiredLiteral;
+    }
+
+    /**
+     * Adds a regular expression.
+     *
+     * @return The longest literal text that every match of the expression contains.
+     * @throws IllegalArgumentException If the expression is not valid or uses unsupported syntax.
+     */
+    @NonNull
+    public String addRegex(@NonNull String regex) {
+        verifyNotCompiled();
+        int startIndex = 0;
+        int endIndex = regex.length();
+        final boolean anchorStart = regex.startsWith("^");
+        if (anchorStart) {
+            startIndex++;
+        }
+        final boolean anchorEnd = endIndex > startIndex && regex.charAt(endIndex - 1) == '$'
+                && !isEscaped(regex, endIndex - 1);
+        if (anchorEnd) {
+            endIndex--;
+        }
+        if (startIndex == endIndex) {
+            throw new IllegalArgumentException("Empty pattern");
+        }
+
+        PatternParser parser = new PatternParser(nfa, regex);
+        parser.index = startIndex;
+        Fragment fragment = parser.parseRegex(endIndex);
+        addPattern(regex, fragment, anchorStart, anchorEnd);
+        return fragment.requiredLiteral;
+    }
+
+    private static boolean isEscaped(String text, int index) {
+        int backslashCount = 0;
+        while (--index >= 0 && text.charAt(index) == '\\') {
+            backslashCount++;
+        }
+        return (backslashCount & 1) == 1;
+    }
+
+    private void addPattern(String pattern, Fragment fragment, boolean anchorStart, boolean anchorEnd) {
+        final int accept = nfa.addNode(Nfa.NODE_ACCEPT, null);
+        nfa.acceptsOnlyAtEnd.set(accept, anchorEnd);
+        nfa.setOut(fragment.end, accept);
+        (anchorStart ? nfa.anchoredStarts : nfa.unanchoredStarts).add(fragment.start);
+        patterns.add(pattern);
+    }
+
+    private void verifyNotCompiled() {
+        if (compiled) {
+            throw new IllegalStateException("Cannot add patterns after compiling");
+        }
+    }
+
+    private void addEpsilonClosure(int node, boolean[] visited, List<Integer> closure) {
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            final int current = stack.pop();
+            if (current < 0 || visited[current]) {
+                continue;
+            }
+            visited[current] = true;
+            if (nfa.types.get(current) == Nfa.NODE_EPSILON) {
+                stack.push(nfa.outs2.get(current));
+                stack.push(nfa.outs.get(current));
+            } else {
+                closure.add(current);
+            }
+        }
+    }
+
+    /**
+     * Computes equivalence classes of the bytes, where all bytes in a class are matched by the same NFA nodes.
+     */
+    private void computeByteClasses() {
+        int[] classes = new int[256];
+        int count = 1;
+        for (int node = 0, size = nfa.size(); node < size; node++) {
+            boolean[] set = nfa.byteSets.get(node);
+            if (set == null) {
+                continue;
+            }
+            // Split each existing class into the bytes in and not in the set.
+            int[] splitClasses = new int[count * 2];
+            Arrays.fill(splitClasses, -1);
+            int newCount = 0;
+            for (int b = 0; b < 256; b++) {
+                final int key = classes[b] * 2 + (set[b] ? 1 : 0);
+                if (splitClasses[key] < 0) {
+                    splitClasses[key] = newCount++;
+                }
+                classes[b] = splitClasses[key];
+            }
+            count = newCount;
+        }
+
+        byteClasses = new byte[256];
+        for (int b = 0; b < 256; b++) {
+            byteClasses[b] = (byte) classes[b];
+        }
+        numberOfByteClasses = count;
+    }
+
+    /**
+     * Compiles all patterns into a minimized DFA.  Must be called after all patterns are added.
+     * Calling this method more than once does nothing.
+     *
+     * @throws IllegalArgumentException If the patterns need more than {@link #MAXIMUM_NUMBER_OF_STATES}.
+     */
+    public synchronized void compile() {
+        if (compiled) {
+            return;
+        }
+        if (patterns.isEmpty()) {
+            throw new IllegalStateException("No patterns added");
+        }
+
+        computeByteClasses();
+        final int classCount = numberOfByteClasses;
+        final int nfaSize = nfa.size();
+
+        // Representative byte of each class.
+        int[] classBytes = new int[classCount];
+        for (int b = 255; b >= 0; b--) {
+            classBytes[byteClasses[b] & 0xFF] = b;
+        }
+
+        // Closure added to every state, so unanchored patterns can start at any index.
+        List<Integer> unanchoredClosure = new ArrayList<>();
+        boolean[] visited = new boolean[nfaSize];
+        for (int start : nfa.unanchoredStarts) {
+            addEpsilonClosure(start, visited, unanchoredClosure);
+        }
+
+        List<Integer> initialClosure = new ArrayList<>(unanchoredClosure);
+        for (int start : nfa.anchoredStarts) {
+            addEpsilonClosure(start, visited, initialClosure);
+        }
+        Collections.sort(initialClosure);
+
+        // Subset construction.
+        Map<List<Integer>, Integer> stateIds = new HashMap<>();
+        List<List<Integer>> states = new ArrayList<>();
+        List<int[]> stateTransitions = new ArrayList<>();
+        List<Integer> flags = new ArrayList<>();
+        stateIds.put(initialClosure, 0);
+        states.add(initialClosure);
+
+        for (int stateId = 0; stateId < states.size(); stateId++) {
+            List<Integer> state = states.get(stateId);
+            int stateFlag = 0;
+            for (int node : state) {
+                if (nfa.types.get(node) == Nfa.NODE_ACCEPT) {
+                    stateFlag |= nfa.acceptsOnlyAtEnd.get(node) ? STATE_ACCEPTS_AT_END : STATE_ACCEPTS;
+                }
+            }
+            flags.add(stateFlag);
+
+            int[] next = new int[classCount];
+            stateTransitions.add(next);
+            if ((stateFlag & STATE_ACCEPTS) != 0) {
+                // Searching stops at the first match, and transitions are never used.
+                Arrays.fill(next, stateId);
+                continue;
+            }
+
+            for (int byteClass = 0; byteClass < classCount; byteClass++) {
+                final int b = classBytes[byteClass];
+                Arrays.fill(visited, false);
+                List<Integer> nextState = new ArrayList<>();
+                for (int node : state) {
+                    if (nfa.types.get(node) == Nfa.NODE_BYTE_SET && nfa.byteSets.get(node)[b]) {
+                        addEpsilonClosure(nfa.outs.get(node), visited, nextState);
+                    }
+                }
+                for (int node : unanchoredClosure) {
+                    if (!visited[node]) {
+                        visited[node] = true;
+                        nextState.add(node);
+                    }
+                }
+                Collections.sort(nextState);
+
+                Integer nextId = stateIds.get(nextState);
+                if (nextId == null) {
+                    if (states.size() >= MAXIMUM_NUMBER_OF_STATES) {
+                        throw new IllegalArgumentException("Patterns exceed " + MAXIMUM_NUMBER_OF_STATES
+                                + " states: " + patterns);
+                    }
+                    nextId = states.size();
+                    stateIds.put(nextState, nextId);
+                    states.add(nextState);
+                }
+                next[byteClass] = nextId;
+            }
+        }
+
+        minimize(stateTransitions, flags);
+        compiled = true; // Must set last.
+    }
+
+    /**
+     * Minimizes the DFA by merging equivalent states (Moore's partition refinement).
+     */
+    private void minimize(List<int[]> stateTransitions, List<Integer> flags) {
+        final int stateCount = stateTransitions.size();
+        final int classCount = numberOfByteClasses;
+
+        // Initial partition is by the accepting flags.
+        int[] partition = new int[stateCount];
+        int partitionCount;
+        {
+            Map<Integer, Integer> flagPartitions = new HashMap<>();
+            for (int state = 0; state < stateCount; state++) {
+                Integer id = flagPartitions.get(flags.get(state));
+                if (id == null) {
+                    id = flagPartitions.size();
+                    flagPartitions.put(flags.get(state), id);
+                }
+                partition[state] = id;
+            }
+            partitionCount = flagPartitions.size();
+        }
+
+        while (true) {
+            Map<List<Integer>, Integer> signatures = new HashMap<>();
+            int[] refined = new int[stateCount];
+            for (int state = 0; state < stateCount; state++) {
+                List<Integer> signature = new ArrayList<>(classCount + 1);
+                signature.add(partition[state]);
+                for (int next : stateTransitions.get(state)) {
+                    signature.add(partition[next]);
+                }
+                Integer id = signatures.get(signature);
+                if (id == null) {
+                    id = signatures.size();
+                    signatures.put(signature, id);
+                }
+                refined[state] = id;
+            }
+            final boolean stable = signatures.size() == partitionCount;
+            partition = refined;
+            partitionCount = signatures.size();
+            if (stable) {
+                break;
+            }
+        }
+
+        int[] minimizedTransitions = new int[partitionCount * classCount];
+        byte[] minimizedFlags = new byte[partitionCount];
+        for (int state = 0; state < stateCount; state++) {
+            final int minimizedState = partition[state];
+            int[] next = stateTransitions.get(state);
+            for (int byteClass = 0; byteClass < classCount; byteClass++) {
+                minimizedTransitions[minimizedState * classCount + byteClass] = partition[next[byteClass]];
+            }
+            minimizedFlags[minimizedState] = (byte) (int) flags.get(state);
+        }
+
+        // A non accepting state that only transitions to itself can never match.
+        for (int state = 0; state < partitionCount; state++) {
+            if (minimizedFlags[state] != 0) {
+                continue;
+            }
+            boolean dead = true;
+            for (int byteClass = 0; byteClass < classCount; byteClass++) {
+                if (minimizedTransitions[state * classCount + byteClass] != state) {
+                    dead = false;
+                    break;
+                }
+            }
+            if (dead) {
+                minimizedFlags[state] = STATE_DEAD;
+            }
+        }
+
+        transitions = minimizedTransitions;
+        stateFlags = minimizedFlags;
+        startState = partition[0];
+    }
+
+    private void verifyCompiled() {
+        if (!compiled) {
+            throw new IllegalStateException("Must compile before searching");
+        }
+    }
+
+    /**
+     * @return If any pattern matches the text.
+     */
+    public boolean matches(@NonNull CharSequence text) {
+        verifyCompiled();
+        final byte[] classes = byteClasses;
+        final int[] table = transitions;
+        final byte[] flags = stateFlags;
+        final int classCount = numberOfByteClasses;
+
+        int state = startState;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            final char c = text.charAt(i);
+            final int symbol = (c <= 0x7F) ? c : NON_ASCII_CHARACTER_SYMBOL;
+            state = table[state * classCount + (classes[symbol] & 0xFF)];
+            final int flag = flags[state];
+            if (flag != 0) {
+                if ((flag & STATE_ACCEPTS) != 0) return true;
+                if ((flag & STATE_DEAD) != 0) return false;
+            }
+        }
+        return (flags[state] & (STATE_ACCEPTS | STATE_ACCEPTS_AT_END)) != 0;
+    }
+
+    /**
+     * @param startIndex Start index to search, inclusive.
+     * @param endIndex   End index to search, exclusive.
+     * @return If any pattern matches the range of the text.
+     */
+    public boolean matches(@NonNull byte[] text, int startIndex, int endIndex) {
+        verifyCompiled();
+        if (startIndex < 0 || endIndex > text.length || startIndex > endIndex) {
+            throw new IllegalArgumentException("startIndex: " + startIndex
+                    + " endIndex: " + endIndex + " length: " + text.length);
+        }
+        final byte[] classes = byteClasses;
+        final int[] table = transitions;
+        final byte[] flags = stateFlags;
+        final int classCount = numberOfByteClasses;
+
+        int state = startState;
+        for (int i = startIndex; i < endIndex; i++) {
+            state = table[state * classCount + (classes[text[i] & 0xFF] & 0xFF)];
+            final int flag = flags[state];
+            if (flag != 0) {
+                if ((flag & STATE_ACCEPTS) != 0) return true;
+                if ((flag & STATE_DEAD) != 0) return false;
+            }
+        }
+        return (flags[state] & (STATE_ACCEPTS | STATE_ACCEPTS_AT_END)) != 0;
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * @return Number of states of the compiled DFA.
+     */
+    public int getNumberOfStates() {
+        verifyCompiled();
+        return stateFlags.length;
+    }
+
+    /**
+     * @return Estimated memory size (in kilobytes) of the compiled DFA.
+     */
+    public int getEstimatedMemorySize() {
+        if (!compiled) {
+            return 0;
+        }
+        final int bytes = transitions.length * 4 + byteClasses.length + stateFlags.length;
+        return (int) Math.ceil(bytes / 1024.0);
+    }
+
+    public int numberOfPatterns() {
+        return patterns.size();
+    }
+
+    public List<String> getPatterns() {
+        return Collections.unmodifiableList(patterns);
+    }
+}
@@ -0,0 +1,172 @@
+package app.revanced.integrations.youtube;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary file of recorded Litho components, and the filter verdict of each component.
+ *
+ * File is a header followed by records.  Each record is:
+ * identifier, path, and buffer (each as an int length followed by the bytes, with a length of -1 for null),
+ * followed by the verdict as a single byte, and the filter time in nanoseconds as a long.
+ * Strings are UTF-8, and all numbers are big endian.
+ *
+ * Does not use Android classes, so captures can be read on a JVM.
+ */
+public final class LithoCaptureFile {
+
+    /**
+     * "RVLC"
+     */
+    private static final int MAGIC = 0x52564C43;
+    private static final int VERSION = 1;
+
+    /**
+     * Limits the memory used when reading a corrupt file.
+     */
+    private static final int MAXIMUM_FIELD_LENGTH = 16 * 1024 * 1024;
+
+    public static final class Record {
+        @Nullable
+        public final String identifier;
+        @NonNull
+        public final String path;
+        @NonNull
+        public final byte[] buffer;
+        public final boolean filtered;
+        public final long filterNanos;
+
+        public Record(@Nullable String identifier, @NonNull String path, @NonNull byte[] buffer,
+                      boolean filtered, long filterNanos) {
+            this.identifier = identifier;
+            this.path = path;
+            this.buffer = buffer;
+            this.filtered = filtered;
+            this.filterNanos = filterNanos;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "ID: " + identifier + " Path: " + path + " BufferLength: " + buffer.length;
+        }
+    }
+
+    public static final class Writer implements Closeable {
+        private final DataOutputStream output;
+
+        public Writer(@NonNull File file) throws IOException {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+        }
+
+        public void write(@NonNull Record record) throws IOException {
+            writeField(record.identifier == null
+                    ? null
+                    : record.identifier.getBytes(StandardCharsets.UTF_8));
+            writeField(record.path.getBytes(StandardCharsets.UTF_8));
+            writeField(record.buffer);
+            output.writeBoolean(record.filtered);
+            output.writeLong(record.filterNanos);
+        }
+
+        private void writeField(@Nullable byte[] bytes) throws IOException {
+            if (bytes == null) {
+                output.writeInt(-1);
+            } else {
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+
+    public static final class Reader implements Closeable {
+        private final DataInputStream input;
+
+        /**
+         * @throws IOException If the file is not a capture file, or is a different version.
+         */
+        public Reader(@NonNull File file) throws IOException {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (input.readInt() != MAGIC) {
+                    throw new IOException("Not a capture file: " + file);
+                }
+                final int version = input.readInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported capture version: " + version);
+                }
+            } catch (IOException ex) {
+                input.close();
+                throw ex;
+            }
+        }
+
+        /**
+         * @return The next record, or null if there are no more records.
+         *         A record that is incomplete (from a capture that was not closed) is treated as the end of the file.
+         */
+        @Nullable
+        public Record read() throws IOException {
+            try {
+                final int identifierLength = input.readInt();
+                byte[] identifier = readField(identifierLength);
+                byte[] path = readField(input.readInt());
+                byte[] buffer = readField(input.readInt());
+                if (path == null || buffer == null) {
+                    throw new IOException("Missing path or buffer");
+                }
+                final boolean filtered = input.readBoolean();
+                final long filterNanos = input.readLong();
+
+                return new Record(identifier == null ? null : new String(identifier, StandardCharsets.UTF_8),
+                        new String(path, StandardCharsets.UTF_8), buffer, filtered, filterNanos);
+            } catch (EOFException ex) {
+                return null;
+            }
+        }
+
+        @Nullable
+        private byte[] readField(int length) throws IOException {
+            if (length == -1) {
+                return null;
+            }
+            if (length < 0 || length > MAXIMUM_FIELD_LENGTH) {
+                throw new IOException("Invalid field length: " + length);
+            }
+            byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            return bytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    private LithoCaptureFile() {
+    }
+}
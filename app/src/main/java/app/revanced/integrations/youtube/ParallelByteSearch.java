@@ -0,0 +1,230 @@
+package app.revanced.integrations.youtube;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Searches large byte arrays by splitting the array into chunks, and searching the chunks in parallel.
+ *
+ * Chunks overlap by the length of the longest pattern, so a match that spans two chunks is still found.
+ * The calling thread searches the first chunk, and the remaining chunks are searched by a small dedicated pool.
+ * Searching stops when any chunk finds a match that a callback accepts.
+ * Each chunk is searched in blocks of {@link #STOP_CHECK_INTERVAL} bytes,
+ * and the other chunks stop at the end of their current block.
+ *
+ * The result is the same as a {@link TrieSearch} search of the entire range,
+ * except that the match found might not be the first match in the text.
+ * Callbacks are called from multiple threads at the same time,
+ * and each chunk uses a different callback parameter.
+ *
+ * Only worthwhile for large arrays, as submitting the chunks costs more than searching small arrays.
+ */
+public final class ParallelByteSearch {
+
+    /**
+     * Ranges of an array to search, such as the string fields of a proto buffer.
+     * Ranges must be in order and must not overlap.
+     */
+    public interface Ranges {
+        int getRangeCount();
+
+        int getRangeStartIndex(int rangeIndex);
+
+        int getRangeEndIndex(int rangeIndex);
+    }
+
+    /**
+     * Callback parameter that is given the range being searched,
+     * such as to use the start and end of each range as word boundaries.
+     * Only used when searching {@link Ranges}.
+     */
+    public interface RangeParameter {
+        /**
+         * Called before each range is searched.
+         */
+        void setRange(int startIndex, int endIndex);
+    }
+
+    /**
+     * Number of bytes a chunk searches before checking if another chunk already matched.
+     * Blocks overlap by the length of the longest pattern, the same as the chunks.
+     */
+    private static final int STOP_CHECK_INTERVAL = 4096;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int minimumChunkSize;
+
+    /**
+     * @param parallelism      Number of pool threads.  The calling thread also searches.
+     * @param minimumChunkSize Minimum length of each chunk.
+     */
+    public ParallelByteSearch(int parallelism, int minimumChunkSize) {
+        if (parallelism < 1 || minimumChunkSize < 1) {
+            throw new IllegalArgumentException("parallelism: " + parallelism
+                    + " minimumChunkSize: " + minimumChunkSize);
+        }
+        this.parallelism = parallelism;
+        this.minimumChunkSize = minimumChunkSize;
+        pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("ParallelByteSearch-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    private int getChunkSize(int length) {
+        // One chunk for each pool thread and the calling thread.
+        return Math.max(minimumChunkSize, (length + parallelism) / (parallelism + 1));
+    }
+
+    /**
+     * Searches a range of the text.
+     *
+     * @param startIndex        Start index to search, inclusive.
+     * @param endIndex          End index to search, exclusive.
+     * @param parameterFactory  Creates the callback parameter of each chunk.
+     * @return The callback parameter of the chunk that matched, or null if nothing matched.
+     */
+    @Nullable
+    public <P> P matches(@NonNull TrieSearch<? super byte[]> search, @NonNull byte[] text,
+                         int startIndex, int endIndex, @NonNull Supplier<P> parameterFactory) {
+        final int overlap = Math.max(0, search.getMaximumPatternLength() - 1);
+        final int chunkSize = getChunkSize(endIndex - startIndex);
+
+        List<ChunkTask<P>> tasks = new ArrayList<>();
+        AtomicBoolean matched = new AtomicBoolean();
+        for (int chunkStart = startIndex; chunkStart < endIndex; chunkStart += chunkSize) {
+            final int chunkEnd = (int) Math.min(endIndex, (long) chunkStart + chunkSize + overlap);
+            tasks.add(new ChunkTask<>(search, text, new int[]{chunkStart}, new int[]{chunkEnd},
+                    overlap, false, parameterFactory, matched));
+        }
+        return invoke(tasks);
+    }
+
+    /**
+     * Searches each range of the text.  A match cannot span two ranges.
+     * Consecutive ranges are grouped into chunks.
+     *
+     * @param parameterFactory Creates the callback parameter of each chunk.
+     *                         If the parameter is a {@link RangeParameter}, it is given each range searched.
+     * @return The callback parameter of the chunk that matched, or null if nothing matched.
+     */
+    @Nullable
+    public <P> P matches(@NonNull TrieSearch<? super byte[]> search, @NonNull byte[] text,
+                         @NonNull Ranges ranges, @NonNull Supplier<P> parameterFactory) {
+        final int rangeCount = ranges.getRangeCount();
+        if (rangeCount == 0) {
+            return null;
+        }
+        final int overlap = Math.max(0, search.getMaximumPatternLength() - 1);
+        final int chunkSize = getChunkSize(ranges.getRangeEndIndex(rangeCount - 1) - ranges.getRangeStartIndex(0));
+
+        List<ChunkTask<P>> tasks = new ArrayList<>();
+        AtomicBoolean matched = new AtomicBoolean();
+        int chunkFirstRange = 0;
+        int chunkLength = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            chunkLength += ranges.getRangeEndIndex(i) - ranges.getRangeStartIndex(i);
+            if (chunkLength >= chunkSize || i == rangeCount - 1) {
+                final int count = i - chunkFirstRange + 1;
+                int[] starts = new int[count];
+                int[] ends = new int[count];
+                for (int j = 0; j < count; j++) {
+                    starts[j] = ranges.getRangeStartIndex(chunkFirstRange + j);
+                    ends[j] = ranges.getRangeEndIndex(chunkFirstRange + j);
+                }
+                tasks.add(new ChunkTask<>(search, text, starts, ends, overlap, true, parameterFactory, matched));
+                chunkFirstRange = i + 1;
+                chunkLength = 0;
+            }
+        }
+        return invoke(tasks);
+    }
+
+    @Nullable
+    private <P> P invoke(List<ChunkTask<P>> tasks) {
+        final int taskCount = tasks.size();
+        List<ForkJoinTask<P>> submitted = new ArrayList<>(taskCount);
+        for (int i = 1; i < taskCount; i++) {
+            submitted.add(pool.submit(tasks.get(i)));
+        }
+
+        try {
+            P result = tasks.get(0).call();
+            for (ForkJoinTask<P> task : submitted) {
+                if (result != null) {
+                    task.cancel(false);
+                } else {
+                    result = task.get();
+                }
+            }
+            return result;
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static final class ChunkTask<P> implements java.util.concurrent.Callable<P> {
+        private final TrieSearch<? super byte[]> search;
+        private final byte[] text;
+        private final int[] startIndexes;
+        private final int[] endIndexes;
+        private final int overlap;
+        /**
+         * If the indexes are ranges given to a {@link RangeParameter}, and not parts of a single range.
+         */
+        private final boolean setRanges;
+        private final Supplier<P> parameterFactory;
+        private final AtomicBoolean matched;
+
+        ChunkTask(TrieSearch<? super byte[]> search, byte[] text, int[] startIndexes, int[] endIndexes,
+                  int overlap, boolean setRanges, Supplier<P> parameterFactory, AtomicBoolean matched) {
+            this.search = search;
+            this.text = text;
+            this.startIndexes = startIndexes;
+            this.endIndexes = endIndexes;
+            this.overlap = overlap;
+            this.setRanges = setRanges;
+            this.parameterFactory = parameterFactory;
+            this.matched = matched;
+        }
+
+        @Override
+        public P call() {
+            P parameter = parameterFactory.get();
+            final boolean setRange = setRanges && parameter instanceof RangeParameter;
+            for (int i = 0; i < startIndexes.length; i++) {
+                final int rangeStart = startIndexes[i];
+                final int rangeEnd = endIndexes[i];
+                if (setRange) {
+                    ((RangeParameter) parameter).setRange(rangeStart, rangeEnd);
+                }
+                for (int blockStart = rangeStart; blockStart < rangeEnd; blockStart += STOP_CHECK_INTERVAL) {
+                    if (matched.get()) {
+                        return null; // Another chunk already matched.
+                    }
+                    final int blockEnd = (int) Math.min(rangeEnd, (long) blockStart + STOP_CHECK_INTERVAL + overlap);
+                    if (search.matches(text, blockStart, blockEnd, parameter)) {
+                        matched.set(true);
+                        return parameter;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -4,10 +4,14 @@ import androidx.annotation.NonNull;
 
 /**
  * Text pattern searching using a prefix tree (trie).
+ *
+ * Any {@link CharSequence} can be searched (such as a {@link StringBuilder}),
+ * which avoids creating a String only to search it.
+ * Patterns should be Strings, as patterns must not change after being added.
  */
-public final class StringTrieSearch extends TrieSearch<String> {
+public final class StringTrieSearch extends TrieSearch<CharSequence> {
 
-    private static final class StringTrieNode extends TrieNode<String> {
+    private static final class StringTrieNode extends TrieNode<CharSequence> {
         StringTrieNode() {
             super();
         }
@@ -15,15 +19,39 @@ public final class StringTrieSearch extends TrieSearch<String> {
             super(nodeCharacterValue);
         }
         @Override
-        TrieNode<String> createNode(char nodeValue) {
+        TrieNode<CharSequence> createNode(char nodeValue) {
             return new StringTrieNode(nodeValue);
         }
         @Override
-        char getCharValue(String text, int index) {
+        char getCharValue(CharSequence text, int index) {
             return text.charAt(index);
         }
         @Override
-        int getTextLength(String text) {
+        int getTextLength(CharSequence text) {
+            return text.length();
+        }
+    }
+
+    /**
+     * Node that compares the lower case of each character.
+     */
+    private static final class CaseInsensitiveStringTrieNode extends TrieNode<CharSequence> {
+        CaseInsensitiveStringTrieNode() {
+            super();
+        }
+        CaseInsensitiveStringTrieNode(char nodeCharacterValue) {
+            super(nodeCharacterValue);
+        }
+        @Override
+        TrieNode<CharSequence> createNode(char nodeValue) {
+            return new CaseInsensitiveStringTrieNode(nodeValue);
+        }
+        @Override
+        char getCharValue(CharSequence text, int index) {
+            return Character.toLowerCase(text.charAt(index));
+        }
+        @Override
+        int getTextLength(CharSequence text) {
             return text.length();
         }
     }
@@ -31,4 +59,11 @@ public final class StringTrieSearch extends TrieSearch<String> {
     public StringTrieSearch(@NonNull String... patterns) {
         super(new StringTrieNode(), patterns);
     }
+
+    /**
+     * @param caseInsensitive If patterns match text regardless of upper/lower case.
+     */
+    public StringTrieSearch(boolean caseInsensitive, @NonNull String... patterns) {
+        super(caseInsensitive ? new CaseInsensitiveStringTrieNode() : new StringTrieNode(), patterns);
+    }
 }
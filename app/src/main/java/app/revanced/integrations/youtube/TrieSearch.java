@@ -3,14 +3,23 @@ package app.revanced.integrations.youtube;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Searches for a group of different patterns using a trie (prefix tree).
  * Can significantly speed up searching for multiple patterns.
+ *
+ * After all patterns are added, the trie can optionally be compiled into an
+ * Aho-Corasick automaton using {@link #compile()}. A compiled search scans the text
+ * exactly once, instead of restarting the trie search at every index of the text.
+ *
+ * If no more patterns will ever be added, then {@link #freeze()} can be used to
+ * convert the compiled automaton into flat primitive arrays.
  */
 public abstract class TrieSearch<T> {
 
@@ -123,6 +132,31 @@ public abstract class TrieSearch<T> {
         @Nullable
         private List<TriePatternMatchedCallback<T>> endOfPatternCallback;
 
+        /**
+         * Aho-Corasick failure link. Only set after the trie is compiled.
+         *
+         * Node of the longest proper suffix of this node's path that is also a path in the trie.
+         * Null for the root node.
+         */
+        @Nullable
+        private TrieNode<T> failureLink;
+
+        /**
+         * Aho-Corasick dictionary suffix link. Only set after the trie is compiled.
+         *
+         * The closest node reachable using failure links that is the end of a pattern,
+         * or null if no such node exists.
+         */
+        @Nullable
+        private TrieNode<T> outputLink;
+
+        /**
+         * Number of characters from the root to this node.  Only set after the trie is compiled.
+         * Used to calculate the start index of a pattern match, since a compiled search
+         * only knows where a match ends.
+         */
+        private int depth;
+
         TrieNode() {
             this.nodeValue = ROOT_NODE_CHARACTER_VALUE;
         }
@@ -138,6 +172,16 @@ public abstract class TrieSearch<T> {
          */
         private void addPattern(@NonNull T pattern, int patternIndex, int patternLength,
                                 @Nullable TriePatternMatchedCallback<T> callback) {
+            addPattern(pattern, patternIndex, patternLength, callback, true);
+        }
+
+        /**
+         * @param compressLeaves If the remaining pattern characters can be stored as a compressed leaf.
+         *                       Must be false when compiling, as the Aho-Corasick automaton
+         *                       requires a node for every character.
+         */
+        private void addPattern(@NonNull T pattern, int patternIndex, int patternLength,
+                                @Nullable TriePatternMatchedCallback<T> callback, boolean compressLeaves) {
             if (patternIndex == patternLength) { // Reached the end of the pattern.
                 if (endOfPatternCallback == null) {
                     endOfPatternCallback = new ArrayList<>(1);
@@ -153,11 +197,15 @@ public abstract class TrieSearch<T> {
                 children = new TrieNode[1];
                 TrieCompressedPath<T> temp = leaf;
                 leaf = null;
-                addPattern(temp.pattern, temp.patternStartIndex, temp.patternLength, temp.callback);
+                addPattern(temp.pattern, temp.patternStartIndex, temp.patternLength, temp.callback, compressLeaves);
                 // Continue onward and add the parameter pattern.
             } else if (children == null) {
-                leaf = new TrieCompressedPath<>(pattern, patternIndex, patternLength, callback);
-                return;
+                if (compressLeaves) {
+                    leaf = new TrieCompressedPath<>(pattern, patternIndex, patternLength, callback);
+                    return;
+                }
+                //noinspection unchecked
+                children = new TrieNode[1];
             }
             final char character = getCharValue(pattern, patternIndex);
             final int arrayIndex = hashIndexForTableSize(children.length, character);
@@ -170,7 +218,101 @@ public abstract class TrieSearch<T> {
                 child = createNode(character);
                 expandChildArray(child);
             }
-            child.addPattern(pattern, patternIndex + 1, patternLength, callback);
+            child.addPattern(pattern, patternIndex + 1, patternLength, callback, compressLeaves);
+        }
+
+        /**
+         * Replaces the compressed leaf of this node (if one exists) with a child node for each leaf character.
+         */
+        private void expandLeaf() {
+            TrieCompressedPath<T> temp = leaf;
+            if (temp == null) {
+                return;
+            }
+            leaf = null;
+            addPattern(temp.pattern, temp.patternStartIndex, temp.patternLength, temp.callback, false);
+        }
+
+        /**
+         * @return The child node for a character, or null if no child exists.
+         */
+        @Nullable
+        private TrieNode<T> getChild(char character) {
+            TrieNode<T>[] children = this.children;
+            if (children == null) {
+                return null;
+            }
+            TrieNode<T> child = children[hashIndexForTableSize(children.length, character)];
+            if (child == null || child.nodeValue != character) {
+                return null;
+            }
+            return child;
+        }
+
+        /**
+         * Converts this root node and all children into an Aho-Corasick automaton.
+         * Expands all compressed leaves, then sets the failure and output links
+         * using a breadth first traversal (so all shorter paths are linked before longer paths).
+         */
+        private static <T> void compile(TrieNode<T> root) {
+            ArrayDeque<TrieNode<T>> queue = new ArrayDeque<>();
+
+            // Expand all leaves first, since the failure links can point anywhere in the trie.
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                TrieNode<T> node = queue.poll();
+                node.expandLeaf();
+                addChildrenToQueue(queue, node);
+            }
+
+            root.depth = 0;
+            root.failureLink = null;
+            root.outputLink = null;
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                TrieNode<T> node = queue.poll();
+                TrieNode<T>[] children = node.children;
+                if (children == null) {
+                    continue;
+                }
+                for (TrieNode<T> child : children) {
+                    if (child == null) {
+                        continue;
+                    }
+                    child.depth = node.depth + 1;
+
+                    TrieNode<T> failure;
+                    if (node == root) {
+                        failure = root;
+                    } else {
+                        failure = node.failureLink;
+                        TrieNode<T> failureChild;
+                        while ((failureChild = failure.getChild(child.nodeValue)) == null && failure != root) {
+                            failure = failure.failureLink;
+                        }
+                        if (failureChild != null) {
+                            failure = failureChild;
+                        }
+                    }
+                    child.failureLink = failure;
+                    child.outputLink = (failure.endOfPatternCallback != null)
+                            ? failure
+                            : failure.outputLink;
+
+                    queue.add(child);
+                }
+            }
+        }
+
+        private static <T> void addChildrenToQueue(ArrayDeque<TrieNode<T>> queue, TrieNode<T> node) {
+            TrieNode<T>[] children = node.children;
+            if (children != null) {
+                for (TrieNode<T> child : children) {
+                    if (child != null) {
+                        queue.add(child);
+                    }
+                }
+            }
         }
 
         /**
@@ -268,13 +410,72 @@ public abstract class TrieSearch<T> {
             }
         }
 
+        /**
+         * Searches a compiled automaton using a single pass over the search text.
+         *
+         * Callbacks are called in order of where each match ends in the search text
+         * (and longest match first if multiple patterns end at the same index),
+         * and searching continues if a callback rejects a match.
+         *
+         * @param root               Root node of the compiled automaton.
+         * @param searchText         Text to search for patterns in.
+         * @param searchTextIndex    Start index, inclusive.
+         * @param searchTextEndIndex End index, exclusive.
+         * @return If any pattern matches, and it's associated callback halted the search.
+         */
+        private static <T> boolean compiledMatches(final TrieNode<T> root, final T searchText,
+                                                   int searchTextIndex, final int searchTextEndIndex,
+                                                   final Object callbackParameter) {
+            TrieNode<T> node = root;
+
+            for (; searchTextIndex < searchTextEndIndex; searchTextIndex++) {
+                // Use the root node to reduce VM method lookup, since all nodes are the same class type.
+                final char character = root.getCharValue(searchText, searchTextIndex);
+
+                // Follow failure links until a node with a matching child is found, or the root is reached.
+                while (true) {
+                    TrieNode<T> child = node.getChild(character);
+                    if (child != null) {
+                        node = child;
+                        break;
+                    }
+                    if (node == root) {
+                        break;
+                    }
+                    node = node.failureLink;
+                }
+
+                TrieNode<T> output = (node.endOfPatternCallback != null)
+                        ? node
+                        : node.outputLink;
+                while (output != null) {
+                    final int matchLength = output.depth;
+                    final int matchStartIndex = searchTextIndex + 1 - matchLength;
+                    List<TriePatternMatchedCallback<T>> endOfPatternCallback = output.endOfPatternCallback;
+                    //noinspection ForLoopReplaceableByForEach
+                    for (int i = 0, size = endOfPatternCallback.size(); i < size; i++) {
+                        TriePatternMatchedCallback<T> callback = endOfPatternCallback.get(i);
+                        if (callback == null) {
+                            return true; // No callback and all matches are valid.
+                        }
+                        if (callback.patternMatched(searchText, matchStartIndex, matchLength, callbackParameter)) {
+                            return true; // Callback confirmed the match.
+                        }
+                    }
+                    output = output.outputLink;
+                }
+            }
+
+            return false;
+        }
+
         /**
          * Gives an approximate memory usage.
          *
          * @return Estimated number of memory pointers used, starting from this node and including all children.
          */
         private int estimatedNumberOfPointersUsed() {
-            int numberOfPointers = 4; // Number of fields in this class.
+            int numberOfPointers = 7; // Number of fields in this class.
             if (leaf != null) {
                 numberOfPointers += 4; // Number of fields in leaf node.
             }
@@ -297,8 +498,206 @@ public abstract class TrieSearch<T> {
         abstract int getTextLength(T text);
     }
 
+    /**
+     * A compiled automaton flattened into primitive arrays, and each node is represented by an integer state.
+     *
+     * Searching uses only array lookups, with no pointer chasing between node objects
+     * and no memory allocations.
+     */
+    private static final class FrozenTrie<T> {
+        /**
+         * State of the root node.
+         */
+        private static final int ROOT_STATE = 0;
+
+        /**
+         * Indicates no state exists.
+         */
+        private static final int NO_STATE = -1;
+
+        /**
+         * Transition table of all states.  The table of each state uses the same perfect hashing
+         * as {@link TrieNode#children}, and state <code>s</code> uses indexes
+         * <code>transitionOffsets[s]</code> (inclusive) to <code>transitionOffsets[s + 1]</code> (exclusive).
+         *
+         * Byte searches store each byte using the same char value as {@link TrieNode#getCharValue(Object, int)}.
+         */
+        final char[] transitionCharacters;
+        /**
+         * State of each transition, or {@link #NO_STATE} for unused hash table entries.
+         */
+        final int[] transitionStates;
+        final int[] transitionOffsets;
+        final int[] failureStates;
+        /**
+         * Dictionary suffix link of each state, or {@link #NO_STATE} if none exists.
+         */
+        final int[] outputStates;
+        /**
+         * Number of characters from the root to each state.
+         */
+        final int[] depths;
+        /**
+         * Callbacks of state <code>s</code> use indexes
+         * <code>callbackOffsets[s]</code> (inclusive) to <code>callbackOffsets[s + 1]</code> (exclusive).
+         */
+        final int[] callbackOffsets;
+        final TriePatternMatchedCallback<T>[] callbacks;
+
+        /**
+         * @param root Root node of a compiled trie.
+         */
+        FrozenTrie(TrieNode<T> root) {
+            // Number the nodes in breadth first order, so the root is always state zero.
+            List<TrieNode<T>> nodes = new ArrayList<>();
+            IdentityHashMap<TrieNode<T>, Integer> nodeStates = new IdentityHashMap<>();
+            ArrayDeque<TrieNode<T>> queue = new ArrayDeque<>();
+            queue.add(root);
+            int numberOfTransitions = 0;
+            int numberOfCallbacks = 0;
+            while (!queue.isEmpty()) {
+                TrieNode<T> node = queue.poll();
+                nodeStates.put(node, nodes.size());
+                nodes.add(node);
+                if (node.children != null) {
+                    numberOfTransitions += node.children.length;
+                }
+                if (node.endOfPatternCallback != null) {
+                    numberOfCallbacks += node.endOfPatternCallback.size();
+                }
+                TrieNode.addChildrenToQueue(queue, node);
+            }
+
+            final int numberOfStates = nodes.size();
+            transitionCharacters = new char[numberOfTransitions];
+            transitionStates = new int[numberOfTransitions];
+            transitionOffsets = new int[numberOfStates + 1];
+            failureStates = new int[numberOfStates];
+            outputStates = new int[numberOfStates];
+            depths = new int[numberOfStates];
+            callbackOffsets = new int[numberOfStates + 1];
+            //noinspection unchecked
+            callbacks = new TriePatternMatchedCallback[numberOfCallbacks];
+
+            int transitionIndex = 0;
+            int callbackIndex = 0;
+            for (int state = 0; state < numberOfStates; state++) {
+                TrieNode<T> node = nodes.get(state);
+
+                transitionOffsets[state] = transitionIndex;
+                TrieNode<T>[] children = node.children;
+                if (children != null) {
+                    for (TrieNode<T> child : children) {
+                        if (child == null) {
+                            transitionStates[transitionIndex] = NO_STATE;
+                        } else {
+                            transitionCharacters[transitionIndex] = child.nodeValue;
+                            transitionStates[transitionIndex] = nodeStates.get(child);
+                        }
+                        transitionIndex++;
+                    }
+                }
+
+                callbackOffsets[state] = callbackIndex;
+                List<TriePatternMatchedCallback<T>> endOfPatternCallback = node.endOfPatternCallback;
+                if (endOfPatternCallback != null) {
+                    for (TriePatternMatchedCallback<T> callback : endOfPatternCallback) {
+                        callbacks[callbackIndex++] = callback;
+                    }
+                }
+
+                failureStates[state] = (node.failureLink == null)
+                        ? ROOT_STATE
+                        : nodeStates.get(node.failureLink);
+                outputStates[state] = (node.outputLink == null)
+                        ? NO_STATE
+                        : nodeStates.get(node.outputLink);
+                depths[state] = node.depth;
+            }
+            transitionOffsets[numberOfStates] = transitionIndex;
+            callbackOffsets[numberOfStates] = callbackIndex;
+        }
+
+        /**
+         * Identical to {@link TrieNode#compiledMatches(TrieNode, Object, int, int, Object)}
+         * but uses the flattened arrays.
+         *
+         * @param root Root node, used only for the get character method.
+         */
+        boolean matches(final TrieNode<T> root, final T searchText,
+                        int searchTextIndex, final int searchTextEndIndex,
+                        final Object callbackParameter) {
+            // Copy fields to local variables, so the VM can keep them in registers.
+            final char[] transitionCharacters = this.transitionCharacters;
+            final int[] transitionStates = this.transitionStates;
+            final int[] transitionOffsets = this.transitionOffsets;
+            final int[] failureStates = this.failureStates;
+            final int[] outputStates = this.outputStates;
+            final int[] depths = this.depths;
+            final int[] callbackOffsets = this.callbackOffsets;
+            final TriePatternMatchedCallback<T>[] callbacks = this.callbacks;
+            int state = ROOT_STATE;
+
+            for (; searchTextIndex < searchTextEndIndex; searchTextIndex++) {
+                final char character = root.getCharValue(searchText, searchTextIndex);
+
+                while (true) {
+                    final int tableOffset = transitionOffsets[state];
+                    final int tableSize = transitionOffsets[state + 1] - tableOffset;
+                    if (tableSize != 0) {
+                        final int tableIndex = tableOffset + (character % tableSize);
+                        final int nextState = transitionStates[tableIndex];
+                        if (nextState != NO_STATE && transitionCharacters[tableIndex] == character) {
+                            state = nextState;
+                            break;
+                        }
+                    }
+                    if (state == ROOT_STATE) {
+                        break;
+                    }
+                    state = failureStates[state];
+                }
+
+                int output = (callbackOffsets[state] != callbackOffsets[state + 1])
+                        ? state
+                        : outputStates[state];
+                while (output != NO_STATE) {
+                    final int matchLength = depths[output];
+                    final int matchStartIndex = searchTextIndex + 1 - matchLength;
+                    for (int i = callbackOffsets[output], end = callbackOffsets[output + 1]; i < end; i++) {
+                        TriePatternMatchedCallback<T> callback = callbacks[i];
+                        if (callback == null) {
+                            return true; // No callback and all matches are valid.
+                        }
+                        if (callback.patternMatched(searchText, matchStartIndex, matchLength, callbackParameter)) {
+                            return true; // Callback confirmed the match.
+                        }
+                    }
+                    output = outputStates[output];
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * @return Estimated memory usage in bytes.
+         */
+        int estimatedMemoryUsed(int numberOfBytesPerPointer) {
+            final int numberOfBytesPerChar = 2;
+            final int numberOfBytesPerInt = 4;
+            final int numberOfArrays = 8;
+            return numberOfArrays * numberOfBytesPerPointer
+                    + numberOfBytesPerChar * transitionCharacters.length
+                    + numberOfBytesPerInt * (transitionStates.length + transitionOffsets.length
+                    + failureStates.length + outputStates.length + depths.length + callbackOffsets.length)
+                    + numberOfBytesPerPointer * callbacks.length;
+        }
+    }
+
     /**
      * Root node, and it's children represent the first pattern characters.
+     * If frozen, then this node has no children and is used only to get the text characters.
      */
     private final TrieNode<T> root;
 
@@ -307,6 +706,22 @@ public abstract class TrieSearch<T> {
      */
     private final List<T> patterns = new ArrayList<>();
 
+    /**
+     * Length of the longest pattern.
+     */
+    private int maximumPatternLength;
+
+    /**
+     * If this instance was compiled into an Aho-Corasick automaton.
+     */
+    private volatile boolean compiled;
+
+    /**
+     * Non null if this instance was frozen.
+     */
+    @Nullable
+    private volatile FrozenTrie<T> frozen;
+
     @SafeVarargs
     TrieSearch(@NonNull TrieNode<T> root, @NonNull T... patterns) {
         this.root = Objects.requireNonNull(root);
@@ -338,9 +753,13 @@ public abstract class TrieSearch<T> {
     }
 
     void addPattern(@NonNull T pattern, int patternLength, @Nullable TriePatternMatchedCallback<T> callback) {
+        if (compiled) {
+            throw new IllegalStateException("Cannot add patterns after compiling");
+        }
         if (patternLength == 0) return; // Nothing to match
 
         patterns.add(pattern);
+        maximumPatternLength = Math.max(maximumPatternLength, patternLength);
         root.addPattern(pattern, 0, patternLength, callback);
     }
 
@@ -383,12 +802,66 @@ public abstract class TrieSearch<T> {
         if (patterns.isEmpty()) {
             return false; // No patterns were added.
         }
+        FrozenTrie<T> frozenTrie = frozen;
+        if (frozenTrie != null) {
+            return frozenTrie.matches(root, textToSearch, startIndex, endIndex, callbackParameter);
+        }
+        if (compiled) {
+            return TrieNode.compiledMatches(root, textToSearch, startIndex, endIndex, callbackParameter);
+        }
         for (int i = startIndex; i < endIndex; i++) {
             if (TrieNode.matches(root, textToSearch, i, endIndex, callbackParameter)) return true;
         }
         return false;
     }
 
+    /**
+     * Compiles this instance into an Aho-Corasick automaton, which searches text in a single linear pass
+     * regardless of how many patterns are used. Compiling uses slightly more memory,
+     * as compressed leaf paths are expanded into individual nodes.
+     *
+     * Callbacks are unchanged, except they are called in order of where the match ends
+     * (and not in order of where the match starts). If a callback rejects a match,
+     * searching continues the same as an uncompiled search.
+     *
+     * Must be called after all patterns are added, as no patterns can be added after compiling.
+     * Calling this method more than once does nothing.
+     */
+    public synchronized void compile() {
+        if (compiled) {
+            return;
+        }
+        TrieNode.compile(root);
+        compiled = true; // Must set last.
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Compiles this instance (if not already compiled), then converts the automaton into flat primitive arrays
+     * and releases the trie nodes. A frozen search is more cache friendly and searching does no memory allocations.
+     *
+     * No patterns can be added after freezing.  Calling this method more than once does nothing.
+     */
+    public synchronized void freeze() {
+        if (frozen != null) {
+            return;
+        }
+        compile();
+        FrozenTrie<T> frozenTrie = new FrozenTrie<>(root);
+        frozen = frozenTrie;
+        // The root is still used to get characters of the search text,
+        // but all other nodes are no longer used.
+        root.children = null;
+        root.endOfPatternCallback = null;
+    }
+
+    public boolean isFrozen() {
+        return frozen != null;
+    }
+
     /**
      * @return Estimated memory size (in kilobytes) of this instance.
      */
@@ -399,9 +872,20 @@ public abstract class TrieSearch<T> {
         // Assume the device has less than 32GB of ram (and can use pointer compression),
         // or the device is 32-bit.
         final int numberOfBytesPerPointer = 4;
+        FrozenTrie<T> frozenTrie = frozen;
+        if (frozenTrie != null) {
+            return (int) Math.ceil(frozenTrie.estimatedMemoryUsed(numberOfBytesPerPointer) / 1024.0);
+        }
         return (int) Math.ceil((numberOfBytesPerPointer * root.estimatedNumberOfPointersUsed()) / 1024.0);
     }
 
+    /**
+     * @return Length of the longest pattern, or zero if no patterns were added.
+     */
+    public int getMaximumPatternLength() {
+        return maximumPatternLength;
+    }
+
     public int numberOfPatterns() {
         return patterns.size();
     }
@@ -0,0 +1,244 @@
+package app.revanced.integrations.youtube;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable set of YouTube video ids, that searches for all ids in a single pass.
+ *
+ * Intended for small sets that frequently change, where building a {@link TrieSearch} for each change
+ * costs more than the searches it saves.  The set is immutable and can be searched by multiple threads,
+ * and changing the set creates a new set (copy on write).
+ *
+ * Searching uses a Rabin-Karp rolling hash of each 11 byte window of the text,
+ * and a window is reset at any byte that cannot be part of a video id.
+ * Each byte is read once regardless of how many ids are in the set.
+ */
+public final class VideoIdSearch {
+
+    public static final int VIDEO_ID_LENGTH = 11;
+
+    /**
+     * Maximum number of ids in a set.
+     */
+    public static final int MAXIMUM_NUMBER_OF_IDS = 32;
+
+    private static final long HASH_MULTIPLIER = 0x100000001B3L;
+
+    /**
+     * {@link #HASH_MULTIPLIER} to the power of {@link #VIDEO_ID_LENGTH}, used to remove the oldest byte of a window.
+     */
+    private static final long HASH_MULTIPLIER_POWER;
+
+    /**
+     * Characters used in video ids, indexed by the byte value.
+     */
+    private static final boolean[] VIDEO_ID_CHARACTERS = new boolean[256];
+
+    static {
+        long power = 1;
+        for (int i = 0; i < VIDEO_ID_LENGTH; i++) {
+            power *= HASH_MULTIPLIER;
+        }
+        HASH_MULTIPLIER_POWER = power;
+
+        for (char c = 'a'; c <= 'z'; c++) {
+            VIDEO_ID_CHARACTERS[c] = true;
+            VIDEO_ID_CHARACTERS[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            VIDEO_ID_CHARACTERS[c] = true;
+        }
+        VIDEO_ID_CHARACTERS['-'] = true;
+        VIDEO_ID_CHARACTERS['_'] = true;
+    }
+
+    public static final VideoIdSearch EMPTY = new VideoIdSearch(new ArrayList<>());
+
+    private final String[] videoIds;
+    private final byte[][] videoIdBytes;
+    private final long[] videoIdHashes;
+    /**
+     * Open addressing hash table, where each entry is the index of the id plus one, or zero if empty.
+     */
+    private final byte[] hashTable;
+    private final int hashTableMask;
+
+    /**
+     * @param videoIds Ids in order of priority.  If more than one id is found in the text,
+     *                 the id that is first in this collection is the result.
+     *                 Values that are not video ids are ignored.
+     */
+    public VideoIdSearch(@NonNull Collection<String> videoIds) {
+        if (videoIds.size() > MAXIMUM_NUMBER_OF_IDS) {
+            throw new IllegalArgumentException("Too many video ids: " + videoIds.size());
+        }
+
+        List<String> validIds = new ArrayList<>(videoIds.size());
+        for (String videoId : videoIds) {
+            if (isVideoId(videoId) && !validIds.contains(videoId)) {
+                validIds.add(videoId);
+            }
+        }
+
+        final int count = validIds.size();
+        this.videoIds = validIds.toArray(new String[0]);
+        videoIdBytes = new byte[count][];
+        videoIdHashes = new long[count];
+
+        // At most half full, so most lookups of absent hashes end at the first slot.
+        int tableSize = 2;
+        while (tableSize < count * 2) {
+            tableSize <<= 1;
+        }
+        hashTable = new byte[tableSize];
+        hashTableMask = tableSize - 1;
+
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = this.videoIds[i].getBytes(StandardCharsets.US_ASCII);
+            long hash = 0;
+            for (byte b : bytes) {
+                hash = hash * HASH_MULTIPLIER + b;
+            }
+            videoIdBytes[i] = bytes;
+            videoIdHashes[i] = hash;
+
+            int slot = getSlot(hash);
+            while (hashTable[slot] != 0) {
+                slot = (slot + 1) & hashTableMask;
+            }
+            hashTable[slot] = (byte) (i + 1);
+        }
+    }
+
+    private static boolean isVideoId(@Nullable String text) {
+        if (text == null || text.length() != VIDEO_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < VIDEO_ID_LENGTH; i++) {
+            final char c = text.charAt(i);
+            if (c > 0xFF || !VIDEO_ID_CHARACTERS[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getSlot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & hashTableMask;
+    }
+
+    /**
+     * @return Index of the id with the hash that matches the window, or -1 if none match.
+     */
+    private int findWindow(byte[] text, int windowStartIndex, long hash) {
+        int slot = getSlot(hash);
+        while (true) {
+            final int entry = hashTable[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            final int idIndex = entry - 1;
+            if (videoIdHashes[idIndex] == hash && windowEquals(text, windowStartIndex, videoIdBytes[idIndex])) {
+                return idIndex;
+            }
+            slot = (slot + 1) & hashTableMask;
+        }
+    }
+
+    private static boolean windowEquals(byte[] text, int windowStartIndex, byte[] videoId) {
+        for (int i = 0; i < VIDEO_ID_LENGTH; i++) {
+            if (text[windowStartIndex + i] != videoId[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param startIndex Start index to search, inclusive.
+     * @param endIndex   End index to search, exclusive.
+     * @return The index of the highest priority id found, or -1 if no id is found.
+     */
+    public int findIndex(@NonNull byte[] text, int startIndex, int endIndex) {
+        if (videoIds.length == 0) {
+            return -1;
+        }
+
+        int result = -1;
+        long hash = 0;
+        int windowLength = 0;
+        for (int i = startIndex; i < endIndex; i++) {
+            final int value = text[i] & 0xFF;
+            if (!VIDEO_ID_CHARACTERS[value]) {
+                hash = 0;
+                windowLength = 0;
+                continue;
+            }
+
+            hash = hash * HASH_MULTIPLIER + (byte) value;
+            if (windowLength < VIDEO_ID_LENGTH) {
+                if (++windowLength < VIDEO_ID_LENGTH) {
+                    continue;
+                }
+            } else {
+                hash -= text[i - VIDEO_ID_LENGTH] * HASH_MULTIPLIER_POWER;
+            }
+
+            final int found = findWindow(text, i - VIDEO_ID_LENGTH + 1, hash);
+            if (found >= 0 && (result < 0 || found < result)) {
+                result = found;
+                if (result == 0) {
+                    break; // Highest priority id.
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param maximumSize If adding the id exceeds this size, the first ids are removed.
+     * @return A set of these ids with the id added last, or this set if the id is already present or not a video id.
+     */
+    @NonNull
+    public VideoIdSearch withVideoId(@NonNull String videoId, int maximumSize) {
+        if (!isVideoId(videoId) || contains(videoId)) {
+            return this;
+        }
+        final int keepCount = Math.min(videoIds.length, maximumSize - 1);
+        List<String> ids = new ArrayList<>(keepCount + 1);
+        for (int i = videoIds.length - keepCount; i < videoIds.length; i++) {
+            ids.add(videoIds[i]);
+        }
+        ids.add(videoId);
+        return new VideoIdSearch(ids);
+    }
+
+    public boolean contains(@NonNull String videoId) {
+        for (String id : videoIds) {
+            if (id.equals(videoId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    public String getVideoId(int index) {
+        return videoIds[index];
+    }
+
+    public int size() {
+        return videoIds.length;
+    }
+
+    public boolean isEmpty() {
+        return videoIds.length == 0;
+    }
+}
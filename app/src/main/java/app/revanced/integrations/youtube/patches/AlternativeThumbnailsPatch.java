@@ -575,25 +575,29 @@ public final class AlternativeThumbnailsPatch {
 
         /**
          * Verify if a video alt thumbnail exists.  Does so by making a minimal HEAD http request.
+         * Concurrent verifications of the same image share the same request,
+         * and the lock is not held during the request so other qualities can be verified at the same time.
          */
-        synchronized boolean verifyYouTubeThumbnailExists(@NonNull String videoId, @NonNull ThumbnailQuality quality,
-                                                          @NonNull String imageUrl) {
-            if (highestQualityVerified != null && highestQualityVerified.ordinal() >= quality.ordinal()) {
-                return true; // Previously verified as existing.
-            }
+        boolean verifyYouTubeThumbnailExists(@NonNull String videoId, @NonNull ThumbnailQuality quality,
+                                             @NonNull String imageUrl) {
+            synchronized (this) {
+                if (highestQualityVerified != null && highestQualityVerified.ordinal() >= quality.ordinal()) {
+                    return true; // Previously verified as existing.
+                }
 
-            final boolean fastQuality = Settings.ALT_THUMBNAIL_STILLS_FAST.get();
-            if (lowestQualityNotAvailable != null && lowestQualityNotAvailable.ordinal() <= quality.ordinal()) {
-                if (fastQuality || System.currentTimeMillis() < timeToReVerifyLowestQuality) {
-                    return false; // Previously verified as not existing.
+                final boolean fastQuality = Settings.ALT_THUMBNAIL_STILLS_FAST.get();
+                if (lowestQualityNotAvailable != null && lowestQualityNotAvailable.ordinal() <= quality.ordinal()) {
+                    if (fastQuality || System.currentTimeMillis() < timeToReVerifyLowestQuality) {
+                        return false; // Previously verified as not existing.
+                    }
+                    // Enough time has passed, and should re-verify again.
+                    Logger.printDebug(() -> "Resetting lowest verified quality for: " + videoId);
+                    lowestQualityNotAvailable = null;
                 }
-                // Enough time has passed, and should re-verify again.
-                Logger.printDebug(() -> "Resetting lowest verified quality for: " + videoId);
-                lowestQualityNotAvailable = null;
-            }
 
-            if (fastQuality) {
-                return true; // Unknown if it exists or not.  Use the URL anyways and update afterwards if loading fails.
+                if (fastQuality) {
+                    return true; // Unknown if it exists or not.  Use the URL anyways and update afterwards if loading fails.
+                }
             }
 
             boolean imageFileFound;
@@ -601,7 +605,7 @@ public final class AlternativeThumbnailsPatch {
                 // This hooked code is running on a low priority thread, and it's slightly faster
                 // to run the url connection thru the integrations thread pool which runs at the highest priority.
                 final long start = System.currentTimeMillis();
-                imageFileFound = Utils.submitOnBackgroundThread(() -> {
+                imageFileFound = Utils.submitOnBackgroundThreadCoalesced("HEAD " + imageUrl, () -> {
                     final int connectionTimeoutMillis = 10000; // 10 seconds.
                     HttpURLConnection connection = (HttpURLConnection) new URL(imageUrl).openConnection();
                     connection.setConnectTimeout(connectionTimeoutMillis);
@@ -12,6 +12,7 @@ import androidx.annotation.Nullable;
 import app.revanced.integrations.youtube.patches.components.ReturnYouTubeDislikeFilterPatch;
 import app.revanced.integrations.youtube.patches.spoof.SpoofAppVersionPatch;
 import app.revanced.integrations.youtube.returnyoutubedislike.ReturnYouTubeDislike;
+import app.revanced.integrations.youtube.returnyoutubedislike.ReturnYouTubeDislikePrefetcher;
 import app.revanced.integrations.youtube.returnyoutubedislike.requests.ReturnYouTubeDislikeApi;
 import app.revanced.integrations.youtube.settings.Settings;
 import app.revanced.integrations.youtube.shared.PlayerType;
@@ -593,6 +594,10 @@ public class ReturnYouTubeDislikePatch {
             // and the 'is opening/playing' parameter will be false.
             // This hook will be called again when the Short is actually opened.
             if (videoIdIsShort && (!isShortAndOpeningOrPlaying || !Settings.RYD_SHORTS.get())) {
+                if (!isShortAndOpeningOrPlaying && Settings.RYD_SHORTS.get()) {
+                    // Fetch in the background, in case the Short is opened.
+                    ReturnYouTubeDislikePrefetcher.addVideoId(videoId);
+                }
                 return;
             }
             final boolean waitForFetchToComplete = !IS_SPOOFING_TO_NON_LITHO_SHORTS_PLAYER
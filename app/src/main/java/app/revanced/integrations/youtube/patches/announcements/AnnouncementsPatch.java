@@ -44,9 +44,12 @@ public final class AnnouncementsPatch {
 
                 Logger.printDebug(() -> "Get latest announcement route connection url: " + connection.getURL());
 
+                Requester.Response response;
                 try {
+                    response = Requester.getResponse(GET_LATEST_ANNOUNCEMENT, connection);
+
                     // Do not show the announcement if the request failed.
-                    if (connection.getResponseCode() != 200) {
+                    if (response.getResponseCode() != 200) {
                         if (Settings.ANNOUNCEMENT_LAST_ID.isSetToDefault())
                             return;
 
@@ -62,7 +65,8 @@ public final class AnnouncementsPatch {
                     return;
                 }
 
-                var jsonString = Requester.parseStringAndDisconnect(connection);
+                var jsonString = Requester.parseString(response);
+                connection.disconnect();
 
 
                 // Parse the announcement. Fall-back to raw string if it fails.
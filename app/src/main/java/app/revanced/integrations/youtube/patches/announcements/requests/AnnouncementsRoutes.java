@@ -13,8 +13,10 @@ public class AnnouncementsRoutes {
 
     /**
      * 'language' parameter is IETF format (for USA it would be 'en-us').
+     * If cached, the announcement is always revalidated and an unchanged announcement is not downloaded again.
      */
-    public static final Route GET_LATEST_ANNOUNCEMENT = new Route(GET, "/announcements/youtube/latest?language={language}");
+    public static final Route GET_LATEST_ANNOUNCEMENT = new Route(GET, "/announcements/youtube/latest?language={language}",
+            Route.DEFAULT_TIMEOUT_MILLISECONDS, Route.DEFAULT_TIMEOUT_MILLISECONDS, 0, 0);
 
     private AnnouncementsRoutes() {
     }
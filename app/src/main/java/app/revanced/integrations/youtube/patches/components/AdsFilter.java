@@ -145,20 +145,25 @@ public final class AdsFilter extends Filter {
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
-                       StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
-        if (exceptions.matches(path))
-            return false;
+    boolean canFilter(@Nullable String identifier, CharSequence path,
+                      StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
+        return !exceptions.matches(path);
+    }
 
+    @Override
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
+                       StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (matchedGroup == fullscreenAd) {
-            if (path.contains("|ImageType|")) closeFullscreenAd();
+            if (Utils.indexOf(path, "|ImageType|") >= 0) closeFullscreenAd();
 
             return false; // Do not actually filter the fullscreen ad otherwise it will leave a dimmed screen.
         }
 
         if (matchedGroup == channelProfile) {
-            if (visitStoreButton.check(protobufBufferArray).isFiltered()) {
-                return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+            if (visitStoreButton.checkStringFields(protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
+                return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                        matchedGroup, contentType, contentIndex);
             }
             return false;
         }
@@ -167,7 +172,14 @@ public final class AdsFilter extends Filter {
         if (matchedGroup == shoppingLinks && contentIndex != 0)
             return false;
 
-        return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+        return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                matchedGroup, contentType, contentIndex);
+    }
+
+    @Override
+    boolean isResultCacheable(StringFilterGroup matchedGroup) {
+        // Fullscreen ads are closed and never filtered.
+        return matchedGroup != fullscreenAd;
     }
 
     /**
@@ -215,4 +227,9 @@ public final class AdsFilter extends Filter {
             });
         }, 1000);
     }
+
+    @Override
+    boolean hasSideEffects(StringFilterGroup matchedGroup) {
+        return matchedGroup == fullscreenAd;
+    }
 }
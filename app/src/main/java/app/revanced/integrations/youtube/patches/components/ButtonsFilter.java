@@ -2,6 +2,7 @@ package app.revanced.integrations.youtube.patches.components;
 
 import androidx.annotation.Nullable;
 
+import app.revanced.integrations.shared.Utils;
 import app.revanced.integrations.youtube.settings.Settings;
 
 @SuppressWarnings("unused")
@@ -68,6 +69,8 @@ final class ButtonsFilter extends Filter {
                         "yt_outline_dollar_sign_heart"
                 )
         );
+
+        addGroupLists(bufferButtonsGroupList);
     }
 
     private boolean isEveryFilterGroupEnabled() {
@@ -81,7 +84,8 @@ final class ButtonsFilter extends Filter {
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         // If the current matched group is the action bar group,
         // in case every filter group is enabled, hide the action bar.
@@ -92,12 +96,20 @@ final class ButtonsFilter extends Filter {
         } else if (matchedGroup == bufferFilterPathGroup) {
             // Make sure the current path is the right one
             //  to avoid false positives.
-            if (!path.startsWith(VIDEO_ACTION_BAR_PATH)) return false;
+            if (!Utils.startsWith(path, VIDEO_ACTION_BAR_PATH)) return false;
 
             // In case the group list has no match, return false.
-            if (!bufferButtonsGroupList.check(protobufBufferArray).isFiltered()) return false;
+            if (!bufferButtonsGroupList.check(protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
+                return false;
+            }
         }
 
-        return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+        return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                matchedGroup, contentType, contentIndex);
+    }
+
+    @Override
+    boolean isResultCacheable(StringFilterGroup matchedGroup) {
+        return true;
     }
 }
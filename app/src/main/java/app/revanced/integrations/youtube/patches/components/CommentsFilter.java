@@ -2,6 +2,7 @@ package app.revanced.integrations.youtube.patches.components;
 
 import androidx.annotation.Nullable;
 
+import app.revanced.integrations.shared.Utils;
 import app.revanced.integrations.youtube.settings.Settings;
 
 @SuppressWarnings("unused")
@@ -64,20 +65,28 @@ final class CommentsFilter extends Filter {
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (matchedGroup == commentComposer) {
             // To completely hide the emoji buttons (and leave no empty space), the timestamp button is
             // also hidden because the buffer is exactly the same and there's no way selectively hide.
             if (contentIndex == 0
-                    && path.endsWith(TIMESTAMP_OR_EMOJI_BUTTONS_ENDS_WITH_PATH)
-                    && emojiPickerBufferGroup.check(protobufBufferArray).isFiltered()) {
-                return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+                    && Utils.endsWith(path, TIMESTAMP_OR_EMOJI_BUTTONS_ENDS_WITH_PATH)
+                    && emojiPickerBufferGroup.check(protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
+                return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                        matchedGroup, contentType, contentIndex);
             }
 
             return false;
         }
 
-        return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+        return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                matchedGroup, contentType, contentIndex);
+    }
+
+    @Override
+    boolean isResultCacheable(StringFilterGroup matchedGroup) {
+        return true;
     }
 }
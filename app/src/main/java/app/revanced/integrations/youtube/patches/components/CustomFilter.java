@@ -5,21 +5,35 @@ import static app.revanced.integrations.shared.StringRef.str;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import app.revanced.integrations.shared.Logger;
 import app.revanced.integrations.shared.Utils;
 import app.revanced.integrations.youtube.ByteTrieSearch;
+import app.revanced.integrations.youtube.DfaSearch;
 import app.revanced.integrations.youtube.settings.Settings;
 
 /**
  * Allows custom filtering using a path and optionally a proto buffer string.
+ *
+ * Syntax of each line is: [^]path[$buffer]
+ * The path and buffer can each be literal text, a glob using '*' and '?' that starts with 'glob:'
+ * (such as glob:video_*.eml), or a regular expression enclosed in slashes (such as /video_(card|lockup)\.eml/).
+ * Text without a glob prefix or slashes is always literal, including any '*' and '?'.
+ * See {@link DfaSearch} for the supported glob and regular expression syntax.
+ *
+ * Each path pattern uses a separate DFA, instead of a single DFA for all patterns.
+ * A DFA only reports if any pattern matched and not which pattern,
+ * but each filter group must know if its own path matched.
+ * The path prefix tree finds the literal text every path pattern contains,
+ * and then only the DFA of the group that was found is run.
+ * The buffer patterns of a group are combined into a single DFA.
  */
 @SuppressWarnings("unused")
 final class CustomFilter extends Filter {
@@ -40,11 +54,56 @@ final class CustomFilter extends Filter {
          */
         public static final String SYNTAX_BUFFER_SYMBOL = "$";
 
+        /**
+         * Character that encloses a regular expression.
+         */
+        public static final char SYNTAX_REGEX_DELIMITER = '/';
+
+        /**
+         * Prefix of a glob pattern.  Text without this prefix is literal,
+         * so existing filters containing '*' or '?' are not changed.
+         */
+        public static final String SYNTAX_GLOB_PREFIX = "glob:";
+
+        /**
+         * Minimum length of the literal text every glob or regular expression path must contain.
+         * The literal text is found using the path prefix tree, and then the path is matched using the DFA.
+         * Shorter literals would run the DFA for nearly every litho component.
+         */
+        private static final int MINIMUM_PATH_LITERAL_LENGTH = 3;
+
+        private static boolean isRegex(@NonNull String text) {
+            return text.length() > 2 && text.charAt(0) == SYNTAX_REGEX_DELIMITER
+                    && text.charAt(text.length() - 1) == SYNTAX_REGEX_DELIMITER;
+        }
+
+        private static boolean isGlob(@NonNull String text) {
+            return text.length() > SYNTAX_GLOB_PREFIX.length() && text.startsWith(SYNTAX_GLOB_PREFIX);
+        }
+
+        /**
+         * @return Index of the buffer symbol that ends the path, or -1 if there is no buffer.
+         */
+        private static int findPathEndIndex(@NonNull String expression, int pathStartIndex) {
+            if (expression.length() > pathStartIndex
+                    && expression.charAt(pathStartIndex) == SYNTAX_REGEX_DELIMITER) {
+                // Regular expressions can contain the buffer symbol.
+                for (int i = pathStartIndex + 1, length = expression.length(); i < length; i++) {
+                    final char c = expression.charAt(i);
+                    if (c == '\\') {
+                        i++;
+                    } else if (c == SYNTAX_REGEX_DELIMITER) {
+                        return expression.indexOf(SYNTAX_BUFFER_SYMBOL, i + 1);
+                    }
+                }
+            }
+            return expression.indexOf(SYNTAX_BUFFER_SYMBOL, pathStartIndex);
+        }
+
         /**
          * @return the parsed objects
          */
         @NonNull
-        @SuppressWarnings("ConstantConditions")
         static Collection<CustomFilterGroup> parseCustomFilterGroups() {
             String rawCustomFilterText = Settings.CUSTOM_FILTER_STRINGS.get();
             if (rawCustomFilterText.isBlank()) {
@@ -53,65 +112,230 @@ final class CustomFilter extends Filter {
 
             // Map key is the path including optional special characters (^ and/or $)
             Map<String, CustomFilterGroup> result = new HashMap<>();
-            Pattern pattern = Pattern.compile(
-                    "(" // map key group
-                            + "(\\Q" + SYNTAX_STARTS_WITH + "\\E?)" // optional starts with
-                            + "([^\\Q" + SYNTAX_BUFFER_SYMBOL + "\\E]*)" // path
-                            + "(\\Q" + SYNTAX_BUFFER_SYMBOL + "\\E?)" // optional buffer symbol
-                            + ")" // end map key group
-                            + "(.*)"); // optional buffer string
 
             for (String expression : rawCustomFilterText.split("\n")) {
                 if (expression.isBlank()) continue;
 
-                Matcher matcher = pattern.matcher(expression);
-                if (!matcher.find()) {
+                final boolean pathStartsWith = expression.startsWith(SYNTAX_STARTS_WITH);
+                final int pathStartIndex = pathStartsWith ? SYNTAX_STARTS_WITH.length() : 0;
+                final int pathEndIndex = findPathEndIndex(expression, pathStartIndex);
+                final boolean hasBufferSymbol = pathEndIndex >= 0;
+
+                final String mapKey = hasBufferSymbol
+                        ? expression.substring(0, pathEndIndex + SYNTAX_BUFFER_SYMBOL.length())
+                        : expression;
+                final String path = hasBufferSymbol
+                        ? expression.substring(pathStartIndex, pathEndIndex)
+                        : expression.substring(pathStartIndex);
+                final String bufferString = hasBufferSymbol
+                        ? expression.substring(pathEndIndex + SYNTAX_BUFFER_SYMBOL.length())
+                        : "";
+
+                if (path.isBlank() || (hasBufferSymbol && bufferString.isBlank())) {
                     showInvalidSyntaxToast(expression);
                     continue;
                 }
 
-                final String mapKey = matcher.group(1);
-                final boolean pathStartsWith = !matcher.group(2).isEmpty();
-                final String path = matcher.group(3);
-                final boolean hasBufferSymbol = !matcher.group(4).isEmpty();
-                final String bufferString = matcher.group(5);
-
-                if (path.isBlank() || (hasBufferSymbol && bufferString.isBlank())) {
+                try {
+                    // Use one group object for all expressions with the same path.
+                    // This ensures the buffer is searched exactly once
+                    // when multiple paths are used with different buffer strings.
+                    CustomFilterGroup group = result.get(mapKey);
+                    if (group == null) {
+                        group = createGroup(pathStartsWith, path);
+                        result.put(mapKey, group);
+                    }
+                    if (hasBufferSymbol) {
+                        group.addBufferString(bufferString);
+                    }
+                } catch (IllegalArgumentException ex) {
+                    Logger.printDebug(() -> "Invalid custom filter: " + expression, ex);
                     showInvalidSyntaxToast(expression);
+                }
+            }
+
+            List<CustomFilterGroup> groups = new ArrayList<>(result.size());
+            for (CustomFilterGroup group : result.values()) {
+                try {
+                    group.compilePath();
+                } catch (IllegalArgumentException ex) {
+                    // Path is too complex.
+                    Logger.printDebug(() -> "Could not compile custom filter path: " + group, ex);
+                    showInvalidSyntaxToast(group.getExpression());
                     continue;
                 }
 
-                // Use one group object for all expressions with the same path.
-                // This ensures the buffer is searched exactly once
-                // when multiple paths are used with different buffer strings.
-                CustomFilterGroup group = result.get(mapKey);
-                if (group == null) {
-                    group = new CustomFilterGroup(pathStartsWith, path);
-                    result.put(mapKey, group);
+                try {
+                    group.compileBuffer();
+                } catch (IllegalArgumentException ex) {
+                    // Buffer patterns are too complex.
+                    // The literal buffer strings of the group are still used.
+                    Logger.printDebug(() -> "Could not compile custom filter buffer patterns: " + group, ex);
+                    showInvalidSyntaxToast(group.getExpression());
+                    group.bufferPatternSearch = null;
+                    if (group.bufferSearch == null) {
+                        // Without any buffer strings the group would filter every matching path.
+                        continue;
+                    }
+                }
+                groups.add(group);
+            }
+
+            return groups;
+        }
+
+        /**
+         * @throws IllegalArgumentException If the path is not valid.
+         */
+        private static CustomFilterGroup createGroup(boolean startsWith, @NonNull String path) {
+            if (!isRegex(path) && !isGlob(path)) {
+                return new CustomFilterGroup(startsWith, path, path, null);
+            }
+
+            for (int i = 0, length = path.length(); i < length; i++) {
+                if (path.charAt(i) > 0x7F) {
+                    throw new IllegalArgumentException("Glob and regular expression paths must be ASCII");
                 }
-                if (hasBufferSymbol) {
-                    group.addBufferString(bufferString);
+            }
+
+            DfaSearch pathSearch = new DfaSearch();
+            final String requiredLiteral;
+            if (isRegex(path)) {
+                String regex = path.substring(1, path.length() - 1);
+                if (startsWith && !regex.startsWith("^")) {
+                    regex = "^" + regex;
                 }
+                requiredLiteral = pathSearch.addRegex(regex);
+            } else {
+                requiredLiteral = pathSearch.addGlob(path.substring(SYNTAX_GLOB_PREFIX.length()), startsWith);
+            }
+            if (requiredLiteral.length() < MINIMUM_PATH_LITERAL_LENGTH) {
+                throw new IllegalArgumentException("Path must contain at least " + MINIMUM_PATH_LITERAL_LENGTH
+                        + " literal characters: " + path);
             }
 
-            return result.values();
+            return new CustomFilterGroup(startsWith, path, requiredLiteral, pathSearch);
         }
 
         final boolean startsWith;
+        /**
+         * Path as entered by the user.
+         */
+        final String pathExpression;
+        /**
+         * Path glob or regular expression, or null if the path is literal text.
+         */
+        @Nullable
+        final DfaSearch pathSearch;
+        /**
+         * Literal buffer strings.
+         */
+        @Nullable
         ByteTrieSearch bufferSearch;
+        /**
+         * Buffer globs and regular expressions, combined into a single automaton.
+         */
+        @Nullable
+        DfaSearch bufferPatternSearch;
+        /**
+         * Buffer globs and regular expressions, as entered by the user.
+         */
+        final List<String> bufferPatterns = new ArrayList<>();
 
-        CustomFilterGroup(boolean startsWith, @NonNull String path) {
-            super(Settings.CUSTOM_FILTER, path);
+        /**
+         * @param pathFilter Literal text searched for in the path prefix tree.
+         */
+        CustomFilterGroup(boolean startsWith, @NonNull String pathExpression,
+                          @NonNull String pathFilter, @Nullable DfaSearch pathSearch) {
+            super(Settings.CUSTOM_FILTER, pathFilter);
             this.startsWith = startsWith;
+            this.pathExpression = pathExpression;
+            this.pathSearch = pathSearch;
         }
 
+        /**
+         * @throws IllegalArgumentException If the buffer string is not a valid pattern.
+         */
         void addBufferString(@NonNull String bufferString) {
+            if (isRegex(bufferString) || isGlob(bufferString)) {
+                DfaSearch search = (bufferPatternSearch == null) ? new DfaSearch() : bufferPatternSearch;
+                if (isRegex(bufferString)) {
+                    search.addRegex(bufferString.substring(1, bufferString.length() - 1));
+                } else {
+                    search.addGlob(bufferString.substring(SYNTAX_GLOB_PREFIX.length()), false);
+                }
+                // Set only after the pattern is added, so an invalid first pattern leaves no empty search.
+                bufferPatternSearch = search;
+                bufferPatterns.add(bufferString);
+                return;
+            }
+
             if (bufferSearch == null) {
                 bufferSearch = new ByteTrieSearch();
             }
             bufferSearch.addPattern(bufferString.getBytes());
         }
 
+        /**
+         * @throws IllegalArgumentException If the path pattern exceeds the maximum number of DFA states.
+         */
+        void compilePath() {
+            if (pathSearch != null) {
+                pathSearch.compile();
+            }
+        }
+
+        /**
+         * Freezes the literal buffer strings, and then compiles the buffer patterns.
+         *
+         * @throws IllegalArgumentException If the buffer patterns exceed the maximum number of DFA states.
+         *                                  The literal buffer strings can still be searched.
+         */
+        void compileBuffer() {
+            if (bufferSearch != null) {
+                bufferSearch.freeze();
+            }
+            if (bufferPatternSearch != null) {
+                bufferPatternSearch.compile();
+            }
+        }
+
+        boolean pathMatches(CharSequence path, int contentIndex) {
+            if (pathSearch != null) {
+                return pathSearch.matches(path);
+            }
+            return !startsWith || contentIndex == 0;
+        }
+
+        boolean bufferMatches(byte[] buffer, int bufferStartIndex, int bufferEndIndex) {
+            if (bufferSearch == null && bufferPatternSearch == null) {
+                return true; // No buffer filter.
+            }
+            LithoFilterMetrics.recordBytesScanned(bufferStartIndex, bufferEndIndex);
+            return (bufferSearch != null && bufferSearch.matches(buffer, bufferStartIndex, bufferEndIndex))
+                    || (bufferPatternSearch != null && bufferPatternSearch.matches(buffer, bufferStartIndex, bufferEndIndex));
+        }
+
+        /**
+         * @return The path and buffer strings, in the custom filter syntax.
+         */
+        String getExpression() {
+            StringBuilder builder = new StringBuilder();
+            if (startsWith) builder.append(SYNTAX_STARTS_WITH);
+            builder.append(pathExpression);
+            if (bufferSearch != null) {
+                for (byte[] bufferString : bufferSearch.getPatterns()) {
+                    builder.append(SYNTAX_BUFFER_SYMBOL).append(new String(bufferString));
+                }
+            }
+            if (bufferPatternSearch != null) {
+                for (String pattern : bufferPatterns) {
+                    builder.append(SYNTAX_BUFFER_SYMBOL).append(pattern);
+                }
+            }
+            return builder.toString();
+        }
+
         @NonNull
         @Override
         public String toString() {
@@ -119,10 +343,14 @@ final class CustomFilter extends Filter {
             builder.append("CustomFilterGroup{");
             builder.append("path=");
             if (startsWith) builder.append(SYNTAX_STARTS_WITH);
-            builder.append(filters[0]);
+            builder.append(pathExpression);
+            if (pathSearch != null && pathSearch.isCompiled()) {
+                builder.append(" (").append(pathSearch.getNumberOfStates()).append(" states, ")
+                        .append(pathSearch.getEstimatedMemorySize()).append(" KB)");
+            }
 
+            String delimitingCharacter = "❙";
             if (bufferSearch != null) {
-                String delimitingCharacter = "❙";
                 builder.append(", bufferStrings=");
                 builder.append(delimitingCharacter);
                 for (byte[] bufferString : bufferSearch.getPatterns()) {
@@ -130,6 +358,18 @@ final class CustomFilter extends Filter {
                     builder.append(delimitingCharacter);
                 }
             }
+            if (bufferPatternSearch != null) {
+                builder.append(", bufferPatterns=");
+                builder.append(delimitingCharacter);
+                for (String pattern : bufferPatterns) {
+                    builder.append(pattern);
+                    builder.append(delimitingCharacter);
+                }
+                if (bufferPatternSearch.isCompiled()) {
+                    builder.append(" (").append(bufferPatternSearch.getNumberOfStates()).append(" states, ")
+                            .append(bufferPatternSearch.getEstimatedMemorySize()).append(" KB)");
+                }
+            }
             builder.append("}");
             return builder.toString();
         }
@@ -146,16 +386,23 @@ final class CustomFilter extends Filter {
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         // All callbacks are custom filter groups.
         CustomFilterGroup custom = (CustomFilterGroup) matchedGroup;
-        if (custom.startsWith && contentIndex != 0) {
+        if (!custom.pathMatches(path, contentIndex)) {
             return false;
         }
-        if (custom.bufferSearch != null && !custom.bufferSearch.matches(protobufBufferArray)) {
+        if (!custom.bufferMatches(protobufBufferArray, bufferStartIndex, bufferEndIndex)) {
             return false;
         }
-        return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+        return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                matchedGroup, contentType, contentIndex);
+    }
+
+    @Override
+    boolean isResultCacheable(StringFilterGroup matchedGroup) {
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -61,6 +61,8 @@ final class DescriptionComponentsFilter extends Filter {
                 )
         );
 
+        addGroupLists(macroMarkersCarouselGroupList);
+
         addPathCallbacks(
                 attributesSection,
                 infoCardsSection,
@@ -71,18 +73,31 @@ final class DescriptionComponentsFilter extends Filter {
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
-                       StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
-        if (exceptions.matches(path)) return false;
+    boolean canFilter(@Nullable String identifier, CharSequence path,
+                      StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
+        return !exceptions.matches(path);
+    }
 
+    @Override
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
+                       StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (matchedGroup == macroMarkersCarousel) {
-            if (contentIndex == 0 && macroMarkersCarouselGroupList.check(protobufBufferArray).isFiltered()) {
-                return super.isFiltered(path, identifier, protobufBufferArray, matchedGroup, contentType, contentIndex);
+            if (contentIndex == 0 && macroMarkersCarouselGroupList.check(
+                    protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
+                return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                        matchedGroup, contentType, contentIndex);
             }
 
             return false;
         }
 
-        return super.isFiltered(path, identifier, protobufBufferArray, matchedGroup, contentType, contentIndex);
+        return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                matchedGroup, contentType, contentIndex);
+    }
+
+    @Override
+    boolean isResultCacheable(StringFilterGroup matchedGroup) {
+        return true;
     }
 }
@@ -17,9 +17,10 @@ import app.revanced.integrations.shared.settings.BaseSettings;
  *
  * To filter {@link FilterContentType#PROTOBUFFER}, first add a callback to
  * either an identifier or a path.
- * Then inside {@link #isFiltered(String, String, byte[], StringFilterGroup, FilterContentType, int)}
+ * Then inside {@link #isFiltered(String, CharSequence, byte[], int, int, StringFilterGroup, FilterContentType, int)}
  * search for the buffer content using either a {@link ByteArrayFilterGroup} (if searching for 1 pattern)
  * or a {@link ByteArrayFilterGroupList} (if searching for more than 1 pattern).
+ * Group lists must be added using {@link #addGroupLists(FilterGroupList...)}.
  *
  * All callbacks must be registered before the constructor completes.
  */
@@ -43,7 +44,7 @@ abstract class Filter {
     protected final List<StringFilterGroup> pathCallbacks = new ArrayList<>();
 
     /**
-     * Adds callbacks to {@link #isFiltered(String, String, byte[], StringFilterGroup, FilterContentType, int)}
+     * Adds callbacks to {@link #isFiltered(String, CharSequence, byte[], int, int, StringFilterGroup, FilterContentType, int)}
      * if any of the groups are found.
      */
     protected final void addIdentifierCallbacks(StringFilterGroup... groups) {
@@ -51,13 +52,45 @@ abstract class Filter {
     }
 
     /**
-     * Adds callbacks to {@link #isFiltered(String, String, byte[], StringFilterGroup, FilterContentType, int)}
+     * Adds callbacks to {@link #isFiltered(String, CharSequence, byte[], int, int, StringFilterGroup, FilterContentType, int)}
      * if any of the groups are found.
      */
     protected final void addPathCallbacks(StringFilterGroup... groups) {
         pathCallbacks.addAll(Arrays.asList(groups));
     }
 
+    /**
+     * Group lists searched inside isFiltered.  Do not add to this instance,
+     * and instead use {@link #addGroupLists(FilterGroupList...)}.
+     */
+    protected final List<FilterGroupList<?, ?>> groupLists = new ArrayList<>();
+
+    /**
+     * Adds group lists that are searched by
+     * {@link #isFiltered(String, CharSequence, byte[], int, int, StringFilterGroup, FilterContentType, int)},
+     * so the list searches are rebuilt when the settings of the groups change.
+     */
+    protected final void addGroupLists(FilterGroupList<?, ?>... lists) {
+        groupLists.addAll(Arrays.asList(lists));
+    }
+
+    /**
+     * Cheap check called after an enabled filter has been matched, and before
+     * {@link #isFiltered(String, CharSequence, byte[], int, int, StringFilterGroup, FilterContentType, int)}.
+     * If this returns false then isFiltered is not called, and the buffer is not searched.
+     * Used to reject matches using the identifier, path or settings, such as paths that are never filtered.
+     * <p>
+     * Filters are called in any order, and a filter is not called if another filter already filtered
+     * the component.  A match that isFiltered must see (such as for a side effect) must not be rejected.
+     * Default implementation does not reject any match.
+     *
+     * @return False if the matched component certainly should not be filtered by this filter.
+     */
+    boolean canFilter(@Nullable String identifier, CharSequence path,
+                      StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
+        return true;
+    }
+
     /**
      * Called after an enabled filter has been matched.
      * Default implementation is to always filter the matched component and log the action.
@@ -69,12 +102,20 @@ abstract class Filter {
      * <p>
      * Method is called off the main thread.
      *
+     * @param path                Litho path builder, passed without creating a String.
+     *                            Must not be modified, and must not be retained after this method returns.
+     * @param protobufBufferArray Array containing the proto buffer. Only the range of
+     *                            bufferStartIndex (inclusive) to bufferEndIndex (exclusive)
+     *                            is the buffer content, and the array can contain other unrelated data.
+     * @param bufferStartIndex    Start index of the buffer content, inclusive.
+     * @param bufferEndIndex      End index of the buffer content, exclusive.
      * @param matchedGroup The actual filter that matched.
      * @param contentType  The type of content matched.
      * @param contentIndex Matched index of the identifier or path.
      * @return True if the litho component should be filtered out.
      */
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (BaseSettings.DEBUG.get()) {
             String filterSimpleName = getClass().getSimpleName();
@@ -86,5 +127,29 @@ abstract class Filter {
         }
         return true;
     }
+
+    /**
+     * If {@link #isFiltered(String, CharSequence, byte[], int, int, StringFilterGroup, FilterContentType, int)}
+     * has side effects for a matched group, such as updating app state.
+     * These callbacks are called before all other callbacks and are never reordered by cost,
+     * so the call is not skipped if another filter filters the component.
+     * Default implementation has no side effects.
+     */
+    boolean hasSideEffects(StringFilterGroup matchedGroup) {
+        return false;
+    }
+
+    /**
+     * If the result of {@link #isFiltered(String, CharSequence, byte[], int, int, StringFilterGroup, FilterContentType, int)}
+     * for a matched group depends only on the identifier, path, buffer and settings.
+     * Cacheable results can be reused for identical components, and the filter is then not called again.
+     * <p>
+     * Filters that use app state (player type, navigation bar, the current video),
+     * or filters with side effects, must not return true.
+     * Default implementation is not cacheable.
+     */
+    boolean isResultCacheable(StringFilterGroup matchedGroup) {
+        return false;
+    }
 }
 
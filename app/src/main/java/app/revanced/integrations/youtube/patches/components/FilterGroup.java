@@ -3,10 +3,17 @@ package app.revanced.integrations.youtube.patches.components;
 import androidx.annotation.NonNull;
 
 import app.revanced.integrations.shared.Logger;
+import app.revanced.integrations.shared.Utils;
 import app.revanced.integrations.shared.settings.BooleanSetting;
+import app.revanced.integrations.youtube.ByteKmpSearch;
 import app.revanced.integrations.youtube.ByteTrieSearch;
 
 abstract class FilterGroup<T> {
+    /**
+     * Result of a check.  To prevent memory allocations while filtering,
+     * each group reuses the same result instance for all checks done by the same thread.
+     * The values of a result are only valid until the next check of the same group by the same thread.
+     */
     final static class FilterGroupResult {
         private BooleanSetting setting;
         private int matchedIndex;
@@ -53,11 +60,28 @@ abstract class FilterGroup<T> {
         public int getMatchedLength() {
             return matchedLength;
         }
+
+        /**
+         * @return A thread local that gives each thread a reusable result instance.
+         */
+        static ThreadLocal<FilterGroupResult> createThreadLocal() {
+            return new ThreadLocal<>() {
+                @Override
+                protected FilterGroupResult initialValue() {
+                    return new FilterGroupResult();
+                }
+            };
+        }
     }
 
     protected final BooleanSetting setting;
     protected final T[] filters;
 
+    /**
+     * Reusable check results of each calling thread.
+     */
+    private final ThreadLocal<FilterGroupResult> resultThreadLocal = FilterGroupResult.createThreadLocal();
+
     /**
      * Initialize a new filter group.
      *
@@ -78,12 +102,12 @@ abstract class FilterGroup<T> {
     }
 
     /**
-     * @return If {@link FilterGroupList} should include this group when searching.
-     * By default, all filters are included except non enabled settings that require reboot.
+     * @return If {@link FilterGroupList} and {@link LithoFilterPatch} should include this group when searching.
+     * Searches are rebuilt when settings change, so only enabled groups are included.
      */
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public boolean includeInSearch() {
-        return isEnabled() || !setting.rebootApp;
+        return isEnabled();
     }
 
     @NonNull
@@ -92,6 +116,25 @@ abstract class FilterGroup<T> {
         return getClass().getSimpleName() + ": " + (setting == null ? "(null setting)" : setting);
     }
 
+    /**
+     * @return The reusable result instance of the calling thread, set to the parameter values.
+     */
+    protected final FilterGroupResult getResult(int matchedIndex, int matchedLength) {
+        FilterGroupResult result = resultThreadLocal.get();
+        result.setValues(setting, matchedIndex, matchedLength);
+        if (matchedIndex >= 0) {
+            LithoFilterTrace.Trace trace = LithoFilterTrace.current();
+            if (trace != null) {
+                trace.groupMatched(this, matchedIndex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The result of the check.  The result is reused by later checks of
+     *         this group by the same thread, and the result should not be retained.
+     */
     public abstract FilterGroupResult check(final T stack);
 }
 
@@ -103,12 +146,19 @@ class StringFilterGroup extends FilterGroup<String> {
 
     @Override
     public FilterGroupResult check(final String string) {
+        return check((CharSequence) string);
+    }
+
+    /**
+     * Same as {@link #check(String)}, but searches any CharSequence such as the litho path builder.
+     */
+    public FilterGroupResult check(final CharSequence string) {
         int matchedIndex = -1;
         int matchedLength = 0;
         if (isEnabled()) {
             for (String pattern : filters) {
-                if (!string.isEmpty()) {
-                    final int indexOf = string.indexOf(pattern);
+                if (string.length() != 0) {
+                    final int indexOf = Utils.indexOf(string, pattern);
                     if (indexOf >= 0) {
                         matchedIndex = indexOf;
                         matchedLength = pattern.length();
@@ -117,56 +167,19 @@ class StringFilterGroup extends FilterGroup<String> {
                 }
             }
         }
-        return new FilterGroupResult(setting, matchedIndex, matchedLength);
+        return getResult(matchedIndex, matchedLength);
     }
 }
 
 /**
  * If you have more than 1 filter patterns, then all instances of
- * this class should filtered using {@link ByteArrayFilterGroupList#check(byte[])},
+ * this class should filtered using {@link ByteArrayFilterGroupList#check(byte[], int, int)},
  * which uses a prefix tree to give better performance.
  */
 class ByteArrayFilterGroup extends FilterGroup<byte[]> {
 
     private volatile int[][] failurePatterns;
 
-    // Modified implementation from https://stackoverflow.com/a/1507813
-    private static int indexOf(final byte[] data, final byte[] pattern, final int[] failure) {
-        // Finds the first occurrence of the pattern in the byte array using
-        // KMP matching algorithm.
-        int patternLength = pattern.length;
-        for (int i = 0, j = 0, dataLength = data.length; i < dataLength; i++) {
-            while (j > 0 && pattern[j] != data[i]) {
-                j = failure[j - 1];
-            }
-            if (pattern[j] == data[i]) {
-                j++;
-            }
-            if (j == patternLength) {
-                return i - patternLength + 1;
-            }
-        }
-        return -1;
-    }
-
-    private static int[] createFailurePattern(byte[] pattern) {
-        // Computes the failure function using a boot-strapping process,
-        // where the pattern is matched against itself.
-        final int patternLength = pattern.length;
-        final int[] failure = new int[patternLength];
-
-        for (int i = 1, j = 0; i < patternLength; i++) {
-            while (j > 0 && pattern[j] != pattern[i]) {
-                j = failure[j - 1];
-            }
-            if (pattern[j] == pattern[i]) {
-                j++;
-            }
-            failure[i] = j;
-        }
-        return failure;
-    }
-
     public ByteArrayFilterGroup(BooleanSetting setting, byte[]... filters) {
         super(setting, filters);
     }
@@ -184,13 +197,23 @@ class ByteArrayFilterGroup extends FilterGroup<byte[]> {
         int[][] failurePatterns = new int[filters.length][];
         int i = 0;
         for (byte[] pattern : filters) {
-            failurePatterns[i++] = createFailurePattern(pattern);
+            failurePatterns[i++] = ByteKmpSearch.createFailurePattern(pattern);
         }
         this.failurePatterns = failurePatterns; // Must set after initialization finishes.
     }
 
     @Override
     public FilterGroupResult check(final byte[] bytes) {
+        return check(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Searches only a range of the array.
+     *
+     * @param startIndex Start index to search, inclusive.
+     * @param endIndex   End index to search, exclusive.
+     */
+    public FilterGroupResult check(final byte[] bytes, final int startIndex, final int endIndex) {
         int matchedLength = 0;
         int matchedIndex = -1;
         if (isEnabled()) {
@@ -199,16 +222,38 @@ class ByteArrayFilterGroup extends FilterGroup<byte[]> {
                 buildFailurePatterns(); // Lazy load.
                 failures = failurePatterns;
             }
+            LithoFilterMetrics.recordBytesScanned(startIndex, endIndex);
             for (int i = 0, length = filters.length; i < length; i++) {
                 byte[] filter = filters[i];
-                matchedIndex = indexOf(bytes, filter, failures[i]);
+                matchedIndex = ByteKmpSearch.indexOf(bytes, startIndex, endIndex, filter, failures[i]);
                 if (matchedIndex >= 0) {
                     matchedLength = filter.length;
                     break;
                 }
             }
         }
-        return new FilterGroupResult(setting, matchedIndex, matchedLength);
+        return getResult(matchedIndex, matchedLength);
+    }
+
+    /**
+     * Searches only the string fields of a proto buffer.
+     * If the buffer is not a valid proto message, then the entire buffer is searched.
+     *
+     * @see ProtoBufferIndex
+     */
+    public FilterGroupResult checkStringFields(final byte[] buffer, final int bufferStartIndex, final int bufferEndIndex) {
+        ProtoBufferIndex index = ProtoBufferIndex.getIndex(buffer, bufferStartIndex, bufferEndIndex);
+        if (!index.isValid()) {
+            return check(buffer, bufferStartIndex, bufferEndIndex);
+        }
+
+        for (int i = 0, count = index.getStringCount(); i < count; i++) {
+            FilterGroupResult result = check(buffer, index.getStringStartIndex(i), index.getStringEndIndex(i));
+            if (result.isFiltered()) {
+                return result;
+            }
+        }
+        return getResult(-1, 0);
     }
 }
 
@@ -3,39 +3,82 @@ package app.revanced.integrations.youtube.patches.components;
 import android.os.Build;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
 import java.util.*;
 import java.util.function.Consumer;
 
 import app.revanced.integrations.youtube.ByteTrieSearch;
+import app.revanced.integrations.youtube.ParallelByteSearch;
 import app.revanced.integrations.youtube.StringTrieSearch;
 import app.revanced.integrations.youtube.TrieSearch;
 
 abstract class FilterGroupList<V, T extends FilterGroup<V>> implements Iterable<T> {
 
     private final List<T> filterGroups = new ArrayList<>();
-    private final TrieSearch<V> search = createSearchGraph();
 
+    /**
+     * Search of only the enabled groups.
+     * Built on the first check, and replaced by {@link #rebuildSearch()} if the group settings change.
+     */
+    @Nullable
+    private volatile TrieSearch<? super V> search;
+
+    /**
+     * Reusable check results of each calling thread.
+     */
+    private final ThreadLocal<FilterGroup.FilterGroupResult> resultThreadLocal
+            = FilterGroup.FilterGroupResult.createThreadLocal();
+
+    /**
+     * Groups must be added before the first check.
+     */
     @SafeVarargs
     protected final void addAll(final T... groups) {
+        if (search != null) {
+            throw new IllegalStateException("Cannot add groups after the first check");
+        }
         filterGroups.addAll(Arrays.asList(groups));
+    }
 
-        for (T group : groups) {
+    /**
+     * @return A frozen search of the groups that are currently enabled.
+     */
+    private TrieSearch<? super V> buildSearch() {
+        TrieSearch<? super V> newSearch = createSearchGraph();
+        for (T group : filterGroups) {
             if (!group.includeInSearch()) {
                 continue;
             }
             for (V pattern : group.filters) {
-                search.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
-                    if (group.isEnabled()) {
-                        FilterGroup.FilterGroupResult result = (FilterGroup.FilterGroupResult) callbackParameter;
-                        result.setValues(group.setting, matchedStartIndex, matchedLength);
-                        return true;
+                newSearch.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                    if (!group.isEnabled()) {
+                        // Group was disabled, and the search is not yet rebuilt.
+                        return false;
                     }
-                    return false;
+                    FilterGroup.FilterGroupResult result = (FilterGroup.FilterGroupResult) callbackParameter;
+                    result.setValues(group.setting, matchedStartIndex, matchedLength);
+                    LithoFilterTrace.Trace trace = LithoFilterTrace.current();
+                    if (trace != null) {
+                        trace.groupMatched(group, matchedStartIndex);
+                    }
+                    return true;
                 });
             }
         }
+        newSearch.freeze();
+        return newSearch;
+    }
+
+    /**
+     * Rebuilds the search using the current group settings.
+     * Threads that are currently searching continue to use the previous search.
+     */
+    synchronized void rebuildSearch() {
+        if (search != null) {
+            search = buildSearch();
+        } // Otherwise the search is built on the first check.
     }
 
     @NonNull
@@ -57,14 +100,53 @@ abstract class FilterGroupList<V, T extends FilterGroup<V>> implements Iterable<
         return filterGroups.spliterator();
     }
 
+    TrieSearch<? super V> getSearch() {
+        TrieSearch<? super V> currentSearch = search;
+        if (currentSearch == null) {
+            synchronized (this) {
+                currentSearch = search;
+                if (currentSearch == null) {
+                    // Lazy build, since groups are added in the constructor of the owning filter.
+                    currentSearch = buildSearch();
+                    search = currentSearch;
+                }
+            }
+        }
+        return currentSearch;
+    }
+
+    /**
+     * @return The reusable result instance of the calling thread, reset to a non matching result.
+     */
+    FilterGroup.FilterGroupResult getClearedResult() {
+        FilterGroup.FilterGroupResult result = resultThreadLocal.get();
+        result.setValues(null, -1, 0);
+        return result;
+    }
+
+    /**
+     * @return The result of the check.  The result is reused by later checks of
+     *         this list by the same thread, and the result should not be retained.
+     */
     protected FilterGroup.FilterGroupResult check(V stack) {
-        FilterGroup.FilterGroupResult result = new FilterGroup.FilterGroupResult();
-        search.matches(stack, result);
+        FilterGroup.FilterGroupResult result = getClearedResult();
+        getSearch().matches(stack, result);
         return result;
+    }
 
+    /**
+     * Searches only a range of the stack.
+     *
+     * @param startIndex Start index to search, inclusive.
+     * @param endIndex   End index to search, exclusive.
+     */
+    protected FilterGroup.FilterGroupResult check(V stack, int startIndex, int endIndex) {
+        FilterGroup.FilterGroupResult result = getClearedResult();
+        getSearch().matches(stack, startIndex, endIndex, result);
+        return result;
     }
 
-    protected abstract TrieSearch<V> createSearchGraph();
+    protected abstract TrieSearch<? super V> createSearchGraph();
 }
 
 final class StringFilterGroupList extends FilterGroupList<String, StringFilterGroup> {
@@ -75,11 +157,67 @@ final class StringFilterGroupList extends FilterGroupList<String, StringFilterGr
 
 /**
  * If searching for a single byte pattern, then it is slightly better to use
- * {@link ByteArrayFilterGroup#check(byte[])} as it uses KMP which is faster
+ * {@link ByteArrayFilterGroup#check(byte[], int, int)} as it uses KMP which is faster
  * than a prefix tree to search for only 1 pattern.
  */
 final class ByteArrayFilterGroupList extends FilterGroupList<byte[], ByteArrayFilterGroup> {
     protected ByteTrieSearch createSearchGraph() {
         return new ByteTrieSearch();
     }
+
+    /**
+     * Searches large ranges using multiple threads, if parallel buffer search is enabled.
+     *
+     * @see LithoFilterPatch#getParallelBufferSearch(int)
+     */
+    @Override
+    protected FilterGroup.FilterGroupResult check(byte[] buffer, int startIndex, int endIndex) {
+        LithoFilterMetrics.recordBytesScanned(startIndex, endIndex);
+        ParallelByteSearch parallelSearch = LithoFilterPatch.getParallelBufferSearch(endIndex - startIndex);
+        if (parallelSearch == null) {
+            return super.check(buffer, startIndex, endIndex);
+        }
+        return getResult(parallelSearch.matches(getSearch(), buffer, startIndex, endIndex,
+                FilterGroup.FilterGroupResult::new));
+    }
+
+    /**
+     * @param matched Result of a parallel search, or null if nothing matched.
+     * @return The reusable result instance of the calling thread, set to the parallel search result.
+     */
+    private FilterGroup.FilterGroupResult getResult(@Nullable FilterGroup.FilterGroupResult matched) {
+        FilterGroup.FilterGroupResult result = getClearedResult();
+        if (matched != null) {
+            result.setValues(matched.getSetting(), matched.getMatchedIndex(), matched.getMatchedLength());
+        }
+        return result;
+    }
+
+    /**
+     * Searches only the string fields of a proto buffer.
+     * If the buffer is not a valid proto message, then the entire buffer is searched.
+     *
+     * @see ProtoBufferIndex
+     */
+    FilterGroup.FilterGroupResult checkStringFields(byte[] buffer, int bufferStartIndex, int bufferEndIndex) {
+        ProtoBufferIndex index = ProtoBufferIndex.getIndex(buffer, bufferStartIndex, bufferEndIndex);
+        if (!index.isValid()) {
+            return check(buffer, bufferStartIndex, bufferEndIndex);
+        }
+
+        ParallelByteSearch parallelSearch = LithoFilterPatch.getParallelBufferSearch(bufferEndIndex - bufferStartIndex);
+        if (parallelSearch != null) {
+            LithoFilterMetrics.recordBytesScanned(index);
+            return getResult(parallelSearch.matches(getSearch(), buffer, index,
+                    FilterGroup.FilterGroupResult::new));
+        }
+
+        for (int i = 0, count = index.getStringCount(); i < count; i++) {
+            FilterGroup.FilterGroupResult result = check(buffer, index.getStringStartIndex(i), index.getStringEndIndex(i));
+            if (result.isFiltered()) {
+                return result;
+            }
+        }
+        return getClearedResult();
+    }
 }
\ No newline at end of file
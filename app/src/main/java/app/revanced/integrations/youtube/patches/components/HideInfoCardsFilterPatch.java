@@ -13,4 +13,9 @@ public final class HideInfoCardsFilterPatch extends Filter {
                 )
         );
     }
+
+    @Override
+    boolean isResultCacheable(StringFilterGroup matchedGroup) {
+        return true;
+    }
 }
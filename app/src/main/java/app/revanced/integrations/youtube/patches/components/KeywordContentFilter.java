@@ -4,6 +4,7 @@ import static app.revanced.integrations.shared.StringRef.str;
 import static app.revanced.integrations.youtube.shared.NavigationBar.NavigationButton;
 import static java.lang.Character.UnicodeBlock.*;
 
+import android.content.SharedPreferences;
 import android.os.Build;
 
 import androidx.annotation.NonNull;
@@ -11,13 +12,16 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import app.revanced.integrations.shared.Logger;
 import app.revanced.integrations.shared.Utils;
+import app.revanced.integrations.shared.settings.Setting;
 import app.revanced.integrations.youtube.ByteTrieSearch;
+import app.revanced.integrations.youtube.ParallelByteSearch;
 import app.revanced.integrations.youtube.StringTrieSearch;
 import app.revanced.integrations.youtube.TrieSearch;
 import app.revanced.integrations.youtube.settings.Settings;
@@ -37,11 +41,12 @@ import app.revanced.integrations.youtube.shared.PlayerType;
  * - Some layout component residue will remain, such as the video chapter previews for some search results.
  *   These components do not include the video title or channel name, and they
  *   appear outside the filtered components so they are not caught.
- * - Keywords are case sensitive, but some casing variation is manually added.
- *   (ie: "mr beast" automatically filters "Mr Beast" and "MR BEAST").
+ * - Keywords are case insensitive (ie: "mr beast" also filters "Mr Beast" and "MR BEAST"),
+ *   except for the few characters where the upper and lower case use a different number of UTF-8 bytes.
  * - Keywords present in the layout or video data cannot be used as filters, otherwise all videos
  *   will always be hidden.  This patch checks for some words of these words.
  * - When using whole word syntax, some keywords may need additional pluralized variations.
+ * - Only the text fields of the buffer are searched (urls are not), and a keyword cannot match across fields.
  */
 @SuppressWarnings("unused")
 @RequiresApi(api = Build.VERSION_CODES.N)
@@ -154,6 +159,34 @@ final class KeywordContentFilter extends Filter {
 
     private static final int UTF8_MAX_BYTE_COUNT = 4;
 
+    /**
+     * ASCII characters that are letters, indexed by the character value.
+     * Most word boundaries are ASCII, and checking these does not require decoding UTF-8.
+     */
+    private static final boolean[] ASCII_LETTERS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ASCII_LETTERS[c] = true;
+            ASCII_LETTERS[Character.toUpperCase(c)] = true;
+        }
+    }
+
+    /**
+     * String fields starting with this are urls (thumbnails, video playback), and are not searched.
+     */
+    private static final byte[] URL_PREFIX = "https://".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Search parameters reused by each thread, to prevent memory allocations while filtering.
+     */
+    private static final ThreadLocal<KeywordSearchParameters> searchParametersThreadLocal = new ThreadLocal<>() {
+        @Override
+        protected KeywordSearchParameters initialValue() {
+            return new KeywordSearchParameters();
+        }
+    };
+
     /**
      * Rolling average of how many videos were filtered by a keyword.
      * Used to detect if a keyword passes the initial check against {@link #STRINGS_IN_EVERY_BUFFER}
@@ -182,47 +215,25 @@ final class KeywordContentFilter extends Filter {
      */
     private volatile String lastKeywordPhrasesParsed;
 
-    private volatile ByteTrieSearch bufferSearch;
-
     /**
-     * Change first letter of the first word to use title case.
+     * Search of the last parsed keywords, or null if the keywords are not yet parsed.
+     * Replaced only after a new search is fully built, so filtering never waits for the keywords to parse.
      */
-    private static String titleCaseFirstWordOnly(String sentence) {
-        if (sentence.isEmpty()) {
-            return sentence;
-        }
-        final int firstCodePoint = sentence.codePointAt(0);
-        // In some non English languages title case is different than uppercase.
-        return new StringBuilder()
-                .appendCodePoint(Character.toTitleCase(firstCodePoint))
-                .append(sentence, Character.charCount(firstCodePoint), sentence.length())
-                .toString();
-    }
+    @Nullable
+    private volatile ByteTrieSearch bufferSearch;
+
+    private final AtomicBoolean parseKeywordsScheduled = new AtomicBoolean();
 
     /**
-     * Uppercase the first letter of each word.
+     * Listener must be strongly referenced, as shared preferences only keeps a weak reference.
      */
-    private static String capitalizeAllFirstLetters(String sentence) {
-        if (sentence.isEmpty()) {
-            return sentence;
-        }
-
-        final int delimiter = ' ';
-        // Use code points and not characters to handle unicode surrogates.
-        int[] codePoints = sentence.codePoints().toArray();
-        boolean capitalizeNext = true;
-        for (int i = 0, length = codePoints.length; i < length; i++) {
-            final int codePoint = codePoints[i];
-            if (codePoint == delimiter) {
-                capitalizeNext = true;
-            } else if (capitalizeNext) {
-                codePoints[i] = Character.toUpperCase(codePoint);
-                capitalizeNext = false;
-            }
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferenceChangeListener
+            = (sharedPreferences, key) -> {
+        if (Settings.HIDE_KEYWORD_CONTENT_PHRASES.key.equals(key)) {
+            // Setting values are updated by other listeners, and those listeners can run after this listener.
+            Utils.runOnMainThread(this::scheduleParseKeywords);
         }
-
-        return new String(codePoints, 0, codePoints.length);
-    }
+    };
 
     /**
      * @return If the string contains any characters from languages that do not use spaces between words.
@@ -252,25 +263,29 @@ final class KeywordContentFilter extends Filter {
     /**
      * @return If the phrase will hide all videos. Not an exhaustive check.
      */
-    private static boolean phrasesWillHideAllVideos(@NonNull String[] phrases, boolean matchWholeWords) {
-        for (String phrase : phrases) {
-            for (String commonString : STRINGS_IN_EVERY_BUFFER) {
-                if (matchWholeWords) {
-                    byte[] commonStringBytes = commonString.getBytes(StandardCharsets.UTF_8);
-                    int matchIndex = 0;
-                    while (true) {
-                        matchIndex = commonString.indexOf(phrase, matchIndex);
-                        if (matchIndex < 0) break;
-
-                        if (keywordMatchIsWholeWord(commonStringBytes, matchIndex, phrase.length())) {
-                            return true;
-                        }
-
-                        matchIndex++;
+    private static boolean phraseWillHideAllVideos(@NonNull String phrase, boolean matchWholeWords) {
+        // Keywords are case insensitive.
+        // The common strings are ASCII, so the lower case does not change the indexes.
+        // Use the root locale, as the device locale can change ASCII letters (such as Turkish dotless i).
+        final String phraseLowerCase = phrase.toLowerCase(Locale.ROOT);
+        for (String commonString : STRINGS_IN_EVERY_BUFFER) {
+            final String commonStringLowerCase = commonString.toLowerCase(Locale.ROOT);
+            if (matchWholeWords) {
+                byte[] commonStringBytes = commonString.getBytes(StandardCharsets.UTF_8);
+                int matchIndex = 0;
+                while (true) {
+                    matchIndex = commonStringLowerCase.indexOf(phraseLowerCase, matchIndex);
+                    if (matchIndex < 0) break;
+
+                    if (keywordMatchIsWholeWord(commonStringBytes, 0, commonStringBytes.length,
+                            matchIndex, phrase.length())) {
+                        return true;
                     }
-                } else if (Utils.containsAny(commonString, phrases)) {
-                    return true;
+
+                    matchIndex++;
                 }
+            } else if (commonStringLowerCase.contains(phraseLowerCase)) {
+                return true;
             }
         }
 
@@ -278,55 +293,79 @@ final class KeywordContentFilter extends Filter {
     }
 
     /**
+     * @param textStartIndex Start index of the text content, inclusive.
+     * @param textEndIndex   End index of the text content, exclusive.
      * @return If the start and end indexes are not surrounded by other letters.
      *         If the indexes are surrounded by numbers/symbols/punctuation it is considered a whole word.
      */
-    private static boolean keywordMatchIsWholeWord(byte[] text, int keywordStartIndex, int keywordLength) {
-        final Integer codePointBefore = getUtf8CodePointBefore(text, keywordStartIndex);
-        if (codePointBefore != null && Character.isLetter(codePointBefore)) {
+    private static boolean keywordMatchIsWholeWord(byte[] text, int textStartIndex, int textEndIndex,
+                                                   int keywordStartIndex, int keywordLength) {
+        return !isLetterBefore(text, textStartIndex, keywordStartIndex)
+                && !isLetterAt(text, keywordStartIndex + keywordLength, textEndIndex);
+    }
+
+    /**
+     * @param dataStartIndex Start index of the data content, inclusive.
+     * @return If the character immediately before the index is a letter.
+     */
+    private static boolean isLetterBefore(byte[] data, int dataStartIndex, int index) {
+        if (index <= dataStartIndex) {
             return false;
         }
+        final int value = data[index - 1];
+        if (value >= 0) {
+            return ASCII_LETTERS[value];
+        }
+        final int codePoint = getUtf8CodePointBefore(data, dataStartIndex, index);
+        return codePoint >= 0 && Character.isLetter(codePoint);
+    }
 
-        final Integer codePointAfter = getUtf8CodePointAt(text, keywordStartIndex + keywordLength);
-        //noinspection RedundantIfStatement
-        if (codePointAfter != null && Character.isLetter(codePointAfter)) {
+    /**
+     * @param dataEndIndex End index of the data content, exclusive.
+     * @return If the character at the index is a letter.
+     */
+    private static boolean isLetterAt(byte[] data, int index, int dataEndIndex) {
+        if (index >= dataEndIndex) {
             return false;
         }
-
-        return true;
+        final int value = data[index];
+        if (value >= 0) {
+            return ASCII_LETTERS[value];
+        }
+        final int codePoint = getUtf8CodePointAt(data, index, dataEndIndex);
+        return codePoint >= 0 && Character.isLetter(codePoint);
     }
 
     /**
+     * @param dataStartIndex Start index of the data content, inclusive.
      * @return The UTF8 character point immediately before the index,
-     *         or null if the bytes before the index is not a valid UTF8 character.
+     *         or -1 if the bytes before the index is not a valid UTF8 character.
      */
-    @Nullable
-    private static Integer getUtf8CodePointBefore(byte[] data, int index) {
+    private static int getUtf8CodePointBefore(byte[] data, int dataStartIndex, int index) {
         int characterByteCount = 0;
-        while (--index >= 0 && ++characterByteCount <= UTF8_MAX_BYTE_COUNT) {
+        while (--index >= dataStartIndex && ++characterByteCount <= UTF8_MAX_BYTE_COUNT) {
             if (isValidUtf8(data, index, characterByteCount)) {
                 return decodeUtf8ToCodePoint(data, index, characterByteCount);
             }
         }
 
-        return null;
+        return -1;
     }
 
     /**
+     * @param dataEndIndex End index of the data content, exclusive.
      * @return The UTF8 character point at the index,
-     *         or null if the index holds no valid UTF8 character.
+     *         or -1 if the index holds no valid UTF8 character.
      */
-    @Nullable
-    private static Integer getUtf8CodePointAt(byte[] data, int index) {
+    private static int getUtf8CodePointAt(byte[] data, int index, int dataEndIndex) {
         int characterByteCount = 0;
-        final int dataLength = data.length;
-        while (index + characterByteCount < dataLength && ++characterByteCount <= UTF8_MAX_BYTE_COUNT) {
+        while (index + characterByteCount < dataEndIndex && ++characterByteCount <= UTF8_MAX_BYTE_COUNT) {
             if (isValidUtf8(data, index, characterByteCount)) {
                 return decodeUtf8ToCodePoint(data, index, characterByteCount);
             }
         }
 
-        return null;
+        return -1;
     }
 
     public static boolean isValidUtf8(byte[] data, int startIndex, int numberOfBytes) {
@@ -378,21 +417,45 @@ final class KeywordContentFilter extends Filter {
         return phrase.substring(1, phrase.length() - 1);
     }
 
-    private synchronized void parseKeywords() { // Must be synchronized since Litho is multi-threaded.
+    /**
+     * Parses the keywords on a background thread.
+     * Until parsing completes, filtering continues to use the previous keywords.
+     */
+    private void scheduleParseKeywords() {
+        if (!parseKeywordsScheduled.compareAndSet(false, true)) {
+            return; // Parsing is already scheduled and has not yet started.
+        }
+
+        Utils.runOnBackgroundThread(() -> {
+            try {
+                parseKeywords();
+            } catch (Exception ex) {
+                Logger.printException(() -> "parseKeywords failure", ex);
+            }
+        });
+    }
+
+    /**
+     * Synchronized, so parsing that started earlier cannot replace the search of a later parsing.
+     */
+    private synchronized void parseKeywords() {
+        // Keywords changed after this point schedule another parsing.
+        parseKeywordsScheduled.set(false);
+
         String rawKeywords = Settings.HIDE_KEYWORD_CONTENT_PHRASES.get();
 
         //noinspection StringEquality
         if (rawKeywords == lastKeywordPhrasesParsed) {
             Logger.printDebug(() -> "Using previously initialized search");
-            return; // Another thread won the race, and search is already initialized.
+            return; // Search was already built by an earlier parsing.
         }
 
-        ByteTrieSearch search = new ByteTrieSearch();
+        ByteTrieSearch search = new ByteTrieSearch(true);
         String[] split = rawKeywords.split("\n");
         if (split.length != 0) {
-            // Linked Set so log statement are more organized and easier to read.
+            // Case insensitive, since the search is case insensitive.
             // Map is: Phrase -> isWholeWord
-            Map<String, Boolean> keywords = new LinkedHashMap<>(10 * split.length);
+            Map<String, Boolean> keywords = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
             for (String phrase : split) {
                 // Remove any trailing spaces the user may have accidentally included.
@@ -417,28 +480,10 @@ final class KeywordContentFilter extends Filter {
                     wholeWordMatching = false;
                 }
 
-                // Common casing that might appear.
-                //
-                // This could be simplified by adding case insensitive search to the prefix search,
-                // which is very simple to add to StringTreSearch for Unicode and ByteTrieSearch for ASCII.
-                //
-                // But to support Unicode with ByteTrieSearch would require major changes because
-                // UTF-8 characters can be different byte lengths, which does
-                // not allow comparing two different byte arrays using simple plain array indexes.
-                //
-                // Instead use all common case variations of the words.
-                String[] phraseVariations = {
-                        phrase,
-                        phrase.toLowerCase(),
-                        titleCaseFirstWordOnly(phrase),
-                        capitalizeAllFirstLetters(phrase),
-                        phrase.toUpperCase()
-                };
-
-                if (phrasesWillHideAllVideos(phraseVariations, wholeWordMatching)) {
+                if (phraseWillHideAllVideos(phrase, wholeWordMatching)) {
                     String toastMessage;
                     // If whole word matching is off, but would pass with on, then show a different toast.
-                    if (!wholeWordMatching && !phrasesWillHideAllVideos(phraseVariations, true)) {
+                    if (!wholeWordMatching && !phraseWillHideAllVideos(phrase, true)) {
                         toastMessage = "revanced_hide_keyword_toast_invalid_common_whole_word_required";
                     } else {
                         toastMessage = "revanced_hide_keyword_toast_invalid_common";
@@ -448,15 +493,12 @@ final class KeywordContentFilter extends Filter {
                     continue;
                 }
 
-                for (String variation : phraseVariations) {
-                    // Check if the same phrase is declared both with and without quotes.
-                    Boolean existing = keywords.get(variation);
-                    if (existing == null) {
-                        keywords.put(variation, wholeWordMatching);
-                    } else if (existing != wholeWordMatching) {
-                        Utils.showToastLong(str("revanced_hide_keyword_toast_invalid_conflicting", phrase));
-                        break;
-                    }
+                // Check if the same phrase is declared both with and without quotes.
+                Boolean existing = keywords.get(phrase);
+                if (existing == null) {
+                    keywords.put(phrase, wholeWordMatching);
+                } else if (existing != wholeWordMatching) {
+                    Utils.showToastLong(str("revanced_hide_keyword_toast_invalid_conflicting", phrase));
                 }
             }
 
@@ -467,19 +509,21 @@ final class KeywordContentFilter extends Filter {
 
                 TrieSearch.TriePatternMatchedCallback<byte[]> callback =
                         (textSearched, startIndex, matchLength, callbackParameter) -> {
-                            if (isWholeWord && !keywordMatchIsWholeWord(textSearched, startIndex, matchLength)) {
+                            KeywordSearchParameters parameters = (KeywordSearchParameters) callbackParameter;
+                            if (isWholeWord && !keywordMatchIsWholeWord(textSearched, parameters.bufferStartIndex,
+                                    parameters.bufferEndIndex, startIndex, matchLength)) {
                                 return false;
                             }
 
                             Logger.printDebug(() -> (isWholeWord ? "Matched whole keyword: '"
                                     : "Matched keyword: '") + keyword + "'");
-                            // noinspection unchecked
-                            ((MutableReference<String>) callbackParameter).value = keyword;
+                            parameters.matchedKeyword = keyword;
                             return true;
                         };
                 byte[] stringBytes = keyword.getBytes(StandardCharsets.UTF_8);
                 search.addPattern(stringBytes, callback);
             }
+            search.freeze();
 
             Logger.printDebug(() -> "Search using: (" + search.getEstimatedMemorySize() + " KB) keywords: " + keywords.keySet());
         }
@@ -487,12 +531,15 @@ final class KeywordContentFilter extends Filter {
         bufferSearch = search;
         timeToResumeFiltering = 0;
         filteredVideosPercentage = 0;
+        LithoFilterCache.invalidate("Keywords parsed");
         lastKeywordPhrasesParsed = rawKeywords; // Must set last.
     }
 
     public KeywordContentFilter() {
-        // Keywords are parsed on first call to isFiltered()
         addPathCallbacks(startsWithFilter, containsFilter);
+
+        Setting.preferences.preferences.registerOnSharedPreferenceChangeListener(preferenceChangeListener);
+        scheduleParseKeywords();
     }
 
     private boolean hideKeywordSettingIsActive() {
@@ -558,30 +605,161 @@ final class KeywordContentFilter extends Filter {
         Utils.showToastLong(str("revanced_hide_keyword_toast_invalid_broad", keyword));
     }
 
+    private static boolean startsWith(byte[] array, int startIndex, int endIndex, byte[] prefix) {
+        final int prefixLength = prefix.length;
+        if (endIndex - startIndex < prefixLength) {
+            return false;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if (array[startIndex + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches the string fields of the buffer, excluding urls.
+     * Whole word matching uses the start and end of each string field as word boundaries.
+     * If the buffer is not a valid proto message, then the entire buffer is searched.
+     * Large buffers are searched using multiple threads, if parallel buffer search is enabled.
+     *
+     * @see LithoFilterPatch#getParallelBufferSearch(int)
+     */
+    private static boolean bufferMatches(ByteTrieSearch search, KeywordSearchParameters parameters,
+                                         byte[] buffer, int bufferStartIndex, int bufferEndIndex) {
+        ProtoBufferIndex index = ProtoBufferIndex.getIndex(buffer, bufferStartIndex, bufferEndIndex);
+        ParallelByteSearch parallelSearch = LithoFilterPatch.getParallelBufferSearch(bufferEndIndex - bufferStartIndex);
+        if (!index.isValid()) {
+            parameters.setValues(bufferStartIndex, bufferEndIndex);
+            LithoFilterMetrics.recordBytesScanned(bufferStartIndex, bufferEndIndex);
+            if (parallelSearch != null) {
+                return setParallelResult(parameters, parallelSearch.matches(search, buffer,
+                        bufferStartIndex, bufferEndIndex, () -> {
+                            // Word boundaries are the start and end of the buffer, and not of each chunk.
+                            KeywordSearchParameters chunkParameters = new KeywordSearchParameters();
+                            chunkParameters.setValues(bufferStartIndex, bufferEndIndex);
+                            return chunkParameters;
+                        }));
+            }
+            return search.matches(buffer, bufferStartIndex, bufferEndIndex, parameters);
+        }
+
+        if (parallelSearch != null) {
+            NonUrlStringRanges ranges = new NonUrlStringRanges(buffer, index);
+            LithoFilterMetrics.recordBytesScanned(ranges);
+            // Each range is given to the parameters, and is used for the word boundaries.
+            return setParallelResult(parameters, parallelSearch.matches(search, buffer, ranges,
+                    KeywordSearchParameters::new));
+        }
+
+        for (int i = 0, count = index.getStringCount(); i < count; i++) {
+            final int stringStartIndex = index.getStringStartIndex(i);
+            final int stringEndIndex = index.getStringEndIndex(i);
+            if (startsWith(buffer, stringStartIndex, stringEndIndex, URL_PREFIX)) {
+                continue;
+            }
+
+            parameters.setValues(stringStartIndex, stringEndIndex);
+            LithoFilterMetrics.recordBytesScanned(stringStartIndex, stringEndIndex);
+            if (search.matches(buffer, stringStartIndex, stringEndIndex, parameters)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies the keyword that matched in a parallel search.
+     *
+     * @param matched Parameters of the chunk that matched, or null if nothing matched.
+     */
+    private static boolean setParallelResult(KeywordSearchParameters parameters,
+                                             @Nullable KeywordSearchParameters matched) {
+        if (matched == null) {
+            return false;
+        }
+        parameters.matchedKeyword = matched.matchedKeyword;
+        return true;
+    }
+
+    /**
+     * String fields of a buffer that are not urls.
+     */
+    private static final class NonUrlStringRanges implements ParallelByteSearch.Ranges {
+        private final int[] startIndexes;
+        private final int[] endIndexes;
+        private final int count;
+
+        NonUrlStringRanges(byte[] buffer, ProtoBufferIndex index) {
+            final int stringCount = index.getStringCount();
+            startIndexes = new int[stringCount];
+            endIndexes = new int[stringCount];
+            int count = 0;
+            for (int i = 0; i < stringCount; i++) {
+                final int stringStartIndex = index.getStringStartIndex(i);
+                final int stringEndIndex = index.getStringEndIndex(i);
+                if (!startsWith(buffer, stringStartIndex, stringEndIndex, URL_PREFIX)) {
+                    startIndexes[count] = stringStartIndex;
+                    endIndexes[count] = stringEndIndex;
+                    count++;
+                }
+            }
+            this.count = count;
+        }
+
+        @Override
+        public int getRangeCount() {
+            return count;
+        }
+
+        @Override
+        public int getRangeStartIndex(int rangeIndex) {
+            return startIndexes[rangeIndex];
+        }
+
+        @Override
+        public int getRangeEndIndex(int rangeIndex) {
+            return endIndexes[rangeIndex];
+        }
+    }
+
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
-                       StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
+    boolean canFilter(@Nullable String identifier, CharSequence path,
+                      StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (contentIndex != 0 && matchedGroup == startsWithFilter) {
             return false;
         }
 
+        if (!hideKeywordSettingIsActive()) return false;
+
+        // Checked before the buffer search, and exceptions do not update statistics.
+        return !exceptions.matches(path);
+    }
+
+    @Override
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
+                       StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         // Field is intentionally compared using reference equality.
         //noinspection StringEquality
         if (Settings.HIDE_KEYWORD_CONTENT_PHRASES.get() != lastKeywordPhrasesParsed) {
-            // User changed the keywords or whole word setting.
-            parseKeywords();
+            // Keywords were changed without a preference change callback (such as importing settings).
+            scheduleParseKeywords();
         }
 
-        if (!hideKeywordSettingIsActive()) return false;
-
-        if (exceptions.matches(path)) {
-            return false; // Do not update statistics.
+        ByteTrieSearch search = bufferSearch;
+        if (search == null) {
+            return false; // Keywords are not yet parsed.
         }
 
-        MutableReference<String> matchRef = new MutableReference<>();
-        if (bufferSearch.matches(protobufBufferArray, matchRef)) {
-            updateStats(true, matchRef.value);
-            return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+        KeywordSearchParameters parameters = searchParametersThreadLocal.get();
+        if (bufferMatches(search, parameters, protobufBufferArray, bufferStartIndex, bufferEndIndex)) {
+            String matchedKeyword = parameters.matchedKeyword;
+            parameters.matchedKeyword = null;
+            updateStats(true, matchedKeyword);
+            return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                    matchedGroup, contentType, contentIndex);
         }
 
         updateStats(false, null);
@@ -590,8 +768,29 @@ final class KeywordContentFilter extends Filter {
 }
 
 /**
- * Simple non-atomic wrapper since {@link AtomicReference#setPlain(Object)} is not available with Android 8.0.
+ * Parameters passed through the keyword search.
  */
-final class MutableReference<T> {
-    T value;
+final class KeywordSearchParameters implements ParallelByteSearch.RangeParameter {
+    /**
+     * Range of the text searched (a string field, or the entire buffer).
+     * Used to determine if a whole word match is at the start or end of the text.
+     */
+    int bufferStartIndex;
+    int bufferEndIndex;
+    /**
+     * Set by the callback of the keyword that matched.
+     */
+    @Nullable
+    String matchedKeyword;
+
+    void setValues(int bufferStartIndex, int bufferEndIndex) {
+        this.bufferStartIndex = bufferStartIndex;
+        this.bufferEndIndex = bufferEndIndex;
+        this.matchedKeyword = null;
+    }
+
+    @Override
+    public void setRange(int startIndex, int endIndex) {
+        setValues(startIndex, endIndex);
+    }
 }
\ No newline at end of file
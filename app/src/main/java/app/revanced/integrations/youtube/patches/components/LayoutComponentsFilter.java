@@ -290,19 +290,22 @@ public final class LayoutComponentsFilter extends Filter {
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (matchedGroup == searchResultVideo) {
-            if (searchResultRecommendations.check(protobufBufferArray).isFiltered()) {
-                return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+            if (searchResultRecommendations.check(protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
+                return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                        matchedGroup, contentType, contentIndex);
             }
             return false;
         }
 
         if (matchedGroup == likeSubscribeGlow) {
-            if ((path.startsWith(VIDEO_ACTION_BAR_PATH_PREFIX) || path.startsWith(COMPACT_CHANNEL_BAR_PATH_PREFIX))
-                    && path.contains(ANIMATED_VECTOR_TYPE_PATH)) {
-                return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+            if ((Utils.startsWith(path, VIDEO_ACTION_BAR_PATH_PREFIX) || Utils.startsWith(path, COMPACT_CHANNEL_BAR_PATH_PREFIX))
+                    && Utils.indexOf(path, ANIMATED_VECTOR_TYPE_PATH) >= 0) {
+                return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                        matchedGroup, contentType, contentIndex);
             }
 
             return false;
@@ -312,7 +315,8 @@ public final class LayoutComponentsFilter extends Filter {
         // Filter them separately here.
         if (matchedGroup == notifyMe || matchedGroup == inFeedSurvey || matchedGroup == expandableMetadata)
         {
-            return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+            return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                    matchedGroup, contentType, contentIndex);
         }
 
         if (exceptions.matches(path)) return false; // Exceptions are not filtered.
@@ -321,8 +325,9 @@ public final class LayoutComponentsFilter extends Filter {
             if (compactChannelBarInnerButton.check(path).isFiltered()) {
                 // The filter may be broad, but in the context of a compactChannelBarInnerButton,
                 // it's safe to assume that the button is the only thing that should be hidden.
-                if (joinMembershipButton.check(protobufBufferArray).isFiltered()) {
-                    return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+                if (joinMembershipButton.check(protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
+                    return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                            matchedGroup, contentType, contentIndex);
                 }
             }
 
@@ -334,13 +339,21 @@ public final class LayoutComponentsFilter extends Filter {
 
         if (matchedGroup == horizontalShelves) {
             if (contentIndex == 0 && hideShelves()) {
-                return super.isFiltered(path, identifier, protobufBufferArray, matchedGroup, contentType, contentIndex);
+                return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                        matchedGroup, contentType, contentIndex);
             }
 
             return false;
         }
 
-        return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+        return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                matchedGroup, contentType, contentIndex);
+    }
+
+    @Override
+    boolean isResultCacheable(StringFilterGroup matchedGroup) {
+        // Shelves are hidden depending on the player and navigation state.
+        return matchedGroup != horizontalShelves;
     }
 
     /**
@@ -0,0 +1,180 @@
+package app.revanced.integrations.youtube.patches.components;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import app.revanced.integrations.shared.Logger;
+import app.revanced.integrations.shared.Utils;
+import app.revanced.integrations.shared.settings.BaseSettings;
+import app.revanced.integrations.shared.settings.Setting;
+
+/**
+ * Cache of litho filter results.
+ *
+ * Litho repeatedly filters the same components while scrolling (video feed items, shelf headers, buttons),
+ * and a cached result skips the filter callbacks and their buffer searches.
+ *
+ * Results are keyed by a 64-bit hash of the identifier, path and buffer content.
+ * The key is created only after the identifier/path search, and only if all matched filters are cacheable,
+ * so buffers of components that match nothing or match a non cacheable filter are never hashed.
+ * The cache is a fixed size direct mapped table that is lock free and does not allocate memory.
+ * A new result replaces whatever result previously used the same table slot,
+ * so the most recently filtered components are kept.
+ *
+ * Only results that do not depend on the app state are cached.
+ * See {@link Filter#isResultCacheable(StringFilterGroup)}.
+ */
+final class LithoFilterCache {
+    /**
+     * Number of cached results.  Must be a power of 2.
+     */
+    private static final int CACHE_SIZE = 4096;
+
+    /**
+     * Bit of an entry that is the filter result.  All other bits are the key.
+     */
+    private static final long RESULT_BIT = 1;
+    private static final long KEY_BITS = ~RESULT_BIT;
+
+    /**
+     * Value used for a key that would otherwise be the same as an empty entry.
+     */
+    private static final long ZERO_KEY_REPLACEMENT = 2;
+
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Number of cache misses between logging the cache statistics, if debugging is enabled.
+     */
+    private static final long STATISTICS_LOG_INTERVAL = 5000;
+
+    private static final AtomicLongArray entries = new AtomicLongArray(CACHE_SIZE);
+
+    /**
+     * Included in all keys.  Incrementing invalidates all existing entries,
+     * including entries that are added after incrementing by threads that used the old settings.
+     */
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    private static final AtomicLong hitCount = new AtomicLong();
+    private static final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Listener must be strongly referenced, as shared preferences only keeps a weak reference.
+     */
+    private static final SharedPreferences.OnSharedPreferenceChangeListener preferenceChangeListener
+            = (sharedPreferences, key) -> {
+        // Setting values are updated by other listeners, and those listeners can run after this listener.
+        // Invalidate after all listeners have run, so results using the old setting values are not retained.
+        Utils.runOnMainThread(() -> invalidate("Setting changed: " + key));
+    };
+
+    static {
+        Setting.preferences.preferences.registerOnSharedPreferenceChangeListener(preferenceChangeListener);
+    }
+
+    private LithoFilterCache() {
+    }
+
+    /**
+     * Invalidates all cached results.
+     * Must be called if a filter changes what content it filters,
+     * such as after parsing user entered keywords or filters.
+     */
+    static void invalidate(String reason) {
+        generation.incrementAndGet();
+        Logger.printDebug(() -> "Cleared litho filter cache. " + reason);
+    }
+
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft((hash ^ value) * HASH_MULTIPLIER, 27);
+    }
+
+    /**
+     * @return The cache key of the filter parameters. Key is never zero and never has {@link #RESULT_BIT} set.
+     */
+    static long createKey(@Nullable String identifier, CharSequence path,
+                          byte[] buffer, int bufferStartIndex, int bufferEndIndex) {
+        long hash = mix(HASH_MULTIPLIER, generation.get());
+
+        if (identifier == null) {
+            hash = mix(hash, -1);
+        } else {
+            final int identifierLength = identifier.length();
+            hash = mix(hash, identifierLength);
+            for (int i = 0; i < identifierLength; i++) {
+                hash = mix(hash, identifier.charAt(i));
+            }
+        }
+
+        final int pathLength = path.length();
+        hash = mix(hash, pathLength);
+        for (int i = 0; i < pathLength; i++) {
+            hash = mix(hash, path.charAt(i));
+        }
+
+        hash = mix(hash, bufferEndIndex - bufferStartIndex);
+        int i = bufferStartIndex;
+        // Mix 4 bytes at a time.
+        for (final int wordEndIndex = bufferEndIndex - 3; i < wordEndIndex; i += 4) {
+            hash = mix(hash, (buffer[i] & 0xFF)
+                    | (buffer[i + 1] & 0xFF) << 8
+                    | (buffer[i + 2] & 0xFF) << 16
+                    | (buffer[i + 3] & 0xFF) << 24);
+        }
+        for (; i < bufferEndIndex; i++) {
+            hash = mix(hash, buffer[i]);
+        }
+
+        // Final avalanche, so all bits of the key depend on all input.
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        final long key = hash & KEY_BITS;
+        return key == 0 ? ZERO_KEY_REPLACEMENT : key;
+    }
+
+    private static int getIndex(long key) {
+        return (int) (key >>> 32) & (CACHE_SIZE - 1);
+    }
+
+    /**
+     * @return The cached filter result, or NULL if not cached.
+     */
+    @Nullable
+    static Boolean getResult(long key) {
+        final long entry = entries.get(getIndex(key));
+        if ((entry & KEY_BITS) == key) {
+            hitCount.incrementAndGet();
+            return (entry & RESULT_BIT) != 0;
+        }
+
+        final long misses = missCount.incrementAndGet();
+        if (misses % STATISTICS_LOG_INTERVAL == 0 && BaseSettings.DEBUG.get()) {
+            Logger.printDebug(LithoFilterCache::getStatistics);
+        }
+        return null;
+    }
+
+    static void putResult(long key, boolean filtered) {
+        entries.set(getIndex(key), filtered ? (key | RESULT_BIT) : key);
+    }
+
+    /**
+     * @return The hit rate of the cache.
+     */
+    static String getStatistics() {
+        final long hits = hitCount.get();
+        final long lookups = hits + missCount.get();
+        final long hitPercentage = (lookups == 0) ? 0 : (100 * hits / lookups);
+        return "Litho filter cache hits: " + hits + " of " + lookups + " lookups (" + hitPercentage + "%)";
+    }
+}
@@ -0,0 +1,224 @@
+package app.revanced.integrations.youtube.patches.components;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import app.revanced.integrations.shared.Logger;
+import app.revanced.integrations.shared.Utils;
+import app.revanced.integrations.shared.settings.BaseSettings;
+import app.revanced.integrations.youtube.LithoCaptureFile;
+import app.revanced.integrations.youtube.settings.Settings;
+
+/**
+ * Records the filtered litho components to a {@link LithoCaptureFile},
+ * and replays a capture through the filters of this build.
+ *
+ * Files are in the app external files directory, so they can be copied using adb without root.
+ * The capture is {@link #CAPTURE_FILE_NAME}, and is replaced each time the app starts capturing.
+ * If {@link #REPLAY_FILE_NAME} is copied to the directory, then on the next app start it is replayed
+ * and the verdicts of this build are written to {@link #REPLAY_RESULT_FILE_NAME}.
+ * Captures and replay results can then be compared on a computer using the benchmark module.
+ *
+ * Captures contain user data, including the client ip address and what videos were shown.
+ */
+final class LithoFilterCapture {
+
+    static final String CAPTURE_FILE_NAME = "litho_capture.bin";
+    static final String REPLAY_FILE_NAME = "litho_replay.bin";
+    static final String REPLAY_RESULT_FILE_NAME = "litho_replay_result.bin";
+
+    /**
+     * Records waiting to be written.  If the writer falls behind, then new records are dropped.
+     */
+    private static final int MAXIMUM_QUEUED_RECORDS = 500;
+
+    private static final AtomicLong droppedRecords = new AtomicLong();
+
+    private static final ThreadPoolExecutor writerExecutor = new ThreadPoolExecutor(
+            1, 1, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(MAXIMUM_QUEUED_RECORDS),
+            r -> {
+                Thread thread = new Thread(r, "LithoFilterCapture");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            },
+            (r, executor) -> droppedRecords.incrementAndGet()
+    );
+
+    /**
+     * Only accessed by the writer thread.
+     */
+    @Nullable
+    private static LithoCaptureFile.Writer captureWriter;
+    private static boolean captureFailed;
+
+    /**
+     * Thread replaying a capture.  Components filtered by this thread are not captured.
+     */
+    @Nullable
+    private static volatile Thread replayThread;
+
+    static boolean isEnabled() {
+        return Settings.DEBUG_LITHO_CAPTURE.get() && BaseSettings.DEBUG.get()
+                && !isReplayThread();
+    }
+
+    /**
+     * @return If the calling thread is replaying a capture.  Filters with side effects are then not called,
+     *         and the filter cache is not used.
+     */
+    static boolean isReplayThread() {
+        return replayThread == Thread.currentThread();
+    }
+
+    @Nullable
+    private static File getDirectory() {
+        Context context = Utils.getContext();
+        if (context == null) {
+            return null;
+        }
+        File directory = context.getExternalFilesDir(null);
+        return directory != null ? directory : context.getFilesDir();
+    }
+
+    /**
+     * Copies the buffer content, since the buffer is reused by the app after filtering.
+     * The buffer position is not changed.
+     */
+    private static byte[] copyBuffer(@Nullable ByteBuffer buffer) {
+        if (buffer == null) {
+            return new byte[0];
+        }
+        final int position = buffer.position();
+        byte[] copy = new byte[buffer.limit() - position];
+        if (buffer.hasArray()) {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + position, copy, 0, copy.length);
+        } else {
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = buffer.get(position + i);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Queues a filtered component to be written.  Called by the litho threads.
+     */
+    static void record(@Nullable String identifier, StringBuilder pathBuilder, @Nullable ByteBuffer buffer,
+                       boolean filtered, long filterNanos) {
+        LithoCaptureFile.Record record = new LithoCaptureFile.Record(identifier,
+                pathBuilder.toString(), copyBuffer(buffer), filtered, filterNanos);
+        writerExecutor.execute(() -> write(record));
+    }
+
+    private static void write(LithoCaptureFile.Record record) {
+        if (captureFailed) {
+            return;
+        }
+        try {
+            if (captureWriter == null) {
+                File directory = getDirectory();
+                if (directory == null) {
+                    return;
+                }
+                File file = new File(directory, CAPTURE_FILE_NAME);
+                captureWriter = new LithoCaptureFile.Writer(file);
+                Logger.printDebug(() -> "Capturing litho components to: " + file);
+            }
+
+            captureWriter.write(record);
+            if (writerExecutor.getQueue().isEmpty()) {
+                // Flush when idle, so the file can be copied while the app is running.
+                captureWriter.flush();
+
+                final long dropped = droppedRecords.getAndSet(0);
+                if (dropped > 0) {
+                    Logger.printDebug(() -> "Litho capture dropped " + dropped + " records");
+                }
+            }
+        } catch (IOException ex) {
+            captureFailed = true;
+            Logger.printException(() -> "Litho capture failure", ex);
+        }
+    }
+
+    /**
+     * Replays {@link #REPLAY_FILE_NAME} on a background thread,
+     * if capturing is enabled and the replay file is newer than the last replay result.
+     */
+    static void replayIfRequested() {
+        if (!isEnabled()) {
+            return;
+        }
+        File directory = getDirectory();
+        if (directory == null) {
+            return;
+        }
+        File input = new File(directory, REPLAY_FILE_NAME);
+        File output = new File(directory, REPLAY_RESULT_FILE_NAME);
+        if (!input.isFile() || output.lastModified() >= input.lastModified()) {
+            return;
+        }
+
+        Utils.runOnBackgroundThread(() -> {
+            replayThread = Thread.currentThread();
+            try {
+                replay(input, output);
+            } catch (Exception ex) {
+                Logger.printException(() -> "Litho replay failure", ex);
+            } finally {
+                replayThread = null;
+            }
+        });
+    }
+
+    /**
+     * Filters each recorded component using the same injection points as the app,
+     * and writes the records with the verdict and filter time of this build.
+     *
+     * Filters with side effects are skipped, so replaying does not change the app state,
+     * and components those filters would hide can have a different verdict.
+     */
+    private static void replay(File input, File output) throws IOException {
+        Logger.printDebug(() -> "Replaying litho capture: " + input);
+        int count = 0;
+        int differentVerdicts = 0;
+
+        try (LithoCaptureFile.Reader reader = new LithoCaptureFile.Reader(input);
+             LithoCaptureFile.Writer writer = new LithoCaptureFile.Writer(output)) {
+            LithoCaptureFile.Record record;
+            while ((record = reader.read()) != null) {
+                LithoFilterPatch.setProtoBuffer(ByteBuffer.wrap(record.buffer));
+                StringBuilder pathBuilder = new StringBuilder(record.path);
+
+                final long startTime = System.nanoTime();
+                final boolean filtered = LithoFilterPatch.filter(record.identifier, pathBuilder);
+                final long filterNanos = System.nanoTime() - startTime;
+
+                writer.write(new LithoCaptureFile.Record(record.identifier, record.path,
+                        record.buffer, filtered, filterNanos));
+                count++;
+                if (filtered != record.filtered) {
+                    differentVerdicts++;
+                }
+            }
+        }
+
+        final int countFinal = count;
+        final int differentVerdictsFinal = differentVerdicts;
+        Logger.printDebug(() -> "Replayed " + countFinal + " litho components, "
+                + differentVerdictsFinal + " with a different verdict. Result: " + output);
+    }
+
+    private LithoFilterCapture() {
+    }
+}
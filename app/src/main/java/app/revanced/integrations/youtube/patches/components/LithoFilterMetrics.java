@@ -0,0 +1,332 @@
+package app.revanced.integrations.youtube.patches.components;
+
+import android.os.SystemClock;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import app.revanced.integrations.shared.Utils;
+import app.revanced.integrations.youtube.ParallelByteSearch;
+import app.revanced.integrations.youtube.settings.Settings;
+
+/**
+ * Invocation counts and latencies of the litho filters.
+ *
+ * Metrics are recorded for all filtered components, for each filter, and for each filter group.
+ * All counters are lock free and recording does not allocate memory,
+ * so metrics can be recorded by the litho threads with little overhead.
+ */
+public final class LithoFilterMetrics {
+
+    /**
+     * Latency histogram with logarithmic buckets, where each power of 2 is split into
+     * {@link #SUB_BUCKET_COUNT} linear buckets.  Recorded values are accurate to within 25%,
+     * and the histogram is a fixed size for any range of values.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 2;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong max = new AtomicLong();
+
+        private static int getBucketIndex(long value) {
+            if (value < SUB_BUCKET_COUNT) {
+                return (int) value;
+            }
+            final int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+            final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+        }
+
+        /**
+         * @return The smallest value of a bucket.
+         */
+        private static long getBucketLowestValue(int index) {
+            if (index < SUB_BUCKET_COUNT) {
+                return index;
+            }
+            final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+            final long subBucket = index % SUB_BUCKET_COUNT;
+            return (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+        }
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0; // Clock went backwards.
+            }
+            counts.incrementAndGet(getBucketIndex(value));
+
+            long currentMax;
+            do {
+                currentMax = max.get();
+            } while (value > currentMax && !max.compareAndSet(currentMax, value));
+        }
+
+        /**
+         * @param percentile Percentile from 0 to 100.
+         * @return Upper bound of the bucket containing the percentile, or zero if nothing is recorded.
+         */
+        long getValueAtPercentile(double percentile) {
+            long total = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            final long countAtPercentile = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += counts.get(i);
+                if (count >= countAtPercentile) {
+                    final long bucketHighestValue = (i == BUCKET_COUNT - 1)
+                            ? Long.MAX_VALUE
+                            : getBucketLowestValue(i + 1) - 1;
+                    return Math.min(bucketHighestValue, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts.set(i, 0);
+            }
+            max.set(0);
+        }
+    }
+
+    /**
+     * Metrics of a filter, a filter group, or of all components.
+     */
+    static final class Counters {
+        final String name;
+        private final AtomicLong invocations = new AtomicLong();
+        private final AtomicLong matches = new AtomicLong();
+        private final AtomicLong bytesScanned = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        Counters(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long bytes, boolean matched) {
+            invocations.incrementAndGet();
+            if (matched) {
+                matches.incrementAndGet();
+            }
+            if (bytes > 0) {
+                bytesScanned.addAndGet(bytes);
+            }
+            totalNanos.addAndGet(nanos);
+            latency.record(nanos);
+        }
+
+        void reset() {
+            invocations.set(0);
+            matches.set(0);
+            bytesScanned.set(0);
+            totalNanos.set(0);
+            latency.reset();
+        }
+
+        private void appendTo(StringBuilder builder) {
+            builder.append(name)
+                    .append("\n  calls: ").append(invocations.get())
+                    .append(" matched: ").append(matches.get())
+                    .append(" scanned: ").append(bytesScanned.get() / 1024).append(" KB")
+                    .append("\n  total: ").append(TimeUnit.NANOSECONDS.toMillis(totalNanos.get())).append(" ms")
+                    .append(" p50: ").append(toMicroseconds(latency.getValueAtPercentile(50)))
+                    .append(" p90: ").append(toMicroseconds(latency.getValueAtPercentile(90)))
+                    .append(" p99: ").append(toMicroseconds(latency.getValueAtPercentile(99)))
+                    .append(" max: ").append(toMicroseconds(latency.getMax()))
+                    .append(" µs\n");
+        }
+
+        private static String toMicroseconds(long nanos) {
+            return String.valueOf(nanos / 1000);
+        }
+    }
+
+    /**
+     * All filtered components, including components with a cached result.
+     */
+    private static final Counters componentCounters = new Counters("All components");
+
+    @GuardedBy("itself")
+    private static final Map<Filter, Counters> filterCounters = new IdentityHashMap<>();
+
+    @GuardedBy("itself")
+    private static final Map<StringFilterGroup, Counters> groupCounters = new IdentityHashMap<>();
+
+    /**
+     * Buffer bytes searched by each thread.  Only the calling thread modifies its own count.
+     */
+    private static final ThreadLocal<long[]> bytesScannedThreadLocal = new ThreadLocal<>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private static volatile long resetTime = SystemClock.elapsedRealtime();
+
+    private LithoFilterMetrics() {
+    }
+
+    /**
+     * @return If metrics should be recorded.
+     */
+    static boolean isEnabled() {
+        return Settings.DEBUG_LITHO_FILTER_METRICS.get();
+    }
+
+    /**
+     * Records a search of a buffer range by the calling thread.
+     * Must be called where the buffer is searched, and not for calls that do not search the buffer.
+     */
+    static void recordBytesScanned(int startIndex, int endIndex) {
+        if (endIndex > startIndex && isEnabled()) {
+            bytesScannedThreadLocal.get()[0] += endIndex - startIndex;
+        }
+    }
+
+    /**
+     * Records a search of ranges of a buffer by the calling thread, such as the string fields.
+     */
+    static void recordBytesScanned(ParallelByteSearch.Ranges ranges) {
+        if (isEnabled()) {
+            long bytes = 0;
+            for (int i = 0, count = ranges.getRangeCount(); i < count; i++) {
+                bytes += ranges.getRangeEndIndex(i) - ranges.getRangeStartIndex(i);
+            }
+            bytesScannedThreadLocal.get()[0] += bytes;
+        }
+    }
+
+    /**
+     * @return Total buffer bytes searched by the calling thread.
+     *         The difference before and after a filter call is the bytes searched by that call.
+     */
+    static long getBytesScanned() {
+        return bytesScannedThreadLocal.get()[0];
+    }
+
+    static Counters getFilterCounters(Filter filter) {
+        synchronized (filterCounters) {
+            Counters counters = filterCounters.get(filter);
+            if (counters == null) {
+                counters = new Counters(filter.getClass().getSimpleName());
+                filterCounters.put(filter, counters);
+            }
+            return counters;
+        }
+    }
+
+    static Counters getGroupCounters(Filter filter, StringFilterGroup group) {
+        synchronized (groupCounters) {
+            Counters counters = groupCounters.get(group);
+            if (counters == null) {
+                String groupName = (group.setting == null) ? group.filters[0] : group.setting.key;
+                counters = new Counters(filter.getClass().getSimpleName() + " " + groupName);
+                groupCounters.put(group, counters);
+            }
+            return counters;
+        }
+    }
+
+    /**
+     * Records a call to {@link LithoFilterPatch#filter(String, StringBuilder)}.
+     */
+    static void recordComponent(long nanos, boolean filtered) {
+        componentCounters.record(nanos, 0, filtered);
+    }
+
+    /**
+     * Records a call to a filter, for both the filter and the group that matched.
+     */
+    static void recordFilter(Counters filter, Counters group, long nanos, long bytesScanned, boolean filtered) {
+        filter.record(nanos, bytesScanned, filtered);
+        group.record(nanos, bytesScanned, filtered);
+    }
+
+    /**
+     * Clears all recorded metrics.
+     */
+    public static void reset() {
+        componentCounters.reset();
+        for (Counters counters : getAllCounters(filterCounters)) {
+            counters.reset();
+        }
+        for (Counters counters : getAllCounters(groupCounters)) {
+            counters.reset();
+        }
+        resetTime = SystemClock.elapsedRealtime();
+    }
+
+    private static List<Counters> getAllCounters(Map<?, Counters> map) {
+        List<Counters> list;
+        //noinspection SynchronizationOnLocalVariableOrMethodParameter
+        synchronized (map) {
+            list = new ArrayList<>(map.values());
+        }
+        // Most expensive first.
+        Collections.sort(list, (first, second) -> Long.compare(second.totalNanos.get(), first.totalNanos.get()));
+        return list;
+    }
+
+    /**
+     * @return All metrics as text, with the filters and groups that used the most time listed first.
+     */
+    @NonNull
+    public static String getReport() {
+        StringBuilder builder = new StringBuilder();
+        final long secondsSinceReset = (SystemClock.elapsedRealtime() - resetTime) / 1000;
+        builder.append("Litho filter metrics of the last ").append(secondsSinceReset).append(" seconds");
+        if (!isEnabled()) {
+            builder.append(" (recording is off)");
+        }
+        builder.append("\n\n");
+        componentCounters.appendTo(builder);
+
+        builder.append("\nFilters:\n");
+        for (Counters counters : getAllCounters(filterCounters)) {
+            if (counters.invocations.get() > 0) {
+                counters.appendTo(builder);
+            }
+        }
+
+        builder.append("\nFilter groups:\n");
+        for (Counters counters : getAllCounters(groupCounters)) {
+            if (counters.invocations.get() > 0) {
+                counters.appendTo(builder);
+            }
+        }
+
+        // Not cleared by a reset.
+        builder.append('\n').append(LithoFilterCache.getStatistics()).append(" (since app start)\n");
+
+        // Not part of litho filtering, but shown here with the other debug counters.  Not cleared by a reset.
+        builder.append("Background requests that used an already running request (since app start): ")
+                .append(Utils.getCoalescedBackgroundTaskCount()).append('\n');
+
+        return builder.toString();
+    }
+}
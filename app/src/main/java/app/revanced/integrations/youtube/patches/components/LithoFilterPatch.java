@@ -3,10 +3,22 @@ package app.revanced.integrations.youtube.patches.components;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import android.content.SharedPreferences;
+
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import app.revanced.integrations.shared.Logger;
+import app.revanced.integrations.shared.Utils;
+import app.revanced.integrations.shared.settings.BaseSettings;
+import app.revanced.integrations.shared.settings.Setting;
+import app.revanced.integrations.youtube.ParallelByteSearch;
 import app.revanced.integrations.youtube.StringTrieSearch;
 import app.revanced.integrations.youtube.settings.Settings;
 
@@ -14,31 +26,124 @@ import app.revanced.integrations.youtube.settings.Settings;
 public final class LithoFilterPatch {
     /**
      * Simple wrapper to pass the litho parameters through the prefix search.
+     *
+     * To prevent memory allocations while filtering,
+     * each thread reuses the same instance for all calls to {@link #filter(String, StringBuilder)}.
      */
     private static final class LithoFilterParameters {
         @Nullable
-        final String identifier;
-        final String path;
-        final byte[] protoBuffer;
+        String identifier;
+        /**
+         * Path builder of the current filter call.  The path tree and the filters use the builder directly,
+         * so a path String is never created.
+         */
+        StringBuilder pathBuilder;
+        /**
+         * Array containing the buffer. Only the range of
+         * {@link #bufferStartIndex} to {@link #bufferEndIndex} is the buffer content.
+         */
+        byte[] protoBuffer;
+        int bufferStartIndex;
+        int bufferEndIndex;
+        /**
+         * Groups that matched the identifier or path, in the order matched.
+         */
+        private FilterCallback[] matchedCallbacks = new FilterCallback[8];
+        private String[] matchedPatterns = new String[8];
+        private int[] matchedIndexes = new int[8];
+        private float[] matchedCosts = new float[8];
+        int matchedCount;
 
-        LithoFilterParameters(@Nullable String lithoIdentifier, String lithoPath, byte[] protoBuffer) {
+        void setValues(@Nullable String lithoIdentifier, StringBuilder lithoPathBuilder,
+                       byte[] protoBuffer, int bufferStartIndex, int bufferEndIndex) {
             this.identifier = lithoIdentifier;
-            this.path = lithoPath;
+            this.pathBuilder = lithoPathBuilder;
             this.protoBuffer = protoBuffer;
+            this.bufferStartIndex = bufferStartIndex;
+            this.bufferEndIndex = bufferEndIndex;
+            this.matchedCount = 0;
+        }
+
+        void addMatch(FilterCallback callback, String pattern, int contentIndex) {
+            if (matchedCount == matchedCallbacks.length) {
+                final int newLength = matchedCount * 2;
+                matchedCallbacks = Arrays.copyOf(matchedCallbacks, newLength);
+                matchedPatterns = Arrays.copyOf(matchedPatterns, newLength);
+                matchedIndexes = Arrays.copyOf(matchedIndexes, newLength);
+                matchedCosts = Arrays.copyOf(matchedCosts, newLength);
+            }
+            matchedCallbacks[matchedCount] = callback;
+            matchedPatterns[matchedCount] = pattern;
+            matchedIndexes[matchedCount] = contentIndex;
+            matchedCount++;
+        }
+
+        /**
+         * @return If any group matched, and the filter results of all matched groups are cacheable.
+         */
+        boolean isResultCacheable() {
+            if (matchedCount == 0) {
+                return false; // Nothing to filter, and a cache lookup would cost more than the searches.
+            }
+            for (int i = 0; i < matchedCount; i++) {
+                FilterCallback callback = matchedCallbacks[i];
+                if (!callback.filter.isResultCacheable(callback.group)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Sorts the matches by the current cost of each callback, lowest cost first.
+         * Callbacks with side effects are always first.  Matches with the same cost keep the order matched.
+         */
+        void sortMatchesByCost() {
+            for (int i = 0; i < matchedCount; i++) {
+                FilterCallback callback = matchedCallbacks[i];
+                // Callbacks with side effects are first, in the order matched.
+                matchedCosts[i] = callback.hasSideEffects ? Float.NEGATIVE_INFINITY : callback.getCost();
+            }
+            // Insertion sort, since most components match only a few groups.
+            for (int i = 1; i < matchedCount; i++) {
+                FilterCallback callback = matchedCallbacks[i];
+                String pattern = matchedPatterns[i];
+                final int index = matchedIndexes[i];
+                final float cost = matchedCosts[i];
+                int j = i - 1;
+                while (j >= 0 && matchedCosts[j] > cost) {
+                    matchedCallbacks[j + 1] = matchedCallbacks[j];
+                    matchedPatterns[j + 1] = matchedPatterns[j];
+                    matchedIndexes[j + 1] = matchedIndexes[j];
+                    matchedCosts[j + 1] = matchedCosts[j];
+                    j--;
+                }
+                matchedCallbacks[j + 1] = callback;
+                matchedPatterns[j + 1] = pattern;
+                matchedIndexes[j + 1] = index;
+                matchedCosts[j + 1] = cost;
+            }
+        }
+
+        /**
+         * Clears all references, so the app objects are not retained after filtering completes.
+         */
+        void clearValues() {
+            setValues(null, null, EMPTY_BYTE_ARRAY, 0, 0);
         }
 
         @NonNull
         @Override
         public String toString() {
             // Estimate the percentage of the buffer that are Strings.
-            StringBuilder builder = new StringBuilder(Math.max(100, protoBuffer.length / 2));
+            StringBuilder builder = new StringBuilder(Math.max(100, (bufferEndIndex - bufferStartIndex) / 2));
             builder.append( "ID: ");
             builder.append(identifier);
             builder.append(" Path: ");
-            builder.append(path);
+            builder.append(pathBuilder);
             if (Settings.DEBUG_PROTOBUFFER.get()) {
                 builder.append(" BufferStrings: ");
-                findAsciiStrings(builder, protoBuffer);
+                findAsciiStrings(builder, protoBuffer, bufferStartIndex, bufferEndIndex);
             }
 
             return builder.toString();
@@ -47,19 +152,18 @@ public final class LithoFilterPatch {
         /**
          * Search through a byte array for all ASCII strings.
          */
-        private static void findAsciiStrings(StringBuilder builder, byte[] buffer) {
+        private static void findAsciiStrings(StringBuilder builder, byte[] buffer, int startIndex, int endIndex) {
             // Valid ASCII values (ignore control characters).
             final int minimumAscii = 32;  // 32 = space character
             final int maximumAscii = 126; // 127 = delete character
             final int minimumAsciiStringLength = 4; // Minimum length of an ASCII string to include.
             String delimitingCharacter = "❙"; // Non ascii character, to allow easier log filtering.
 
-            final int length = buffer.length;
-            int start = 0;
-            int end = 0;
-            while (end < length) {
+            int start = startIndex;
+            int end = startIndex;
+            while (end < endIndex) {
                 int value = buffer[end];
-                if (value < minimumAscii || value > maximumAscii || end == length - 1) {
+                if (value < minimumAscii || value > maximumAscii || end == endIndex - 1) {
                     if (end - start >= minimumAsciiStringLength) {
                         for (int i = start; i < end; i++) {
                             builder.append((char) buffer[i]);
@@ -77,8 +181,115 @@ public final class LithoFilterPatch {
             new DummyFilter() // Replaced by patch.
     };
 
-    private static final StringTrieSearch pathSearchTree = new StringTrieSearch();
-    private static final StringTrieSearch identifierSearchTree = new StringTrieSearch();
+    /**
+     * A filter group that calls a filter, and the runtime statistics used to order the filter calls.
+     */
+    private static final class FilterCallback {
+        /**
+         * Weight of each call in the moving averages.
+         */
+        private static final float AVERAGE_WEIGHT = 1 / 32f;
+
+        /**
+         * Added to the filter rate, so a callback that never filters has a large but finite cost.
+         */
+        private static final float MINIMUM_FILTER_RATE = 0.01f;
+
+        final Filter filter;
+        final StringFilterGroup group;
+        final Filter.FilterContentType type;
+        final LithoFilterMetrics.Counters filterCounters;
+        final LithoFilterMetrics.Counters groupCounters;
+        /**
+         * If the callback must be called first.
+         *
+         * @see Filter#hasSideEffects(StringFilterGroup)
+         */
+        final boolean hasSideEffects;
+
+        /**
+         * Moving averages of the call time (upper 32 bits) and of the fraction of calls that filtered
+         * (lower 32 bits), as float bits.  Both are updated together using compare and set,
+         * so concurrent calls from multiple threads are never lost.
+         */
+        private final AtomicLong averages = new AtomicLong();
+
+        FilterCallback(Filter filter, StringFilterGroup group, Filter.FilterContentType type) {
+            this.filter = filter;
+            this.group = group;
+            this.type = type;
+            filterCounters = LithoFilterMetrics.getFilterCounters(filter);
+            groupCounters = LithoFilterMetrics.getGroupCounters(filter, group);
+            hasSideEffects = filter.hasSideEffects(group);
+        }
+
+        private static float getAverageNanos(long averages) {
+            return Float.intBitsToFloat((int) (averages >>> 32));
+        }
+
+        private static float getFilterRate(long averages) {
+            return Float.intBitsToFloat((int) averages);
+        }
+
+        void recordCall(long nanos, boolean filtered) {
+            long current;
+            long updated;
+            do {
+                current = averages.get();
+                float averageNanos = getAverageNanos(current);
+                float filterRate = getFilterRate(current);
+                averageNanos += (nanos - averageNanos) * AVERAGE_WEIGHT;
+                filterRate += ((filtered ? 1 : 0) - filterRate) * AVERAGE_WEIGHT;
+                updated = ((long) Float.floatToRawIntBits(averageNanos) << 32)
+                        | (Float.floatToRawIntBits(filterRate) & 0xFFFFFFFFL);
+            } while (!averages.compareAndSet(current, updated));
+        }
+
+        /**
+         * @return Expected time spent calling this filter for each component it filters.
+         *         Calling the filters with the lowest cost first minimizes the time to find a filter that filters.
+         *         A callback that was never called has a low cost, so it is called and measured.
+         */
+        float getCost() {
+            final long current = averages.get();
+            return (getAverageNanos(current) + 1) / (getFilterRate(current) + MINIMUM_FILTER_RATE);
+        }
+    }
+
+    /**
+     * Callbacks of all filter groups, including groups that are not enabled.
+     * Statistics are kept when the searches are rebuilt.
+     */
+    private static final List<FilterCallback> filterCallbacks = new ArrayList<>();
+
+    /**
+     * Identifier and path searches of the enabled filter groups.
+     * Both searches are replaced together, so filtering always uses searches built from the same settings.
+     */
+    private static final class SearchTrees {
+        final StringTrieSearch identifierSearchTree = new StringTrieSearch();
+        final StringTrieSearch pathSearchTree = new StringTrieSearch();
+    }
+
+    private static volatile SearchTrees searchTrees;
+
+    /**
+     * Keys of all settings used by filter groups.
+     */
+    private static final Set<String> filterSettingKeys = new HashSet<>();
+
+    private static final AtomicBoolean searchRebuildScheduled = new AtomicBoolean();
+
+    /**
+     * Listener must be strongly referenced, as shared preferences only keeps a weak reference.
+     */
+    private static final SharedPreferences.OnSharedPreferenceChangeListener preferenceChangeListener
+            = (sharedPreferences, key) -> {
+        if (filterSettingKeys.contains(key)) {
+            // Setting values are updated by other listeners, and those listeners can run after this listener.
+            Utils.runOnMainThread(LithoFilterPatch::scheduleSearchRebuild);
+        }
+    };
 
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
 
@@ -88,38 +299,228 @@ public final class LithoFilterPatch {
      */
     private static final ThreadLocal<ByteBuffer> bufferThreadLocal = new ThreadLocal<>();
 
+    /**
+     * Reusable array to hold the content of buffers that are not backed by an accessible array.
+     * Array is only increased in size and is reused for all calls by the same thread.
+     */
+    private static final ThreadLocal<byte[]> directBufferCopyThreadLocal = new ThreadLocal<>();
+
+    private static final ThreadLocal<LithoFilterParameters> parametersThreadLocal = new ThreadLocal<>() {
+        @Override
+        protected LithoFilterParameters initialValue() {
+            return new LithoFilterParameters();
+        }
+    };
+
+    /**
+     * Buffers at least this long are searched using multiple threads,
+     * if {@link Settings#LITHO_FILTER_PARALLEL_BUFFER_SEARCH} is enabled.
+     * Smaller buffers are searched faster by only the calling thread.
+     */
+    private static final int PARALLEL_BUFFER_SEARCH_MINIMUM_LENGTH = 32 * 1024;
+
+    /**
+     * Parallel search and the threads it uses, created the first time a large buffer is searched.
+     */
+    private static final class ParallelBufferSearchHolder {
+        private static final int MINIMUM_CHUNK_SIZE = 8 * 1024;
+
+        static final ParallelByteSearch SEARCH = new ParallelByteSearch(
+                Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1)),
+                MINIMUM_CHUNK_SIZE);
+    }
+
     static {
         for (Filter filter : filters) {
-            filterUsingCallbacks(identifierSearchTree, filter,
-                    filter.identifierCallbacks, Filter.FilterContentType.IDENTIFIER);
-            filterUsingCallbacks(pathSearchTree, filter,
-                    filter.pathCallbacks, Filter.FilterContentType.PATH);
+            addSettingKeys(filter.identifierCallbacks);
+            addSettingKeys(filter.pathCallbacks);
+            for (FilterGroupList<?, ?> groupList : filter.groupLists) {
+                addSettingKeys(groupList);
+            }
+            for (StringFilterGroup group : filter.identifierCallbacks) {
+                filterCallbacks.add(new FilterCallback(filter, group, Filter.FilterContentType.IDENTIFIER));
+            }
+            for (StringFilterGroup group : filter.pathCallbacks) {
+                filterCallbacks.add(new FilterCallback(filter, group, Filter.FilterContentType.PATH));
+            }
         }
+        searchTrees = buildSearchTrees();
+
+        Setting.preferences.preferences.registerOnSharedPreferenceChangeListener(preferenceChangeListener);
+
+        LithoFilterCapture.replayIfRequested();
+    }
+
+    private static void addSettingKeys(Iterable<? extends FilterGroup<?>> groups) {
+        for (FilterGroup<?> group : groups) {
+            if (group.setting != null) {
+                filterSettingKeys.add(group.setting.key);
+            }
+        }
+    }
+
+    /**
+     * @return Frozen searches of the filter groups that are currently enabled.
+     */
+    private static SearchTrees buildSearchTrees() {
+        SearchTrees trees = new SearchTrees();
+        StringTrieSearch identifierSearchTree = trees.identifierSearchTree;
+        StringTrieSearch pathSearchTree = trees.pathSearchTree;
+
+        for (FilterCallback callback : filterCallbacks) {
+            if (!callback.group.includeInSearch()) {
+                continue;
+            }
+            StringTrieSearch searchTree = (callback.type == Filter.FilterContentType.IDENTIFIER)
+                    ? identifierSearchTree
+                    : pathSearchTree;
+            for (String pattern : callback.group.filters) {
+                searchTree.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                    if (!callback.group.isEnabled()) {
+                        // Group was disabled, and the search is not yet rebuilt.
+                        return false;
+                    }
+                    // Filters are called after all matches are found, so the filters can be called in any order.
+                    ((LithoFilterParameters) callbackParameter).addMatch(callback, pattern, matchedStartIndex);
+                    return false;
+                });
+            }
+        }
+
+        final int identifierTreeMemorySize = identifierSearchTree.getEstimatedMemorySize();
+        final int pathTreeMemorySize = pathSearchTree.getEstimatedMemorySize();
+
+        // Trees are never modified after this point.
+        identifierSearchTree.freeze();
+        pathSearchTree.freeze();
 
         Logger.printDebug(() -> "Using: "
                 + identifierSearchTree.numberOfPatterns() + " identifier filters"
-                + " (" + identifierSearchTree.getEstimatedMemorySize() + " KB), "
+                + " (" + identifierTreeMemorySize + " KB tree, "
+                + identifierSearchTree.getEstimatedMemorySize() + " KB frozen), "
                 + pathSearchTree.numberOfPatterns() + " path filters"
-                + " (" + pathSearchTree.getEstimatedMemorySize() + " KB)");
+                + " (" + pathTreeMemorySize + " KB tree, "
+                + pathSearchTree.getEstimatedMemorySize() + " KB frozen)");
+
+        return trees;
     }
 
-    private static void filterUsingCallbacks(StringTrieSearch pathSearchTree,
-                                             Filter filter, List<StringFilterGroup> groups,
-                                             Filter.FilterContentType type) {
-        for (StringFilterGroup group : groups) {
-            if (!group.includeInSearch()) {
+    /**
+     * @return The parallel search to use for a buffer range of this length,
+     *         or null if the range should be searched by only the calling thread.
+     */
+    @Nullable
+    static ParallelByteSearch getParallelBufferSearch(int bufferLength) {
+        if (bufferLength < PARALLEL_BUFFER_SEARCH_MINIMUM_LENGTH
+                || !Settings.LITHO_FILTER_PARALLEL_BUFFER_SEARCH.get()) {
+            return null;
+        }
+        return ParallelBufferSearchHolder.SEARCH;
+    }
+
+    /**
+     * Rebuilds all searches on a background thread, so only the enabled filter groups are searched.
+     */
+    private static void scheduleSearchRebuild() {
+        if (!searchRebuildScheduled.compareAndSet(false, true)) {
+            return; // Rebuild is already scheduled and has not yet started.
+        }
+
+        Utils.runOnBackgroundThread(() -> {
+            try {
+                rebuildSearches();
+            } catch (Exception ex) {
+                Logger.printException(() -> "rebuildSearches failure", ex);
+            }
+        });
+    }
+
+    /**
+     * Synchronized, so a rebuild that started earlier cannot replace the searches of a later rebuild.
+     */
+    private static synchronized void rebuildSearches() {
+        // Settings changed after this point schedule another rebuild.
+        searchRebuildScheduled.set(false);
+
+        for (Filter filter : filters) {
+            for (FilterGroupList<?, ?> groupList : filter.groupLists) {
+                groupList.rebuildSearch();
+            }
+        }
+        searchTrees = buildSearchTrees();
+
+        // Cached results may have used the previous searches.
+        LithoFilterCache.invalidate("Filter settings changed");
+    }
+
+    /**
+     * Calls the filters of the matched groups, until a filter filters the component.
+     *
+     * Matches that a filter cannot filter are rejected before calling any filter,
+     * so a path exception skips the buffer searches of that filter.
+     * If {@link Settings#LITHO_FILTER_ADAPTIVE_ORDER} is enabled, then filters that are cheap
+     * and often filter are called first, and an expensive filter is not called if a cheaper filter filters.
+     * Otherwise filters are called in the order matched, identifier matches first.
+     */
+    /**
+     * @param replaying If a capture is replayed.  Filters with side effects are then skipped.
+     */
+    private static boolean callFilters(LithoFilterParameters parameters, @Nullable LithoFilterTrace.Trace trace,
+                                       boolean replaying) {
+        final boolean adaptiveOrder = Settings.LITHO_FILTER_ADAPTIVE_ORDER.get();
+        if (adaptiveOrder) {
+            parameters.sortMatchesByCost();
+        }
+        final boolean recordMetrics = LithoFilterMetrics.isEnabled();
+
+        for (int i = 0, count = parameters.matchedCount; i < count; i++) {
+            FilterCallback callback = parameters.matchedCallbacks[i];
+            Filter filter = callback.filter;
+            StringFilterGroup group = callback.group;
+            final int contentIndex = parameters.matchedIndexes[i];
+            if (replaying && callback.hasSideEffects) {
                 continue;
             }
-            for (String pattern : group.filters) {
-                pathSearchTree.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
-                            if (!group.isEnabled()) return false;
-                            LithoFilterParameters parameters = (LithoFilterParameters) callbackParameter;
-                            return filter.isFiltered(parameters.identifier, parameters.path, parameters.protoBuffer,
-                                    group, type, matchedStartIndex);
-                        }
-                );
+
+            StringBuilder path = parameters.pathBuilder;
+            if (!filter.canFilter(parameters.identifier, path, group, callback.type, contentIndex)) {
+                if (trace != null) {
+                    trace.filterRejected(filter, group, callback.type, parameters.matchedPatterns[i], contentIndex);
+                }
+                continue;
+            }
+
+            if (!adaptiveOrder && !recordMetrics && trace == null) {
+                if (filter.isFiltered(parameters.identifier, path, parameters.protoBuffer,
+                        parameters.bufferStartIndex, parameters.bufferEndIndex,
+                        group, callback.type, contentIndex)) {
+                    return true;
+                }
+                continue;
+            }
+
+            final long bytesScannedBefore = recordMetrics ? LithoFilterMetrics.getBytesScanned() : 0;
+            final long startTime = System.nanoTime();
+            final boolean filtered = filter.isFiltered(parameters.identifier, path, parameters.protoBuffer,
+                    parameters.bufferStartIndex, parameters.bufferEndIndex,
+                    group, callback.type, contentIndex);
+            final long filterNanos = System.nanoTime() - startTime;
+            if (adaptiveOrder) {
+                callback.recordCall(filterNanos, filtered);
+            }
+            if (recordMetrics) {
+                LithoFilterMetrics.recordFilter(callback.filterCounters, callback.groupCounters, filterNanos,
+                        LithoFilterMetrics.getBytesScanned() - bytesScannedBefore, filtered);
+            }
+            if (trace != null) {
+                trace.filterCalled(filter, group, callback.type, parameters.matchedPatterns[i],
+                        contentIndex, filtered, filterNanos);
+            }
+            if (filtered) {
+                return true;
             }
         }
+        return false;
     }
 
     /**
@@ -140,11 +541,54 @@ public final class LithoFilterPatch {
         }
     }
 
+    /**
+     * Copies the remaining content of a buffer that has no accessible array,
+     * into an array that is reused by the calling thread.
+     * The buffer position is not changed, as the buffer is still in use by the app.
+     *
+     * @return Array with the buffer content starting at index zero.
+     */
+    private static byte[] copyBufferContent(ByteBuffer buffer) {
+        final int position = buffer.position();
+        final int length = buffer.limit() - position;
+        byte[] array = directBufferCopyThreadLocal.get();
+        if (array == null || array.length < length) {
+            array = new byte[length];
+            directBufferCopyThreadLocal.set(array);
+        }
+        // Use absolute get methods, since ByteBuffer#get(int, byte[]) requires Android 14.
+        for (int i = 0; i < length; i++) {
+            array[i] = buffer.get(position + i);
+        }
+        return array;
+    }
+
     /**
      * Injection point.  Called off the main thread, and commonly called by multiple threads at the same time.
      */
     @SuppressWarnings("unused")
     public static boolean filter(@Nullable String lithoIdentifier, @NonNull StringBuilder pathBuilder) {
+        final boolean recordMetrics = LithoFilterMetrics.isEnabled();
+        final boolean capture = LithoFilterCapture.isEnabled();
+        if (!recordMetrics && !capture) {
+            return filterComponent(lithoIdentifier, pathBuilder);
+        }
+
+        final long startTime = System.nanoTime();
+        final boolean filtered = filterComponent(lithoIdentifier, pathBuilder);
+        final long filterNanos = System.nanoTime() - startTime;
+        if (recordMetrics) {
+            LithoFilterMetrics.recordComponent(filterNanos, filtered);
+        }
+        if (capture && pathBuilder.length() != 0) {
+            LithoFilterCapture.record(lithoIdentifier, pathBuilder, bufferThreadLocal.get(), filtered, filterNanos);
+        }
+        return filtered;
+    }
+
+    private static boolean filterComponent(@Nullable String lithoIdentifier, @NonNull StringBuilder pathBuilder) {
+        LithoFilterParameters parameter = null;
+        LithoFilterTrace.Trace trace = null;
         try {
             if (pathBuilder.length() == 0) {
                 return false;
@@ -152,31 +596,84 @@ public final class LithoFilterPatch {
 
             ByteBuffer protobufBuffer = bufferThreadLocal.get();
             final byte[] bufferArray;
+            final int bufferStartIndex;
+            final int bufferEndIndex;
             // Potentially the buffer may have been null or never set up until now.
             // Use an empty buffer so the litho id/path filters still work correctly.
             if (protobufBuffer == null) {
                 Logger.printDebug(() -> "Proto buffer is null, using an empty buffer array");
                 bufferArray = EMPTY_BYTE_ARRAY;
-            } else if (!protobufBuffer.hasArray()) {
-                Logger.printDebug(() -> "Proto buffer does not have an array, using an empty buffer array");
-                bufferArray = EMPTY_BYTE_ARRAY;
-            } else {
+                bufferStartIndex = 0;
+                bufferEndIndex = 0;
+            } else if (protobufBuffer.hasArray()) {
+                // Search only the buffer content, and not the entire backing array.
                 bufferArray = protobufBuffer.array();
+                final int arrayOffset = protobufBuffer.arrayOffset();
+                bufferStartIndex = arrayOffset + protobufBuffer.position();
+                bufferEndIndex = arrayOffset + protobufBuffer.limit();
+            } else {
+                // Direct or read only buffer.
+                bufferArray = copyBufferContent(protobufBuffer);
+                bufferStartIndex = 0;
+                bufferEndIndex = protobufBuffer.remaining();
             }
 
-            LithoFilterParameters parameter = new LithoFilterParameters(lithoIdentifier,
-                    pathBuilder.toString(), bufferArray);
-            Logger.printDebug(() -> "Searching " + parameter);
+            trace = LithoFilterTrace.start(lithoIdentifier, pathBuilder, bufferEndIndex - bufferStartIndex);
 
-            if (parameter.identifier != null && identifierSearchTree.matches(parameter.identifier, parameter)) {
-                return true;
+            parameter = parametersThreadLocal.get();
+            parameter.setValues(lithoIdentifier, pathBuilder, bufferArray, bufferStartIndex, bufferEndIndex);
+            if (BaseSettings.DEBUG.get()) {
+                // Check before logging, since the capturing lambda is a memory allocation.
+                LithoFilterParameters parameterToLog = parameter;
+                Logger.printDebug(() -> "Searching " + parameterToLog);
             }
 
-            if (pathSearchTree.matches(parameter.path, parameter)) {
-                return true;
+            SearchTrees trees = searchTrees;
+            if (lithoIdentifier != null) {
+                trees.identifierSearchTree.matches(lithoIdentifier, parameter);
             }
+            trees.pathSearchTree.matches(pathBuilder, parameter);
+
+            // The buffer is hashed only if the result can be cached,
+            // since hashing a large buffer can cost more than calling the filters.
+            // A replay measures the filters of this build, and not cache hits.
+            final boolean replaying = LithoFilterCapture.isReplayThread();
+            final boolean useCache = Settings.LITHO_FILTER_CACHE.get() && parameter.isResultCacheable() && !replaying;
+            long cacheKey = 0;
+            if (useCache) {
+                cacheKey = LithoFilterCache.createKey(lithoIdentifier, pathBuilder,
+                        bufferArray, bufferStartIndex, bufferEndIndex);
+                Boolean cachedResult = LithoFilterCache.getResult(cacheKey);
+                if (cachedResult != null) {
+                    if (trace != null) {
+                        LithoFilterTrace.finish(trace, cachedResult, true);
+                    }
+                    return cachedResult;
+                }
+            }
+
+            final boolean filtered = callFilters(parameter, trace, replaying);
+
+            if (useCache) {
+                LithoFilterCache.putResult(cacheKey, filtered);
+            }
+            if (trace != null) {
+                LithoFilterTrace.finish(trace, filtered, false);
+            }
+
+            return filtered;
         } catch (Exception ex) {
             Logger.printException(() -> "Litho filter failure", ex);
+        } finally {
+            if (trace != null) {
+                // Does nothing if the trace is finished.
+                LithoFilterTrace.discard(trace);
+            }
+            if (parameter != null) {
+                parameter.clearValues();
+                // Buffer arrays are reused, and the next component can have the same array and range.
+                ProtoBufferIndex.clearThreadIndex();
+            }
         }
 
         return false;
@@ -0,0 +1,292 @@
+package app.revanced.integrations.youtube.patches.components;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import app.revanced.integrations.youtube.settings.Settings;
+
+/**
+ * Traces a sample of the litho filter calls, to explain why a component was or was not filtered.
+ *
+ * Each traced call records the filters called, the group and pattern that matched each callback,
+ * the buffer groups that matched and where, and how long each filter took.
+ * Traces are kept in a fixed size lock free ring buffer, and the oldest traces are overwritten.
+ *
+ * Calls that are not sampled only check the setting and a per thread counter,
+ * so tracing does not require debug logging and the string building of every call.
+ */
+public final class LithoFilterTrace {
+
+    /**
+     * Number of traces kept.  Must be a power of 2.
+     */
+    private static final int RING_BUFFER_SIZE = 256;
+
+    /**
+     * Maximum events recorded per trace, to limit the memory of a trace with many matches.
+     */
+    private static final int MAXIMUM_EVENTS = 32;
+
+    private static final AtomicReferenceArray<Record> traces = new AtomicReferenceArray<>(RING_BUFFER_SIZE);
+
+    private static final AtomicLong nextTraceNumber = new AtomicLong();
+
+    private static final ThreadLocal<Trace> traceThreadLocal = new ThreadLocal<>() {
+        @Override
+        protected Trace initialValue() {
+            return new Trace();
+        }
+    };
+
+    /**
+     * A filter callback, or a filter group that matched.
+     */
+    private static final class Event {
+        final String description;
+        final long nanos;
+
+        Event(String description, long nanos) {
+            this.description = description;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Completed trace.
+     */
+    private static final class Record {
+        final long traceNumber;
+        final long time;
+        @Nullable
+        final String identifier;
+        final String path;
+        final int bufferLength;
+        final boolean filtered;
+        final boolean cached;
+        final long nanos;
+        final Event[] events;
+        final int droppedEvents;
+
+        Record(long traceNumber, Trace trace, boolean filtered, boolean cached, long nanos) {
+            this.traceNumber = traceNumber;
+            this.time = System.currentTimeMillis();
+            this.identifier = trace.identifier;
+            this.path = trace.path;
+            this.bufferLength = trace.bufferLength;
+            this.filtered = filtered;
+            this.cached = cached;
+            this.nanos = nanos;
+            this.events = trace.events.toArray(new Event[0]);
+            this.droppedEvents = trace.droppedEvents;
+        }
+
+        void appendTo(StringBuilder builder, SimpleDateFormat dateFormat) {
+            builder.append('#').append(traceNumber).append(' ').append(dateFormat.format(new Date(time)))
+                    .append(filtered ? " FILTERED" : " not filtered");
+            if (cached) {
+                builder.append(" (cached)");
+            }
+            builder.append(' ').append(nanos / 1000).append(" µs")
+                    .append("\n  ID: ").append(identifier)
+                    .append("\n  Path: ").append(path)
+                    .append("\n  Buffer: ").append(bufferLength).append(" bytes\n");
+            for (Event event : events) {
+                builder.append("  ").append(event.description);
+                if (event.nanos >= 0) {
+                    builder.append(' ').append(event.nanos / 1000).append(" µs");
+                }
+                builder.append('\n');
+            }
+            if (droppedEvents > 0) {
+                builder.append("  (").append(droppedEvents).append(" more events)\n");
+            }
+        }
+    }
+
+    /**
+     * Trace of the current call.  Each thread reuses the same instance.
+     */
+    static final class Trace {
+        private int callsSinceLastSample;
+        private boolean active;
+        private long startTime;
+        @Nullable
+        private String identifier;
+        private String path;
+        private int bufferLength;
+        private final List<Event> events = new ArrayList<>(MAXIMUM_EVENTS);
+        private int droppedEvents;
+
+        private void addEvent(String description, long nanos) {
+            if (events.size() < MAXIMUM_EVENTS) {
+                events.add(new Event(description, nanos));
+            } else {
+                droppedEvents++;
+            }
+        }
+
+        /**
+         * Records a call to a filter.
+         *
+         * @param pattern      The identifier or path pattern that matched.
+         * @param contentIndex Index of the identifier or path where the pattern matched.
+         */
+        void filterCalled(Filter filter, StringFilterGroup group, Filter.FilterContentType contentType,
+                          String pattern, int contentIndex, boolean filtered, long nanos) {
+            addEvent(filter.getClass().getSimpleName() + " " + getGroupName(group)
+                    + " matched " + contentType.name().toLowerCase(Locale.US)
+                    + " '" + pattern + "' at " + contentIndex
+                    + (filtered ? ": filtered" : ": not filtered"), nanos);
+        }
+
+        /**
+         * Records a match that the filter was not called for, because the filter cannot filter the match.
+         */
+        void filterRejected(Filter filter, StringFilterGroup group, Filter.FilterContentType contentType,
+                            String pattern, int contentIndex) {
+            addEvent(filter.getClass().getSimpleName() + " " + getGroupName(group)
+                    + " matched " + contentType.name().toLowerCase(Locale.US)
+                    + " '" + pattern + "' at " + contentIndex + ": rejected", -1);
+        }
+
+        /**
+         * Records a group that matched while a filter checked the identifier, path or buffer.
+         *
+         * @param matchedIndex Index where the group pattern matched.
+         */
+        void groupMatched(FilterGroup<?> group, int matchedIndex) {
+            addEvent("  group " + getGroupName(group) + " matched at " + matchedIndex, -1);
+        }
+
+        private void clear() {
+            active = false;
+            identifier = null;
+            path = null;
+            events.clear();
+            droppedEvents = 0;
+        }
+    }
+
+    private LithoFilterTrace() {
+    }
+
+    static boolean isEnabled() {
+        return Settings.DEBUG_LITHO_FILTER_TRACE.get();
+    }
+
+    private static String getGroupName(FilterGroup<?> group) {
+        if (group.setting != null) {
+            return group.setting.key;
+        }
+        Object firstFilter = group.filters[0];
+        return (firstFilter instanceof byte[])
+                ? new String((byte[]) firstFilter)
+                : String.valueOf(firstFilter);
+    }
+
+    /**
+     * Starts a trace, if tracing is enabled and the call is sampled.
+     *
+     * @return The trace, or null if this call is not traced.
+     */
+    @Nullable
+    static Trace start(@Nullable String identifier, StringBuilder pathBuilder, int bufferLength) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Trace trace = traceThreadLocal.get();
+        final int sampleRate = Math.max(1, Settings.DEBUG_LITHO_FILTER_TRACE_SAMPLE_RATE.get());
+        if (++trace.callsSinceLastSample < sampleRate) {
+            return null;
+        }
+        trace.callsSinceLastSample = 0;
+
+        trace.clear();
+        trace.active = true;
+        trace.identifier = identifier;
+        trace.path = pathBuilder.toString();
+        trace.bufferLength = bufferLength;
+        trace.startTime = System.nanoTime();
+        return trace;
+    }
+
+    /**
+     * @return The trace of the current call, or null if this call is not traced.
+     */
+    @Nullable
+    static Trace current() {
+        if (!isEnabled()) {
+            return null;
+        }
+        Trace trace = traceThreadLocal.get();
+        return trace.active ? trace : null;
+    }
+
+    /**
+     * Completes a trace, and adds it to the ring buffer.
+     */
+    static void finish(Trace trace, boolean filtered, boolean cached) {
+        if (!trace.active) {
+            return;
+        }
+        final long nanos = System.nanoTime() - trace.startTime;
+        final long traceNumber = nextTraceNumber.getAndIncrement();
+        traces.set((int) (traceNumber & (RING_BUFFER_SIZE - 1)),
+                new Record(traceNumber, trace, filtered, cached, nanos));
+        trace.clear();
+    }
+
+    /**
+     * Ends a trace without recording it.  Used if filtering fails.
+     */
+    static void discard(Trace trace) {
+        trace.clear();
+    }
+
+    /**
+     * Clears all traces.
+     */
+    public static void reset() {
+        for (int i = 0; i < RING_BUFFER_SIZE; i++) {
+            traces.set(i, null);
+        }
+    }
+
+    /**
+     * @return All traces as text, oldest first.
+     */
+    @NonNull
+    public static String getReport() {
+        List<Record> records = new ArrayList<>(RING_BUFFER_SIZE);
+        for (int i = 0; i < RING_BUFFER_SIZE; i++) {
+            Record record = traces.get(i);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        Collections.sort(records, (first, second) -> Long.compare(first.traceNumber, second.traceNumber));
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(records.size()).append(" litho filter traces");
+        if (!isEnabled()) {
+            builder.append(" (tracing is off)");
+        }
+        builder.append("\n\n");
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        for (Record record : records) {
+            record.appendTo(builder, dateFormat);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -19,10 +19,16 @@ public final class PlaybackSpeedMenuFilterPatch extends Filter {
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         isPlaybackSpeedMenuVisible = true;
 
         return false;
     }
+
+    @Override
+    boolean hasSideEffects(StringFilterGroup matchedGroup) {
+        return true;
+    }
 }
@@ -76,13 +76,17 @@ public class PlayerFlyoutMenuItemsFilter extends Filter {
                         "yt_outline_vr"
                 )
         );
+
+        addGroupLists(flyoutFilterGroupList);
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (matchedGroup == videoQualityMenuFooter) {
-            return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+            return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                    matchedGroup, contentType, contentIndex);
         }
 
         if (contentIndex != 0) {
@@ -90,13 +94,15 @@ public class PlayerFlyoutMenuItemsFilter extends Filter {
         }
 
         // Shorts also use this player flyout panel
-        if (PlayerType.getCurrent().isNoneOrHidden() || exception.check(protobufBufferArray).isFiltered()) {
+        if (PlayerType.getCurrent().isNoneOrHidden()
+                || exception.check(protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
             return false;
         }
 
-        if (flyoutFilterGroupList.check(protobufBufferArray).isFiltered()) {
+        if (flyoutFilterGroupList.check(protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
             // Super class handles logging.
-            return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+            return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                    matchedGroup, contentType, contentIndex);
         }
 
         return false;
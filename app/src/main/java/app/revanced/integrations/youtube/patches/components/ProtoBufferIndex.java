@@ -0,0 +1,290 @@
+package app.revanced.integrations.youtube.patches.components;
+
+import androidx.annotation.Nullable;
+
+import app.revanced.integrations.youtube.ParallelByteSearch;
+
+/**
+ * Index of the UTF-8 string fields of a proto buffer.
+ *
+ * The buffer is tokenized using the protobuf wire format, without a schema.
+ * Length delimited fields that are valid text are indexed as strings,
+ * and other length delimited fields are parsed as embedded messages.
+ * Fields that are neither (such as images or other binary data) can contain text
+ * that is not indexed, so the index is then not valid.
+ *
+ * Filters can search only the string fields, instead of all bytes of the buffer.
+ * That is faster and prevents matches that span multiple fields or are inside binary data.
+ *
+ * If the buffer is not a valid proto message, has binary data that is not an embedded message,
+ * or has messages nested deeper than {@link #MAXIMUM_MESSAGE_DEPTH},
+ * then the index is not valid and callers must search the entire buffer instead.
+ *
+ * Each thread reuses the same index for all buffers, and indexing does not allocate memory
+ * (except to grow the index if a buffer has more strings than any previous buffer).
+ *
+ * String fields are indexed in the order they appear in the buffer.
+ */
+final class ProtoBufferIndex implements ParallelByteSearch.Ranges {
+
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_FIXED_64 = 1;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_TYPE_FIXED_32 = 5;
+
+    /**
+     * Maximum depth of embedded messages that are parsed.
+     * Limits the parsing time of binary data that happens to be a valid message.
+     * Deeper messages are not indexed, and the index is then not valid.
+     */
+    private static final int MAXIMUM_MESSAGE_DEPTH = 32;
+
+    private static final ThreadLocal<ProtoBufferIndex> indexThreadLocal = new ThreadLocal<>() {
+        @Override
+        protected ProtoBufferIndex initialValue() {
+            return new ProtoBufferIndex();
+        }
+    };
+
+    /**
+     * @return The index of the buffer content. The index is reused by the calling thread,
+     *         and is valid only until the current litho component is done filtering.
+     */
+    static ProtoBufferIndex getIndex(byte[] buffer, int bufferStartIndex, int bufferEndIndex) {
+        ProtoBufferIndex index = indexThreadLocal.get();
+        if (index.buffer != buffer || index.bufferStartIndex != bufferStartIndex
+                || index.bufferEndIndex != bufferEndIndex) {
+            index.build(buffer, bufferStartIndex, bufferEndIndex);
+        }
+        return index;
+    }
+
+    /**
+     * Clears the index of the calling thread.  Must be called after each litho component is filtered,
+     * since the same buffer array can be reused with different content.
+     */
+    static void clearThreadIndex() {
+        indexThreadLocal.get().clear();
+    }
+
+    @Nullable
+    private byte[] buffer;
+    private int bufferStartIndex;
+    private int bufferEndIndex;
+    private boolean valid;
+
+    private int stringCount;
+    private int[] stringStartIndexes = new int[64];
+    private int[] stringEndIndexes = new int[64];
+
+    /**
+     * Value of the last varint read.
+     */
+    private long varintValue;
+
+    private ProtoBufferIndex() {
+    }
+
+    private void clear() {
+        buffer = null;
+        bufferStartIndex = 0;
+        bufferEndIndex = 0;
+        valid = false;
+        stringCount = 0;
+    }
+
+    private void build(byte[] buffer, int bufferStartIndex, int bufferEndIndex) {
+        this.buffer = buffer;
+        this.bufferStartIndex = bufferStartIndex;
+        this.bufferEndIndex = bufferEndIndex;
+        stringCount = 0;
+
+        valid = parseMessage(buffer, bufferStartIndex, bufferEndIndex, 0);
+        if (!valid) {
+            stringCount = 0;
+        }
+    }
+
+    /**
+     * @return If the buffer is a valid proto message. If false, callers must search the entire buffer.
+     */
+    boolean isValid() {
+        return valid;
+    }
+
+    int getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * @return Start index of a string field content, inclusive.
+     */
+    int getStringStartIndex(int stringIndex) {
+        return stringStartIndexes[stringIndex];
+    }
+
+    /**
+     * @return End index of a string field content, exclusive.
+     */
+    int getStringEndIndex(int stringIndex) {
+        return stringEndIndexes[stringIndex];
+    }
+
+    @Override
+    public int getRangeCount() {
+        return stringCount;
+    }
+
+    @Override
+    public int getRangeStartIndex(int rangeIndex) {
+        return stringStartIndexes[rangeIndex];
+    }
+
+    @Override
+    public int getRangeEndIndex(int rangeIndex) {
+        return stringEndIndexes[rangeIndex];
+    }
+
+    /**
+     * @return If the range is a complete and valid proto message.
+     */
+    private boolean parseMessage(byte[] buffer, int startIndex, int endIndex, int depth) {
+        int i = startIndex;
+        while (i < endIndex) {
+            i = readVarint(buffer, i, endIndex);
+            if (i < 0) {
+                return false;
+            }
+            final long key = varintValue;
+            if ((key >>> 3) == 0) {
+                return false; // Field number zero is not valid.
+            }
+
+            switch ((int) key & 7) {
+                case WIRE_TYPE_VARINT:
+                    i = readVarint(buffer, i, endIndex);
+                    if (i < 0) {
+                        return false;
+                    }
+                    break;
+                case WIRE_TYPE_FIXED_64:
+                    i += 8;
+                    break;
+                case WIRE_TYPE_FIXED_32:
+                    i += 4;
+                    break;
+                case WIRE_TYPE_LENGTH_DELIMITED:
+                    i = readVarint(buffer, i, endIndex);
+                    if (i < 0) {
+                        return false;
+                    }
+                    final long length = varintValue;
+                    if (length < 0 || length > endIndex - i) {
+                        return false;
+                    }
+                    final int fieldEndIndex = i + (int) length;
+                    if (length > 0 && !addLengthDelimitedField(buffer, i, fieldEndIndex, depth)) {
+                        return false;
+                    }
+                    i = fieldEndIndex;
+                    break;
+                default:
+                    // Deprecated groups or invalid data.
+                    return false;
+            }
+        }
+
+        return i == endIndex;
+    }
+
+    /**
+     * @return If the field is text or a valid embedded message.
+     *         False if the field is binary data or is nested too deep,
+     *         as then the field content is not indexed.
+     */
+    private boolean addLengthDelimitedField(byte[] buffer, int startIndex, int endIndex, int depth) {
+        if (isText(buffer, startIndex, endIndex)) {
+            addString(startIndex, endIndex);
+            return true;
+        }
+
+        return depth < MAXIMUM_MESSAGE_DEPTH
+                && parseMessage(buffer, startIndex, endIndex, depth + 1);
+    }
+
+    private void addString(int startIndex, int endIndex) {
+        final int count = stringCount;
+        if (count == stringStartIndexes.length) {
+            final int newLength = count * 2;
+            int[] startIndexes = new int[newLength];
+            int[] endIndexes = new int[newLength];
+            System.arraycopy(stringStartIndexes, 0, startIndexes, 0, count);
+            System.arraycopy(stringEndIndexes, 0, endIndexes, 0, count);
+            stringStartIndexes = startIndexes;
+            stringEndIndexes = endIndexes;
+        }
+        stringStartIndexes[count] = startIndex;
+        stringEndIndexes[count] = endIndex;
+        stringCount = count + 1;
+    }
+
+    /**
+     * Reads a varint into {@link #varintValue}.
+     *
+     * @return Index after the varint, or -1 if the varint is not valid.
+     */
+    private int readVarint(byte[] buffer, int index, int endIndex) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (index >= endIndex) {
+                return -1;
+            }
+            final int b = buffer[index++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                varintValue = value;
+                return index;
+            }
+        }
+        return -1; // Longer than 10 bytes.
+    }
+
+    /**
+     * @return If the range is valid UTF-8 without control characters (other than whitespace).
+     */
+    private static boolean isText(byte[] buffer, int startIndex, int endIndex) {
+        int i = startIndex;
+        while (i < endIndex) {
+            final int b = buffer[i] & 0xFF;
+            if (b < 0x80) {
+                if ((b < 0x20 && b != '\t' && b != '\n' && b != '\r') || b == 0x7F) {
+                    return false;
+                }
+                i++;
+                continue;
+            }
+
+            final int continuationBytes;
+            if (b >= 0xC2 && b <= 0xDF) {
+                continuationBytes = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuationBytes = 2;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuationBytes = 3;
+            } else {
+                return false;
+            }
+            if (i + continuationBytes >= endIndex) {
+                return false;
+            }
+            for (int j = 1; j <= continuationBytes; j++) {
+                if ((buffer[i + j] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += continuationBytes + 1;
+        }
+
+        return true;
+    }
+}
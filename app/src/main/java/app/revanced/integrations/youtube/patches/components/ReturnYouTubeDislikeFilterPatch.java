@@ -1,18 +1,14 @@
 package app.revanced.integrations.youtube.patches.components;
 
-import androidx.annotation.GuardedBy;
-import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import app.revanced.integrations.youtube.patches.ReturnYouTubeDislikePatch;
 import app.revanced.integrations.youtube.patches.VideoInformation;
 import app.revanced.integrations.youtube.settings.Settings;
 import app.revanced.integrations.shared.Logger;
-import app.revanced.integrations.youtube.TrieSearch;
+import app.revanced.integrations.youtube.VideoIdSearch;
 
 /**
  * Searches for video id's in the proto buffer of Shorts dislike.
@@ -29,22 +25,16 @@ import app.revanced.integrations.youtube.TrieSearch;
 public final class ReturnYouTubeDislikeFilterPatch extends Filter {
 
     /**
-     * Last unique video id's loaded.  Value is ignored and Map is treated as a Set.
-     * Cannot use {@link LinkedHashSet} because it's missing #removeEldestEntry().
+     * Number of video id's to keep track of for searching thru the buffer.
+     * A minimum value of 3 should be sufficient, but check a few more just in case.
      */
-    @GuardedBy("itself")
-    private static final Map<String, Boolean> lastVideoIds = new LinkedHashMap<>() {
-        /**
-         * Number of video id's to keep track of for searching thru the buffer.
-         * A minimum value of 3 should be sufficient, but check a few more just in case.
-         */
-        private static final int NUMBER_OF_LAST_VIDEO_IDS_TO_TRACK = 5;
-
-        @Override
-        protected boolean removeEldestEntry(Entry eldest) {
-            return size() > NUMBER_OF_LAST_VIDEO_IDS_TO_TRACK;
-        }
-    };
+    private static final int NUMBER_OF_LAST_VIDEO_IDS_TO_TRACK = 5;
+
+    /**
+     * Last unique video id's loaded, in the order loaded.
+     * Each new id replaces the search with a copy, so the litho threads search without any lock.
+     */
+    private static final AtomicReference<VideoIdSearch> lastVideoIds = new AtomicReference<>(VideoIdSearch.EMPTY);
 
     /**
      * Injection point.
@@ -55,9 +45,15 @@ public final class ReturnYouTubeDislikeFilterPatch extends Filter {
             if (!isShortAndOpeningOrPlaying || !Settings.RYD_ENABLED.get() || !Settings.RYD_SHORTS.get()) {
                 return;
             }
-            synchronized (lastVideoIds) {
-                if (lastVideoIds.put(videoId, Boolean.TRUE) == null) {
+            while (true) {
+                VideoIdSearch current = lastVideoIds.get();
+                VideoIdSearch updated = current.withVideoId(videoId, NUMBER_OF_LAST_VIDEO_IDS_TO_TRACK);
+                if (updated == current) {
+                    return; // Already tracked.
+                }
+                if (lastVideoIds.compareAndSet(current, updated)) {
                     Logger.printDebug(() -> "New Short video id: " + videoId);
+                    return;
                 }
             }
         } catch (Exception ex) {
@@ -86,18 +82,21 @@ public final class ReturnYouTubeDislikeFilterPatch extends Filter {
                 new ByteArrayFilterGroup(null, "ic_right_dislike_on_shadowed"),
                 new ByteArrayFilterGroup(null, "ic_right_dislike_off_shadowed")
         );
+
+        addGroupLists(videoIdFilterGroup);
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (!Settings.RYD_ENABLED.get() || !Settings.RYD_SHORTS.get()) {
             return false;
         }
 
-        FilterGroup.FilterGroupResult result = videoIdFilterGroup.check(protobufBufferArray);
+        FilterGroup.FilterGroupResult result = videoIdFilterGroup.check(protobufBufferArray, bufferStartIndex, bufferEndIndex);
         if (result.isFiltered()) {
-            String matchedVideoId = findVideoId(protobufBufferArray);
+            String matchedVideoId = findVideoId(protobufBufferArray, bufferStartIndex, bufferEndIndex);
             // Matched video will be null if in incognito mode.
             // Must pass a null id to correctly clear out the current video data.
             // Otherwise if a Short is opened in non-incognito, then incognito is enabled and another Short is opened,
@@ -108,37 +107,24 @@ public final class ReturnYouTubeDislikeFilterPatch extends Filter {
         return false;
     }
 
+    /**
+     * Searches the entire buffer, as the video id can be in binary data that is not a string field.
+     * If more than one video id is found, the id that was loaded first is used.
+     */
     @Nullable
-    private String findVideoId(byte[] protobufBufferArray) {
-        synchronized (lastVideoIds) {
-            for (String videoId : lastVideoIds.keySet()) {
-                if (byteArrayContainsString(protobufBufferArray, videoId)) {
-                    return videoId;
-                }
-            }
-
+    private String findVideoId(byte[] protobufBufferArray, int bufferStartIndex, int bufferEndIndex) {
+        VideoIdSearch search = lastVideoIds.get();
+        if (search.isEmpty()) {
             return null;
         }
-    }
 
-    /**
-     * This could use {@link TrieSearch}, but since the patterns are constantly changing
-     * the overhead of updating the Trie might negate the search performance gain.
-     */
-    private static boolean byteArrayContainsString(@NonNull byte[] array, @NonNull String text) {
-        for (int i = 0, lastArrayStartIndex = array.length - text.length(); i <= lastArrayStartIndex; i++) {
-            boolean found = true;
-            for (int j = 0, textLength = text.length(); j < textLength; j++) {
-                if (array[i + j] != (byte) text.charAt(j)) {
-                    found = false;
-                    break;
-                }
-            }
-            if (found) {
-                return true;
-            }
-        }
+        LithoFilterMetrics.recordBytesScanned(bufferStartIndex, bufferEndIndex);
+        final int found = search.findIndex(protobufBufferArray, bufferStartIndex, bufferEndIndex);
+        return found < 0 ? null : search.getVideoId(found);
+    }
 
-        return false;
+    @Override
+    boolean hasSideEffects(StringFilterGroup matchedGroup) {
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -253,6 +253,8 @@ public final class ShortsFilter extends Filter {
                         "yt_outline_hashtag_"
                 )
         );
+
+        addGroupLists(videoActionButtonGroupList, suggestedActionsGroupList);
     }
 
     private boolean isEverySuggestedActionFilterEnabled() {
@@ -266,28 +268,33 @@ public final class ShortsFilter extends Filter {
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (contentType == FilterContentType.PATH) {
             if (matchedGroup == subscribeButton || matchedGroup == joinButton || matchedGroup == paidPromotionButton) {
                 // Selectively filter to avoid false positive filtering of other subscribe/join buttons.
-                if (path.startsWith(REEL_CHANNEL_BAR_PATH) || path.startsWith(REEL_METAPANEL_PATH)) {
-                    return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+                if (Utils.startsWith(path, REEL_CHANNEL_BAR_PATH) || Utils.startsWith(path, REEL_METAPANEL_PATH)) {
+                    return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                            matchedGroup, contentType, contentIndex);
                 }
                 return false;
             }
 
             if (matchedGroup == shortsCompactFeedVideoPath) {
-                if (shouldHideShortsFeedItems() && shortsCompactFeedVideoBuffer.check(protobufBufferArray).isFiltered()) {
-                    return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+                if (shouldHideShortsFeedItems() && shortsCompactFeedVideoBuffer.check(
+                        protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
+                    return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                            matchedGroup, contentType, contentIndex);
                 }
                 return false;
             }
 
             // Video action buttons (like, dislike, comment, share, remix) have the same path.
             if (matchedGroup == actionBar) {
-                if (videoActionButtonGroupList.check(protobufBufferArray).isFiltered()) {
-                    return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+                if (videoActionButtonGroupList.checkStringFields(protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
+                    return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                            matchedGroup, contentType, contentIndex);
                 }
                 return false;
             }
@@ -297,11 +304,13 @@ public final class ShortsFilter extends Filter {
                 // This has a secondary effect of hiding all new un-identified actions
                 // under the assumption that the user wants all actions hidden.
                 if (isEverySuggestedActionFilterEnabled()) {
-                    return super.isFiltered(path, identifier, protobufBufferArray, matchedGroup, contentType, contentIndex);
+                    return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                            matchedGroup, contentType, contentIndex);
                 }
 
-                if (suggestedActionsGroupList.check(protobufBufferArray).isFiltered()) {
-                    return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+                if (suggestedActionsGroupList.checkStringFields(protobufBufferArray, bufferStartIndex, bufferEndIndex).isFiltered()) {
+                    return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                            matchedGroup, contentType, contentIndex);
                 }
                 return false;
             }
@@ -318,7 +327,8 @@ public final class ShortsFilter extends Filter {
         }
 
         // Super class handles logging.
-        return super.isFiltered(identifier, path, protobufBufferArray, matchedGroup, contentType, contentIndex);
+        return super.isFiltered(identifier, path, protobufBufferArray, bufferStartIndex, bufferEndIndex,
+                matchedGroup, contentType, contentIndex);
     }
 
     private static boolean shouldHideShortsFeedItems() {
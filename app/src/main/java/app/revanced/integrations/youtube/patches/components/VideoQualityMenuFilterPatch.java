@@ -21,10 +21,16 @@ public final class VideoQualityMenuFilterPatch extends Filter {
     }
 
     @Override
-    boolean isFiltered(@Nullable String identifier, String path, byte[] protobufBufferArray,
+    boolean isFiltered(@Nullable String identifier, CharSequence path, byte[] protobufBufferArray,
+                       int bufferStartIndex, int bufferEndIndex,
                        StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         isVideoQualityMenuVisible = true;
 
         return false;
     }
+
+    @Override
+    boolean hasSideEffects(StringFilterGroup matchedGroup) {
+        return true;
+    }
 }
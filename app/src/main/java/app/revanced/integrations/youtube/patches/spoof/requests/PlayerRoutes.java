@@ -14,18 +14,20 @@ import app.revanced.integrations.youtube.requests.Route;
 final class PlayerRoutes {
     private static final String YT_API_URL = "https://youtubei.googleapis.com/youtubei/v1/";
 
+    /**
+     * TCP connection and HTTP read timeout
+     */
+    static final int CONNECTION_TIMEOUT_MILLISECONDS = 10 * 1000; // 10 Seconds.
+
     static final Route.CompiledRoute GET_STREAMING_DATA = new Route(
             Route.Method.POST,
             "player" +
                     "?fields=streamingData" +
-                    "&alt=proto"
+                    "&alt=proto",
+            CONNECTION_TIMEOUT_MILLISECONDS,
+            CONNECTION_TIMEOUT_MILLISECONDS
     ).compile();
 
-    /**
-     * TCP connection and HTTP read timeout
-     */
-    private static final int CONNECTION_TIMEOUT_MILLISECONDS = 10 * 1000; // 10 Seconds.
-
     private PlayerRoutes() {
     }
 
@@ -66,9 +68,6 @@ final class PlayerRoutes {
 
         connection.setUseCaches(false);
         connection.setDoOutput(true);
-
-        connection.setConnectTimeout(CONNECTION_TIMEOUT_MILLISECONDS);
-        connection.setReadTimeout(CONNECTION_TIMEOUT_MILLISECONDS);
         return connection;
     }
 }
\ No newline at end of file
@@ -60,12 +60,7 @@ public class StreamingDataRequest {
     };
 
     /**
-     * TCP connection and HTTP read timeout.
-     */
-    private static final int HTTP_TIMEOUT_MILLISECONDS = 10 * 1000;
-
-    /**
-     * Any arbitrarily large value, but must be at least twice {@link #HTTP_TIMEOUT_MILLISECONDS}
+     * Any arbitrarily large value, but must be at least twice {@link PlayerRoutes#CONNECTION_TIMEOUT_MILLISECONDS}
      */
     private static final int MAX_MILLISECONDS_TO_WAIT_FOR_FETCH = 20 * 1000;
 
@@ -115,8 +110,6 @@ public class StreamingDataRequest {
 
         try {
             HttpURLConnection connection = PlayerRoutes.getPlayerResponseConnectionFromRoute(GET_STREAMING_DATA, clientType);
-            connection.setConnectTimeout(HTTP_TIMEOUT_MILLISECONDS);
-            connection.setReadTimeout(HTTP_TIMEOUT_MILLISECONDS);
 
             for (String key : REQUEST_HEADER_KEYS) {
                 String value = playerHeaders.get(key);
@@ -0,0 +1,278 @@
+package app.revanced.integrations.youtube.requests;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import app.revanced.integrations.shared.Logger;
+import app.revanced.integrations.shared.Utils;
+
+/**
+ * Stores the responses of cached {@link Route}s in the app cache directory,
+ * with the validators used to revalidate the response with the server.
+ *
+ * Each response is a separate file named by a hash of the url.
+ * Files are written to a temporary file and then renamed, so a file is never read while it is written.
+ * When there are too many files, the least recently fetched are deleted.
+ */
+final class DiskResponseCache {
+
+    private static final String DIRECTORY_NAME = "revanced_response_cache";
+
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    /**
+     * Changed if the file format changes.  Files of other versions are ignored.
+     */
+    private static final int FILE_FORMAT_VERSION = 1;
+
+    /**
+     * Responses larger than this are not cached.
+     */
+    static final int MAXIMUM_BODY_LENGTH = 256 * 1024;
+
+    /**
+     * Number of files kept after trimming.  RYD votes are less than 1 KB,
+     * and most SponsorBlock segment responses are a few KB.
+     */
+    private static final int MAXIMUM_ENTRIES = 1000;
+
+    /**
+     * Number of writes between checking if the cache needs trimming.
+     */
+    private static final int WRITES_BETWEEN_TRIMS = 50;
+
+    private static final AtomicInteger writesSinceLastTrim = new AtomicInteger(WRITES_BETWEEN_TRIMS);
+
+    @Nullable
+    private static volatile File directory;
+
+    static final class Entry {
+        @NonNull
+        final String url;
+        /**
+         * System time of when the response was fetched or last revalidated.
+         */
+        final long fetchTime;
+        @Nullable
+        final String eTag;
+        @Nullable
+        final String lastModified;
+        final int responseCode;
+        @NonNull
+        final byte[] body;
+
+        Entry(@NonNull String url, long fetchTime, @Nullable String eTag, @Nullable String lastModified,
+              int responseCode, @NonNull byte[] body) {
+            this.url = url;
+            this.fetchTime = fetchTime;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.responseCode = responseCode;
+            this.body = body;
+        }
+
+        long getAge() {
+            return Math.max(0, System.currentTimeMillis() - fetchTime);
+        }
+
+        /**
+         * @return A copy of this entry, with the fetch time of now and the validators of a revalidation.
+         */
+        Entry revalidated(@Nullable String newETag, @Nullable String newLastModified) {
+            return new Entry(url, System.currentTimeMillis(),
+                    newETag != null ? newETag : eTag,
+                    newLastModified != null ? newLastModified : lastModified,
+                    responseCode, body);
+        }
+    }
+
+    private DiskResponseCache() {
+    }
+
+    @Nullable
+    private static File getDirectory() {
+        File dir = directory;
+        if (dir == null) {
+            Context context = Utils.getContext();
+            if (context == null) {
+                return null;
+            }
+            dir = new File(context.getCacheDir(), DIRECTORY_NAME);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                Logger.printDebug(() -> "Could not create response cache directory");
+                return null;
+            }
+            directory = dir;
+        }
+        return dir;
+    }
+
+    @Nullable
+    private static File getFile(String url) {
+        File dir = getDirectory();
+        if (dir == null) {
+            return null;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0x0F, 16))
+                        .append(Character.forDigit(b & 0x0F, 16));
+            }
+            return new File(dir, name.toString());
+        } catch (NoSuchAlgorithmException ex) {
+            Logger.printException(() -> "Could not hash url", ex); // Should never happen.
+            return null;
+        }
+    }
+
+    /**
+     * @return The cached response of the url, or null if not cached.
+     */
+    @Nullable
+    static Entry get(@NonNull String url) {
+        File file = getFile(url);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_FORMAT_VERSION || !url.equals(in.readUTF())) {
+                return null;
+            }
+            final long fetchTime = in.readLong();
+            final String eTag = in.readBoolean() ? in.readUTF() : null;
+            final String lastModified = in.readBoolean() ? in.readUTF() : null;
+            final int responseCode = in.readInt();
+            final int bodyLength = in.readInt();
+            if (bodyLength < 0 || bodyLength > MAXIMUM_BODY_LENGTH) {
+                return null;
+            }
+            byte[] body = new byte[bodyLength];
+            in.readFully(body);
+            return new Entry(url, fetchTime, eTag, lastModified, responseCode, body);
+        } catch (IOException ex) {
+            Logger.printInfo(() -> "Could not read cached response: " + url, ex);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+    }
+
+    static void put(@NonNull Entry entry) {
+        if (entry.body.length > MAXIMUM_BODY_LENGTH) {
+            return;
+        }
+        File file = getFile(entry.url);
+        if (file == null) {
+            return;
+        }
+        File temporaryFile = null;
+        try {
+            temporaryFile = File.createTempFile(file.getName(), TEMPORARY_FILE_SUFFIX, file.getParentFile());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                out.writeInt(FILE_FORMAT_VERSION);
+                out.writeUTF(entry.url);
+                out.writeLong(entry.fetchTime);
+                writeNullableString(out, entry.eTag);
+                writeNullableString(out, entry.lastModified);
+                out.writeInt(entry.responseCode);
+                out.writeInt(entry.body.length);
+                out.write(entry.body);
+            }
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("Could not rename: " + temporaryFile);
+            }
+            temporaryFile = null;
+        } catch (IOException ex) {
+            Logger.printInfo(() -> "Could not write cached response: " + entry.url, ex);
+        } finally {
+            if (temporaryFile != null) {
+                //noinspection ResultOfMethodCallIgnored
+                temporaryFile.delete();
+            }
+        }
+
+        if (writesSinceLastTrim.incrementAndGet() >= WRITES_BETWEEN_TRIMS) {
+            writesSinceLastTrim.set(0);
+            Utils.runOnBackgroundThread(DiskResponseCache::trim);
+        }
+    }
+
+    static void remove(@NonNull String url) {
+        File file = getFile(url);
+        if (file != null) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Deletes the least recently fetched responses, if there are more than {@link #MAXIMUM_ENTRIES}.
+     */
+    private static void trim() {
+        File dir = getDirectory();
+        if (dir == null) {
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= MAXIMUM_ENTRIES) {
+            return;
+        }
+        final int count = files.length;
+        long[] lastModified = new long[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        // Newest first.
+        Arrays.sort(order, (first, second) -> Long.compare(lastModified[second], lastModified[first]));
+        for (int i = MAXIMUM_ENTRIES; i < count; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            files[order[i]].delete();
+        }
+        Logger.printDebug(() -> "Trimmed response cache from " + count + " files");
+    }
+
+    /**
+     * Deletes all cached responses.
+     */
+    static void clear() {
+        File dir = getDirectory();
+        if (dir == null) {
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+}
@@ -1,21 +1,134 @@
 package app.revanced.integrations.youtube.requests;
 
+import android.util.JsonReader;
+import android.util.MalformedJsonException;
+
+import androidx.annotation.Nullable;
+
+import app.revanced.integrations.shared.Logger;
 import app.revanced.integrations.shared.Utils;
+import app.revanced.integrations.youtube.settings.Settings;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Creates the connections of all API requests.
+ *
+ * Connections use the platform connection pool, which keeps idle connections to each host alive
+ * and reuses them for later requests to the same host.  A connection can be reused only if the
+ * response is completely read, so responses that are not needed should be discarded using
+ * {@link #releaseConnection(HttpURLConnection)} instead of disconnecting.
+ *
+ * Responses of routes that are cached are stored on disk, see {@link #getResponse(Route, HttpURLConnection)}.
+ */
 public class Requester {
+    /**
+     * Creates an object from a JSON value, while reading the value from a response stream.
+     */
+    public interface JSONStreamParser<T> {
+        /**
+         * Must read exactly one JSON value from the reader.
+         *
+         * @return The parsed object, or null if the value should be ignored.
+         * @throws JSONException If the value is missing data or the data makes no sense.
+         */
+        @Nullable
+        T parse(JsonReader reader) throws IOException, JSONException;
+    }
+
+    /**
+     * Largest response that {@link #releaseConnection(HttpURLConnection)} reads and discards.
+     * Larger responses are not read and the connection is closed instead.
+     */
+    private static final int MAXIMUM_DISCARDED_RESPONSE_LENGTH = 64 * 1024;
+
+    /**
+     * Response of {@link #getResponse(Route, HttpURLConnection)}, from the server or from the disk cache.
+     */
+    public static final class Response {
+        private final int responseCode;
+        /**
+         * Connection with the response data not yet read, or null if the data is in {@link #body}.
+         */
+        @Nullable
+        private final HttpURLConnection connection;
+        @Nullable
+        private final byte[] body;
+        private final boolean fromNetwork;
+        private final boolean stale;
+
+        private Response(int responseCode, @Nullable HttpURLConnection connection, @Nullable byte[] body,
+                         boolean fromNetwork, boolean stale) {
+            this.responseCode = responseCode;
+            this.connection = connection;
+            this.body = body;
+            this.fromNetwork = fromNetwork;
+            this.stale = stale;
+        }
+
+        public int getResponseCode() {
+            return responseCode;
+        }
+
+        /**
+         * @return If the server was contacted, including to revalidate a cached response.
+         */
+        public boolean isFromNetwork() {
+            return fromNetwork;
+        }
+
+        /**
+         * @return If this is an expired cached response, from {@link #getStaleResponse(Route, HttpURLConnection)}.
+         */
+        public boolean isStale() {
+            return stale;
+        }
+
+        /**
+         * Can only be called once.
+         */
+        public InputStream getInputStream() throws IOException {
+            if (connection != null) {
+                return connection.getInputStream();
+            }
+            return new ByteArrayInputStream(body);
+        }
+
+        /**
+         * Discards the response, if the response data is not used.
+         *
+         * @see #releaseConnection(HttpURLConnection)
+         */
+        public void release() {
+            if (connection != null) {
+                releaseConnection(connection);
+            }
+        }
+    }
+
     private Requester() {
     }
 
+    /**
+     * @return Key of a request, for {@link Utils#submitOnBackgroundThreadCoalesced(Object, java.util.concurrent.Callable)}.
+     */
+    public static String getRequestKey(String apiUrl, Route route, String... params) {
+        return route.getMethod().name() + " " + apiUrl + route.compile(params).getCompiledRoute();
+    }
+
     public static HttpURLConnection getConnectionFromRoute(String apiUrl, Route route, String... params) throws IOException {
         return getConnectionFromCompiledRoute(apiUrl, route.compile(params));
     }
@@ -27,6 +140,8 @@ public class Requester {
         // The calling code must set a length if using a request body.
         connection.setFixedLengthStreamingMode(0);
         connection.setRequestMethod(route.getMethod().name());
+        connection.setConnectTimeout(route.getConnectTimeoutMillis());
+        connection.setReadTimeout(route.getReadTimeoutMillis());
         String agentString = System.getProperty("http.agent")
                 + "; ReVanced/" + Utils.getAppVersionName()
                 + " (" + Utils.getPatchesReleaseVersion() + ")";
@@ -35,6 +150,156 @@ public class Requester {
         return connection;
     }
 
+    /**
+     * Discards the response of a connection, so the connection can be reused by later requests to the same host.
+     * Use if the response is not needed, such as a rate limit or unexpected response code.
+     * If the response is larger than {@link #MAXIMUM_DISCARDED_RESPONSE_LENGTH} or cannot be read,
+     * then the connection is disconnected instead.
+     */
+    public static void releaseConnection(HttpURLConnection connection) {
+        try {
+            InputStream inputStream = (connection.getResponseCode() < 400)
+                    ? connection.getInputStream()
+                    : connection.getErrorStream();
+            if (inputStream == null) {
+                return; // No response data.
+            }
+            try (InputStream stream = inputStream) {
+                byte[] buffer = new byte[4096];
+                int totalRead = 0;
+                int read;
+                while ((read = stream.read(buffer)) >= 0) {
+                    totalRead += read;
+                    if (totalRead > MAXIMUM_DISCARDED_RESPONSE_LENGTH) {
+                        connection.disconnect();
+                        return;
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Gets the response of a connection, using the disk cache if the route is cached and the cache is enabled.
+     *
+     * A cached response younger than {@link Route#getCacheMaxAgeMillis()} is used without connecting,
+     * and an older cached response is revalidated with the server using the ETag or Last-Modified
+     * of the cached response.  If the server reports the response is unchanged,
+     * then the cached response is used and only the response headers are transferred.
+     *
+     * Server errors and connection failures are not replaced with cached responses.
+     * Instead, use {@link #getStaleResponse(Route, HttpURLConnection)} if the request fails.
+     *
+     * @param connection Connection of the route, with all request properties set.
+     *                   Not used if a cached response is used without connecting.
+     */
+    public static Response getResponse(Route route, HttpURLConnection connection) throws IOException {
+        if (!route.isCached() || !Settings.RESPONSE_DISK_CACHE.get()) {
+            return new Response(connection.getResponseCode(), connection, null, true, false);
+        }
+
+        final String url = connection.getURL().toString();
+        DiskResponseCache.Entry entry = DiskResponseCache.get(url);
+        if (entry != null) {
+            if (entry.getAge() <= route.getCacheMaxAgeMillis()) {
+                Logger.printDebug(() -> "Using cached response: " + url);
+                return new Response(entry.responseCode, null, entry.body, false, false);
+            }
+            if (entry.eTag != null) {
+                connection.setRequestProperty("If-None-Match", entry.eTag);
+            }
+            if (entry.lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", entry.lastModified);
+            }
+        }
+
+        final int responseCode = connection.getResponseCode();
+        final String eTag = connection.getHeaderField("ETag");
+        final String lastModified = connection.getHeaderField("Last-Modified");
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+            Logger.printDebug(() -> "Cached response not modified: " + url);
+            releaseConnection(connection);
+            DiskResponseCache.put(entry.revalidated(eTag, lastModified));
+            return new Response(entry.responseCode, null, entry.body, true, false);
+        }
+
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if ((responseCode != HttpURLConnection.HTTP_OK && responseCode != HttpURLConnection.HTTP_NOT_FOUND)
+                || (cacheControl != null && cacheControl.contains("no-store"))) {
+            return new Response(responseCode, connection, null, true, false);
+        }
+
+        byte[] body = readResponseAndClose(connection, responseCode);
+        DiskResponseCache.put(new DiskResponseCache.Entry(url, System.currentTimeMillis(),
+                eTag, lastModified, responseCode, body));
+        return new Response(responseCode, null, body, true, false);
+    }
+
+    /**
+     * Gets an expired cached response, to use if the server cannot be reached or requested a rate limit.
+     *
+     * @param connection Connection of the route.  Only used for the url, and is never connected.
+     * @return The cached response, or null if the response is not cached
+     *         or is older than {@link Route#getCacheMaxStaleMillis()}.
+     */
+    @Nullable
+    public static Response getStaleResponse(Route route, HttpURLConnection connection) {
+        if (!route.isCached() || !Settings.RESPONSE_DISK_CACHE.get()) {
+            return null;
+        }
+        final String url = connection.getURL().toString();
+        DiskResponseCache.Entry entry = DiskResponseCache.get(url);
+        if (entry == null || entry.getAge() > route.getCacheMaxStaleMillis()) {
+            return null;
+        }
+        Logger.printDebug(() -> "Using stale cached response: " + url);
+        return new Response(entry.responseCode, null, entry.body, false, true);
+    }
+
+    /**
+     * Removes the cached response of a connection, so the next request fetches the response from the server.
+     * Used if the response is known to have changed, such as after submitting data.
+     *
+     * @param connection Connection of the route.  Only used for the url, and is never connected.
+     */
+    public static void removeCachedResponse(Route route, HttpURLConnection connection) {
+        if (route.isCached()) {
+            DiskResponseCache.remove(connection.getURL().toString());
+        }
+    }
+
+    /**
+     * Deletes all responses in the disk cache.  Called when the disk cache is turned off.
+     */
+    public static void clearResponseCache() {
+        Utils.verifyOffMainThread();
+        DiskResponseCache.clear();
+        Logger.printDebug(() -> "Cleared response cache");
+    }
+
+    /**
+     * Reads the response data, or the error data if the response code is an error.
+     */
+    private static byte[] readResponseAndClose(HttpURLConnection connection, int responseCode) throws IOException {
+        InputStream inputStream = (responseCode < 400)
+                ? connection.getInputStream()
+                : connection.getErrorStream();
+        if (inputStream == null) {
+            return new byte[0];
+        }
+        try (InputStream stream = inputStream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
     /**
      * Parse the {@link HttpURLConnection}, and closes the underlying InputStream.
      */
@@ -59,6 +324,13 @@ public class Requester {
         return parseInputStreamAndClose(connection.getInputStream());
     }
 
+    /**
+     * Parse the response as a String.
+     */
+    public static String parseString(Response response) throws IOException {
+        return parseInputStreamAndClose(response.getInputStream());
+    }
+
     /**
      * Parse the {@link HttpURLConnection} response as a String, and disconnect.
      *
@@ -142,4 +414,77 @@ public class Requester {
         return array;
     }
 
+    /**
+     * Parse the {@link HttpURLConnection} response directly from the response stream,
+     * without reading the response into a String first.
+     * This does not close the url connection.
+     *
+     * @throws JSONException If the response is not valid JSON, or the parser rejects the value.
+     */
+    @Nullable
+    public static <T> T parseJSONStreaming(HttpURLConnection connection, JSONStreamParser<T> parser)
+            throws JSONException, IOException {
+        return parseJSONStreaming(connection.getInputStream(), parser);
+    }
+
+    /**
+     * Parse the response directly from the response stream.
+     *
+     * @see #parseJSONStreaming(HttpURLConnection, JSONStreamParser)
+     */
+    @Nullable
+    public static <T> T parseJSONStreaming(Response response, JSONStreamParser<T> parser)
+            throws JSONException, IOException {
+        return parseJSONStreaming(response.getInputStream(), parser);
+    }
+
+    @Nullable
+    private static <T> T parseJSONStreaming(InputStream inputStream, JSONStreamParser<T> parser)
+            throws JSONException, IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            return parser.parse(reader);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException ex) {
+            // Response is not JSON, or a value is a different type than the parser expected.
+            throw new JSONException(ex.toString());
+        }
+    }
+
+    /**
+     * Parse a JSON array response directly from the response stream, and parse each element of the array.
+     * This does not close the url connection.
+     *
+     * @param elementParser Parses each element of the array.  Elements parsed as null are not included.
+     * @throws JSONException If the response is not a valid JSON array, or the parser rejects an element.
+     * @see #parseJSONStreaming(HttpURLConnection, JSONStreamParser)
+     */
+    public static <T> List<T> parseJSONArrayStreaming(HttpURLConnection connection, JSONStreamParser<T> elementParser)
+            throws JSONException, IOException {
+        return parseJSONArrayStreaming(connection.getInputStream(), elementParser);
+    }
+
+    /**
+     * Parse a JSON array response directly from the response stream.
+     *
+     * @see #parseJSONArrayStreaming(HttpURLConnection, JSONStreamParser)
+     */
+    public static <T> List<T> parseJSONArrayStreaming(Response response, JSONStreamParser<T> elementParser)
+            throws JSONException, IOException {
+        return parseJSONArrayStreaming(response.getInputStream(), elementParser);
+    }
+
+    private static <T> List<T> parseJSONArrayStreaming(InputStream inputStream, JSONStreamParser<T> elementParser)
+            throws JSONException, IOException {
+        return parseJSONStreaming(inputStream, reader -> {
+            List<T> elements = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                T element = elementParser.parse(reader);
+                if (element != null) {
+                    elements.add(element);
+                }
+            }
+            reader.endArray();
+            return elements;
+        });
+    }
 }
\ No newline at end of file
@@ -1,23 +1,86 @@
 package app.revanced.integrations.youtube.requests;
 
 public class Route {
+    /**
+     * TCP connection and HTTP read timeout of routes that do not specify a timeout.
+     */
+    public static final int DEFAULT_TIMEOUT_MILLISECONDS = 10 * 1000; // 10 Seconds.
+
+    /**
+     * Cache age of routes that are not cached.
+     */
+    private static final long NOT_CACHED = -1;
+
     private final String route;
     private final Method method;
     private final int paramCount;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long cacheMaxAgeMillis;
+    private final long cacheMaxStaleMillis;
 
     public Route(Method method, String route) {
+        this(method, route, DEFAULT_TIMEOUT_MILLISECONDS, DEFAULT_TIMEOUT_MILLISECONDS);
+    }
+
+    /**
+     * @param connectTimeoutMillis Timeout for the TCP connection to the server.
+     * @param readTimeoutMillis    Timeout for the server response.
+     */
+    public Route(Method method, String route, int connectTimeoutMillis, int readTimeoutMillis) {
+        this(method, route, connectTimeoutMillis, readTimeoutMillis, NOT_CACHED, NOT_CACHED);
+    }
+
+    /**
+     * Route with responses that are cached on disk, if {@link Requester#getResponse(Route, java.net.HttpURLConnection)}
+     * is used and the disk cache is enabled.  Only GET routes can be cached.
+     *
+     * @param cacheMaxAgeMillis   How long a cached response is used without contacting the server.
+     *                            If zero, the cached response is always revalidated with the server.
+     * @param cacheMaxStaleMillis How long a cached response can be used if the server cannot be reached,
+     *                            or if the server requested a rate limit.
+     */
+    public Route(Method method, String route, int connectTimeoutMillis, int readTimeoutMillis,
+                 long cacheMaxAgeMillis, long cacheMaxStaleMillis) {
         this.method = method;
         this.route = route;
         this.paramCount = countMatches(route, '{');
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.cacheMaxAgeMillis = cacheMaxAgeMillis;
+        this.cacheMaxStaleMillis = cacheMaxStaleMillis;
 
         if (paramCount != countMatches(route, '}'))
             throw new IllegalArgumentException("Not enough parameters");
+        if (cacheMaxAgeMillis != NOT_CACHED && (method != Method.GET
+                || cacheMaxAgeMillis < 0 || cacheMaxStaleMillis < cacheMaxAgeMillis))
+            throw new IllegalArgumentException("Invalid cache of route: " + route);
     }
 
     public Method getMethod() {
         return method;
     }
 
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public boolean isCached() {
+        return cacheMaxAgeMillis != NOT_CACHED;
+    }
+
+    public long getCacheMaxAgeMillis() {
+        return cacheMaxAgeMillis;
+    }
+
+    public long getCacheMaxStaleMillis() {
+        return cacheMaxStaleMillis;
+    }
+
     public CompiledRoute compile(String... params) {
         if (params.length != paramCount)
             throw new IllegalArgumentException("Error compiling route [" + route + "], incorrect amount of parameters provided. " +
@@ -48,6 +111,14 @@ public class Route {
         public Method getMethod() {
             return baseRoute.method;
         }
+
+        public int getConnectTimeoutMillis() {
+            return baseRoute.connectTimeoutMillis;
+        }
+
+        public int getReadTimeoutMillis() {
+            return baseRoute.readTimeoutMillis;
+        }
     }
 
     private int countMatches(CharSequence seq, char c) {
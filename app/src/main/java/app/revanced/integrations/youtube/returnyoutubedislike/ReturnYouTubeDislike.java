@@ -152,6 +152,11 @@ public class ReturnYouTubeDislike {
      */
     private final long timeFetched;
 
+    /**
+     * If the fetch was started for a video shown in a feed, and not for an opened video.
+     */
+    private final boolean isPrefetch;
+
     /**
      * If this instance was previously used for a Short.
      */
@@ -400,6 +405,19 @@ public class ReturnYouTubeDislike {
 
     @NonNull
     public static ReturnYouTubeDislike getFetchForVideoId(@Nullable String videoId) {
+        return getFetchForVideoId(videoId, false);
+    }
+
+    /**
+     * Starts fetching the votes of a video shown in a feed, if not already fetched or being fetched.
+     * Connection errors do not show a toast, since the user has not opened the video.
+     */
+    static void prefetchVideoId(@NonNull String videoId) {
+        getFetchForVideoId(videoId, true);
+    }
+
+    @NonNull
+    private static ReturnYouTubeDislike getFetchForVideoId(@Nullable String videoId, boolean isPrefetch) {
         Objects.requireNonNull(videoId);
         synchronized (fetchCache) {
             // Remove any expired entries.
@@ -414,14 +432,29 @@ public class ReturnYouTubeDislike {
             }
 
             ReturnYouTubeDislike fetch = fetchCache.get(videoId);
+            if (fetch != null && !isPrefetch && fetch.isFailedPrefetch()) {
+                // Errors of the prefetch were not shown, and the user is now waiting for the votes.
+                Logger.printDebug(() -> "Replacing failed prefetch: " + videoId);
+                fetch = null;
+            }
             if (fetch == null) {
-                fetch = new ReturnYouTubeDislike(videoId);
+                fetch = new ReturnYouTubeDislike(videoId, isPrefetch);
                 fetchCache.put(videoId, fetch);
             }
             return fetch;
         }
     }
 
+    /**
+     * @return If the video is fetched or is being fetched, and the fetch has not expired.
+     */
+    static boolean isFetchCached(@NonNull String videoId) {
+        synchronized (fetchCache) {
+            ReturnYouTubeDislike fetch = fetchCache.get(videoId);
+            return fetch != null && !fetch.isExpired(System.currentTimeMillis());
+        }
+    }
+
     /**
      * Should be called if the user changes dislikes appearance settings.
      */
@@ -433,10 +466,15 @@ public class ReturnYouTubeDislike {
         }
     }
 
-    private ReturnYouTubeDislike(@NonNull String videoId) {
+    private ReturnYouTubeDislike(@NonNull String videoId, boolean isPrefetch) {
         this.videoId = Objects.requireNonNull(videoId);
         this.timeFetched = System.currentTimeMillis();
-        this.future = Utils.submitOnBackgroundThread(() -> ReturnYouTubeDislikeApi.fetchVotes(videoId));
+        this.isPrefetch = isPrefetch;
+        this.future = ReturnYouTubeDislikeApi.submitFetchVotes(videoId, isPrefetch);
+    }
+
+    private boolean isFailedPrefetch() {
+        return isPrefetch && fetchCompleted() && getFetchData(0) == null;
     }
 
     private boolean isExpired(long now) {
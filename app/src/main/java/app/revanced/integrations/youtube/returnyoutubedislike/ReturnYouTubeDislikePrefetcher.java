@@ -0,0 +1,169 @@
+package app.revanced.integrations.youtube.returnyoutubedislike;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import app.revanced.integrations.shared.Logger;
+import app.revanced.integrations.shared.Utils;
+import app.revanced.integrations.youtube.returnyoutubedislike.requests.ReturnYouTubeDislikeApi;
+import app.revanced.integrations.youtube.settings.Settings;
+
+/**
+ * Fetches the votes of videos shown in feeds before the videos are opened,
+ * so the votes are already in the {@link ReturnYouTubeDislike} cache when a video is opened.
+ *
+ * Scrolling a feed shows many videos in a short time, and fetching all of them at once
+ * quickly reaches the RYD rate limit.  Instead video ids are gathered for a short window,
+ * and then fetched at a limited rate using a token bucket.
+ * The RYD API has no request for the votes of multiple videos, so each video is a separate request.
+ *
+ * Videos already fetched or being fetched are skipped.  The most recently shown videos are fetched first,
+ * and if too many videos are waiting then the oldest are dropped as the user has likely scrolled past them.
+ */
+public final class ReturnYouTubeDislikePrefetcher {
+
+    /**
+     * How long to gather video ids, before fetching.
+     */
+    private static final long GATHER_WINDOW_MILLISECONDS = 500;
+
+    /**
+     * Maximum number of fetches that can be started at once.
+     */
+    private static final int TOKEN_BUCKET_CAPACITY = 4;
+
+    /**
+     * Average time between fetches, after the bucket is empty.
+     */
+    private static final long MILLISECONDS_PER_TOKEN = 1500;
+
+    /**
+     * Maximum number of video ids waiting to be fetched.
+     */
+    private static final int MAXIMUM_PENDING_VIDEO_IDS = 8;
+
+    /**
+     * Video ids waiting to be fetched, oldest first.
+     */
+    @GuardedBy("itself")
+    private static final Set<String> pendingVideoIds = new LinkedHashSet<>();
+
+    @GuardedBy("pendingVideoIds")
+    private static double tokens = TOKEN_BUCKET_CAPACITY;
+
+    @GuardedBy("pendingVideoIds")
+    private static long lastTokenRefillTime;
+
+    @GuardedBy("pendingVideoIds")
+    private static boolean fetchScheduled;
+
+    private ReturnYouTubeDislikePrefetcher() {
+    }
+
+    /**
+     * Adds a video shown in a feed, that might be opened soon.
+     */
+    public static void addVideoId(@NonNull String videoId) {
+        if (!Settings.RYD_ENABLED.get() || !Settings.RYD_PREFETCH.get()
+                || ReturnYouTubeDislike.isFetchCached(videoId)) {
+            return;
+        }
+
+        synchronized (pendingVideoIds) {
+            if (!pendingVideoIds.add(videoId)) {
+                return;
+            }
+            if (pendingVideoIds.size() > MAXIMUM_PENDING_VIDEO_IDS) {
+                Iterator<String> iterator = pendingVideoIds.iterator();
+                String oldest = iterator.next();
+                iterator.remove();
+                Logger.printDebug(() -> "Dropping prefetch of: " + oldest);
+            }
+            if (!fetchScheduled) {
+                fetchScheduled = true;
+                scheduleFetch(GATHER_WINDOW_MILLISECONDS);
+            }
+        }
+    }
+
+    private static void scheduleFetch(long delayMillis) {
+        Utils.runOnMainThreadDelayed(() -> Utils.runOnBackgroundThread(() -> {
+            try {
+                fetchPendingVideoIds();
+            } catch (Exception ex) {
+                Logger.printException(() -> "fetchPendingVideoIds failure", ex);
+            }
+        }), delayMillis);
+    }
+
+    @GuardedBy("pendingVideoIds")
+    private static void refillTokens() {
+        final long now = System.currentTimeMillis();
+        if (lastTokenRefillTime != 0) {
+            tokens = Math.min(TOKEN_BUCKET_CAPACITY,
+                    tokens + (double) (now - lastTokenRefillTime) / MILLISECONDS_PER_TOKEN);
+        }
+        lastTokenRefillTime = now;
+    }
+
+    private static void fetchPendingVideoIds() {
+        List<String> videoIdsToFetch = new ArrayList<>();
+        long nextFetchDelay = -1;
+        boolean completed = false;
+
+        try {
+            synchronized (pendingVideoIds) {
+                if (!Settings.RYD_ENABLED.get() || !Settings.RYD_PREFETCH.get()
+                        || ReturnYouTubeDislikeApi.isRateLimitInEffect()) {
+                    // If rate limited, then prefetching would only add failed fetches to the cache.
+                    Logger.printDebug(() -> "Dropping " + pendingVideoIds.size() + " prefetches");
+                    pendingVideoIds.clear();
+                    fetchScheduled = false;
+                    completed = true;
+                    return;
+                }
+
+                refillTokens();
+                List<String> videoIds = new ArrayList<>(pendingVideoIds);
+                // Newest first.
+                for (int i = videoIds.size() - 1; i >= 0 && tokens >= 1; i--) {
+                    String videoId = videoIds.get(i);
+                    pendingVideoIds.remove(videoId);
+                    if (!ReturnYouTubeDislike.isFetchCached(videoId)) {
+                        tokens--;
+                        videoIdsToFetch.add(videoId);
+                    }
+                }
+
+                if (pendingVideoIds.isEmpty()) {
+                    fetchScheduled = false;
+                } else {
+                    nextFetchDelay = (long) Math.ceil((1 - tokens) * MILLISECONDS_PER_TOKEN);
+                }
+            }
+
+            for (String videoId : videoIdsToFetch) {
+                Logger.printDebug(() -> "Prefetching RYD for feed video: " + videoId);
+                ReturnYouTubeDislike.prefetchVideoId(videoId);
+            }
+
+            if (nextFetchDelay >= 0) {
+                scheduleFetch(nextFetchDelay);
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                // Otherwise no fetch is ever scheduled again.
+                synchronized (pendingVideoIds) {
+                    fetchScheduled = false;
+                }
+            }
+        }
+    }
+}
@@ -2,12 +2,17 @@ package app.revanced.integrations.youtube.returnyoutubedislike.requests;
 
 import static app.revanced.integrations.youtube.returnyoutubedislike.ReturnYouTubeDislike.Vote;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 import app.revanced.integrations.shared.Logger;
 
 /**
@@ -55,17 +60,83 @@ public final class RYDVoteData {
      * @throws JSONException if JSON parse error occurs, or if the values make no sense (ie: negative values)
      */
     public RYDVoteData(@NonNull JSONObject json) throws JSONException {
-        videoId = json.getString("id");
-        viewCount = json.getLong("viewCount");
+        this(json.getString("id"), json.getLong("viewCount"),
+                json.getLong("likes"), getLongIfExist(json, "rawLikes"),
+                json.getLong("dislikes"), getLongIfExist(json, "rawDislikes"));
+    }
+
+    /**
+     * Parses the vote data while it is read from the response stream.
+     *
+     * @throws JSONException if a value is missing, or if the values make no sense (ie: negative values)
+     * @see app.revanced.integrations.youtube.requests.Requester#parseJSONStreaming
+     */
+    @NonNull
+    public static RYDVoteData parse(@NonNull JsonReader reader) throws IOException, JSONException {
+        String videoId = null;
+        long viewCount = -1;
+        long likes = -1;
+        Long rawLikes = null;
+        long dislikes = -1;
+        Long rawDislikes = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    videoId = reader.nextString();
+                    break;
+                case "viewCount":
+                    viewCount = reader.nextLong();
+                    break;
+                case "likes":
+                    likes = reader.nextLong();
+                    break;
+                case "rawLikes":
+                    rawLikes = nextLongOrNull(reader);
+                    break;
+                case "dislikes":
+                    dislikes = reader.nextLong();
+                    break;
+                case "rawDislikes":
+                    rawDislikes = nextLongOrNull(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (videoId == null) {
+            throw new JSONException("Missing video id");
+        }
+        return new RYDVoteData(videoId, viewCount, likes, rawLikes, dislikes, rawDislikes);
+    }
+
+    @Nullable
+    private static Long nextLongOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextLong();
+    }
+
+    private RYDVoteData(@NonNull String videoId, long viewCount,
+                        long likes, @Nullable Long rawLikes,
+                        long dislikes, @Nullable Long rawDislikes) throws JSONException {
+        this.videoId = videoId;
+        this.viewCount = viewCount;
 
-        fetchedLikeCount = json.getLong("likes");
-        fetchedRawLikeCount = getLongIfExist(json, "rawLikes");
+        fetchedLikeCount = likes;
+        fetchedRawLikeCount = rawLikes;
 
-        fetchedDislikeCount = json.getLong("dislikes");
-        fetchedRawDislikeCount = getLongIfExist(json, "rawDislikes");
+        fetchedDislikeCount = dislikes;
+        fetchedRawDislikeCount = rawDislikes;
 
         if (viewCount < 0 || fetchedLikeCount < 0 || fetchedDislikeCount < 0) {
-            throw new JSONException("Unexpected JSON values: " + json);
+            throw new JSONException("Unexpected JSON values for video: " + videoId + " views: " + viewCount
+                    + " likes: " + likes + " dislikes: " + dislikes);
         }
         likeCount = fetchedLikeCount;
         dislikeCount = fetchedDislikeCount;
@@ -21,6 +21,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Objects;
+import java.util.concurrent.Future;
 
 import app.revanced.integrations.shared.Logger;
 import app.revanced.integrations.shared.Utils;
@@ -29,25 +30,6 @@ import app.revanced.integrations.youtube.returnyoutubedislike.ReturnYouTubeDisli
 import app.revanced.integrations.youtube.settings.Settings;
 
 public class ReturnYouTubeDislikeApi {
-    /**
-     * {@link #fetchVotes(String)} TCP connection timeout
-     */
-    private static final int API_GET_VOTES_TCP_TIMEOUT_MILLISECONDS = 2 * 1000; // 2 Seconds.
-
-    /**
-     * {@link #fetchVotes(String)} HTTP read timeout.
-     * To locally debug and force timeouts, change this to a very small number (ie: 100)
-     */
-    private static final int API_GET_VOTES_HTTP_TIMEOUT_MILLISECONDS = 4 * 1000; // 4 Seconds.
-
-    /**
-     * Default connection and response timeout for voting and registration.
-     *
-     * Voting and user registration runs in the background and has has no urgency
-     * so this can be a larger value.
-     */
-    private static final int API_REGISTER_VOTE_TIMEOUT_MILLISECONDS = 60 * 1000; // 60 Seconds.
-
     /**
      * Response code of a successful API call
      */
@@ -77,6 +59,7 @@ public class ReturnYouTubeDislikeApi {
     /**
      * If the last API getVotes call failed for any reason (including server requested rate limit).
      * Used to prevent showing repeat connection toasts when the API is down.
+     * Not changed by prefetches, since their errors are not shown.
      */
     private static volatile boolean lastApiCallFailed;
 
@@ -88,24 +71,24 @@ public class ReturnYouTubeDislikeApi {
     private static volatile int numberOfRateLimitRequestsEncountered;
 
     /**
-     * Number of network calls made in {@link #fetchVotes(String)}
+     * Number of network calls made in {@link #fetchVotes(String, boolean)}
      */
     private static volatile int fetchCallCount;
 
     /**
-     * Number of times {@link #fetchVotes(String)} failed due to timeout or any other error.
+     * Number of times {@link #fetchVotes(String, boolean)} failed due to timeout or any other error.
      * This does not include when rate limit requests are encountered.
      */
     private static volatile int fetchCallNumberOfFailures;
 
     /**
-     * Total time spent waiting for {@link #fetchVotes(String)} network call to complete.
+     * Total time spent waiting for {@link #fetchVotes(String, boolean)} network call to complete.
      * Value does does not persist on app shut down.
      */
     private static volatile long fetchCallResponseTimeTotal;
 
     /**
-     * Round trip network time for the most recent call to {@link #fetchVotes(String)}
+     * Round trip network time for the most recent call to {@link #fetchVotes(String, boolean)}
      */
     private static volatile long fetchCallResponseTimeLast;
     private static volatile long fetchCallResponseTimeMin;
@@ -149,7 +132,8 @@ public class ReturnYouTubeDislikeApi {
         final boolean DEBUG_RANDOMLY_DELAY_NETWORK_CALLS = false; // set true to debug UI
         if (DEBUG_RANDOMLY_DELAY_NETWORK_CALLS) {
             final long amountOfTimeToWaste = (long) (Math.random()
-                    * (API_GET_VOTES_TCP_TIMEOUT_MILLISECONDS + API_GET_VOTES_HTTP_TIMEOUT_MILLISECONDS));
+                    * (ReturnYouTubeDislikeRoutes.GET_DISLIKES.getConnectTimeoutMillis()
+                    + ReturnYouTubeDislikeRoutes.GET_DISLIKES.getReadTimeoutMillis()));
             Utils.doNothingForDuration(amountOfTimeToWaste);
         }
     }
@@ -166,6 +150,14 @@ public class ReturnYouTubeDislikeApi {
         timeToResumeAPICalls = 0;
     }
 
+    /**
+     * @return True, if api calls are paused because a rate limit was requested or a call failed.
+     */
+    public static boolean isRateLimitInEffect() {
+        final long resumeTime = timeToResumeAPICalls;
+        return resumeTime != 0 && System.currentTimeMillis() < resumeTime;
+    }
+
     /**
      * @return True, if api rate limit is in effect.
      */
@@ -197,8 +189,12 @@ public class ReturnYouTubeDislikeApi {
         return httpResponseCode == HTTP_STATUS_CODE_RATE_LIMIT;
     }
 
+    /**
+     * @param showToasts If toasts can be shown and {@link #lastApiCallFailed} is updated.  False for prefetches.
+     */
     @SuppressWarnings("NonAtomicOperationOnVolatileField") // Don't care, fields are only estimates.
-    private static void updateRateLimitAndStats(long timeNetworkCallStarted, boolean connectionError, boolean rateLimitHit) {
+    private static void updateRateLimitAndStats(long timeNetworkCallStarted, boolean connectionError,
+                                                boolean rateLimitHit, boolean showToasts) {
         if (connectionError && rateLimitHit) {
             throw new IllegalArgumentException();
         }
@@ -211,48 +207,82 @@ public class ReturnYouTubeDislikeApi {
             timeToResumeAPICalls = System.currentTimeMillis() + BACKOFF_CONNECTION_ERROR_MILLISECONDS;
             fetchCallResponseTimeLast = responseTimeOfFetchCall;
             fetchCallNumberOfFailures++;
-            lastApiCallFailed = true;
+            if (showToasts) {
+                lastApiCallFailed = true;
+            }
         } else if (rateLimitHit) {
             Logger.printDebug(() -> "API rate limit was hit. Stopping API calls for the next "
                     + BACKOFF_RATE_LIMIT_MILLISECONDS + " seconds");
             timeToResumeAPICalls = System.currentTimeMillis() + BACKOFF_RATE_LIMIT_MILLISECONDS;
             numberOfRateLimitRequestsEncountered++;
             fetchCallResponseTimeLast = FETCH_CALL_RESPONSE_TIME_VALUE_RATE_LIMIT;
-            if (!lastApiCallFailed && Settings.RYD_TOAST_ON_CONNECTION_ERROR.get()) {
-                Utils.showToastLong(str("revanced_ryd_failure_client_rate_limit_requested"));
+            if (showToasts) {
+                if (!lastApiCallFailed && Settings.RYD_TOAST_ON_CONNECTION_ERROR.get()) {
+                    Utils.showToastLong(str("revanced_ryd_failure_client_rate_limit_requested"));
+                }
+                lastApiCallFailed = true;
             }
-            lastApiCallFailed = true;
         } else {
             fetchCallResponseTimeLast = responseTimeOfFetchCall;
-            lastApiCallFailed = false;
+            if (showToasts) {
+                lastApiCallFailed = false;
+            }
         }
     }
 
     private static void handleConnectionError(@NonNull String toastMessage,
                                               @Nullable Exception ex,
                                               boolean showLongToast) {
-        if (!lastApiCallFailed && Settings.RYD_TOAST_ON_CONNECTION_ERROR.get()) {
-            if (showLongToast) {
-                Utils.showToastLong(toastMessage);
-            } else {
-                Utils.showToastShort(toastMessage);
+        handleConnectionError(toastMessage, ex, showLongToast, true);
+    }
+
+    /**
+     * @param showToasts If a toast can be shown and {@link #lastApiCallFailed} is updated.
+     *                   False for prefetches, since the user is not waiting for them.
+     */
+    private static void handleConnectionError(@NonNull String toastMessage,
+                                              @Nullable Exception ex,
+                                              boolean showLongToast,
+                                              boolean showToasts) {
+        if (showToasts) {
+            if (!lastApiCallFailed && Settings.RYD_TOAST_ON_CONNECTION_ERROR.get()) {
+                if (showLongToast) {
+                    Utils.showToastLong(toastMessage);
+                } else {
+                    Utils.showToastShort(toastMessage);
+                }
             }
+            lastApiCallFailed = true;
         }
-        lastApiCallFailed = true;
 
         Logger.printInfo(() -> toastMessage, ex);
     }
 
     /**
-     * @return NULL if fetch failed, or if a rate limit is in effect.
+     * Fetches the votes on a background thread.
+     * If the votes of the video are already being fetched, then the future of that fetch is returned.
+     *
+     * @see #fetchVotes(String, boolean)
+     */
+    public static Future<RYDVoteData> submitFetchVotes(String videoId, boolean isPrefetch) {
+        Objects.requireNonNull(videoId);
+        String key = Requester.getRequestKey(ReturnYouTubeDislikeRoutes.RYD_API_URL,
+                ReturnYouTubeDislikeRoutes.GET_DISLIKES, videoId);
+        return Utils.submitOnBackgroundThreadCoalesced(key, () -> fetchVotes(videoId, isPrefetch));
+    }
+
+    /**
+     * @param isPrefetch If the votes are fetched before the video is opened.
+     *                   Connection errors of prefetches are logged but do not show a toast.
+     * @return NULL if fetch failed, or if a rate limit is in effect, and the votes are not in the disk cache.
      */
     @Nullable
-    public static RYDVoteData fetchVotes(String videoId) {
+    public static RYDVoteData fetchVotes(String videoId, boolean isPrefetch) {
         Utils.verifyOffMainThread();
         Objects.requireNonNull(videoId);
 
         if (checkIfRateLimitInEffect("fetchVotes")) {
-            return null;
+            return fetchStaleVotes(videoId);
         }
         Logger.printDebug(() -> "Fetching votes for: " + videoId);
         final long timeNetworkCallStarted = System.currentTimeMillis();
@@ -263,50 +293,68 @@ public class ReturnYouTubeDislikeApi {
             // the documentation says to use 'Accept:text/html', but the RYD browser plugin uses 'Accept:application/json'
             connection.setRequestProperty("Accept", "application/json");
             connection.setRequestProperty("Connection", "keep-alive"); // keep-alive is on by default with http 1.1, but specify anyways
-            connection.setRequestProperty("Pragma", "no-cache");
-            connection.setRequestProperty("Cache-Control", "no-cache");
             connection.setUseCaches(false);
-            connection.setConnectTimeout(API_GET_VOTES_TCP_TIMEOUT_MILLISECONDS); // timeout for TCP connection to server
-            connection.setReadTimeout(API_GET_VOTES_HTTP_TIMEOUT_MILLISECONDS); // timeout for server response
 
             randomlyWaitIfLocallyDebugging();
 
-            final int responseCode = connection.getResponseCode();
+            Requester.Response response = Requester.getResponse(ReturnYouTubeDislikeRoutes.GET_DISLIKES, connection);
+            final int responseCode = response.getResponseCode();
             if (checkIfRateLimitWasHit(responseCode)) {
-                connection.disconnect(); // rate limit hit, should disconnect
-                updateRateLimitAndStats(timeNetworkCallStarted, false, true);
-                return null;
+                response.release();
+                updateRateLimitAndStats(timeNetworkCallStarted, false, true, !isPrefetch);
+                return fetchStaleVotes(videoId);
             }
 
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
-                // Do not disconnect, the same server connection will likely be used again soon.
-                JSONObject json = Requester.parseJSONObject(connection);
                 try {
-                    RYDVoteData votingData = new RYDVoteData(json);
-                    updateRateLimitAndStats(timeNetworkCallStarted, false, false);
+                    RYDVoteData votingData = Requester.parseJSONStreaming(response, RYDVoteData::parse);
+                    if (response.isFromNetwork()) {
+                        updateRateLimitAndStats(timeNetworkCallStarted, false, false, !isPrefetch);
+                    }
                     Logger.printDebug(() -> "Voting data fetched: " + votingData);
                     return votingData;
                 } catch (JSONException ex) {
-                    Logger.printException(() -> "Failed to parse video: " + videoId + " json: " + json, ex);
+                    Logger.printException(() -> "Failed to parse video: " + videoId, ex);
                     // fall thru to update statistics
                 }
             } else {
                 // Unexpected response code.  Most likely RYD is temporarily broken.
                 handleConnectionError(str("revanced_ryd_failure_connection_status_code", responseCode),
-                        null, true);
+                        null, true, !isPrefetch);
             }
-            connection.disconnect(); // Something went wrong, might as well disconnect.
+            response.release();
         } catch (SocketTimeoutException ex) {
-            handleConnectionError((str("revanced_ryd_failure_connection_timeout")), ex, false);
+            handleConnectionError((str("revanced_ryd_failure_connection_timeout")), ex, false, !isPrefetch);
         } catch (IOException ex) {
-            handleConnectionError((str("revanced_ryd_failure_generic", ex.getMessage())), ex, true);
+            handleConnectionError((str("revanced_ryd_failure_generic", ex.getMessage())), ex, true, !isPrefetch);
         } catch (Exception ex) {
             // should never happen
             Logger.printException(() -> "Failed to fetch votes", ex, str("revanced_ryd_failure_generic", ex.getMessage()));
         }
 
-        updateRateLimitAndStats(timeNetworkCallStarted, true, false);
-        return null;
+        updateRateLimitAndStats(timeNetworkCallStarted, true, false, !isPrefetch);
+        return fetchStaleVotes(videoId);
+    }
+
+    /**
+     * @return The cached votes of the video, or NULL if the votes are not cached or are too old.
+     * @see Requester#getStaleResponse(app.revanced.integrations.youtube.requests.Route, HttpURLConnection)
+     */
+    @Nullable
+    private static RYDVoteData fetchStaleVotes(String videoId) {
+        try {
+            Requester.Response response = Requester.getStaleResponse(ReturnYouTubeDislikeRoutes.GET_DISLIKES,
+                    getRYDConnectionFromRoute(ReturnYouTubeDislikeRoutes.GET_DISLIKES, videoId));
+            if (response == null || response.getResponseCode() != HTTP_STATUS_CODE_SUCCESS) {
+                return null;
+            }
+            RYDVoteData votingData = Requester.parseJSONStreaming(response, RYDVoteData::parse);
+            Logger.printDebug(() -> "Using cached voting data: " + votingData);
+            return votingData;
+        } catch (IOException | JSONException ex) {
+            Logger.printInfo(() -> "Failed to read cached votes of video: " + videoId, ex);
+            return null;
+        }
     }
 
     /**
@@ -324,12 +372,10 @@ public class ReturnYouTubeDislikeApi {
 
             HttpURLConnection connection = getRYDConnectionFromRoute(ReturnYouTubeDislikeRoutes.GET_REGISTRATION, userId);
             connection.setRequestProperty("Accept", "application/json");
-            connection.setConnectTimeout(API_REGISTER_VOTE_TIMEOUT_MILLISECONDS);
-            connection.setReadTimeout(API_REGISTER_VOTE_TIMEOUT_MILLISECONDS);
 
             final int responseCode = connection.getResponseCode();
             if (checkIfRateLimitWasHit(responseCode)) {
-                connection.disconnect(); // disconnect, as no more connections will be made for a little while
+                Requester.releaseConnection(connection);
                 return null;
             }
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
@@ -342,7 +388,7 @@ public class ReturnYouTubeDislikeApi {
             }
             handleConnectionError(str("revanced_ryd_failure_connection_status_code", responseCode),
                     null, true);
-            connection.disconnect();
+            Requester.releaseConnection(connection);
         } catch (SocketTimeoutException ex) {
             handleConnectionError(str("revanced_ryd_failure_connection_timeout"), ex, false);
         } catch (IOException ex) {
@@ -376,7 +422,7 @@ public class ReturnYouTubeDislikeApi {
 
             final int responseCode = connection.getResponseCode();
             if (checkIfRateLimitWasHit(responseCode)) {
-                connection.disconnect(); // disconnect, as no more connections will be made for a little while
+                Requester.releaseConnection(connection);
                 return null;
             }
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
@@ -450,7 +496,7 @@ public class ReturnYouTubeDislikeApi {
 
             final int responseCode = connection.getResponseCode();
             if (checkIfRateLimitWasHit(responseCode)) {
-                connection.disconnect(); // disconnect, as no more connections will be made for a little while
+                Requester.releaseConnection(connection);
                 return false;
             }
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
@@ -466,7 +512,7 @@ public class ReturnYouTubeDislikeApi {
                     + " response code was: " + responseCode);
             handleConnectionError(str("revanced_ryd_failure_connection_status_code", responseCode),
                     null, true);
-            connection.disconnect(); // something went wrong, might as well disconnect
+            Requester.releaseConnection(connection);
         } catch (SocketTimeoutException ex) {
             handleConnectionError(str("revanced_ryd_failure_connection_timeout"), ex, false);
         } catch (IOException ex) {
@@ -501,11 +547,14 @@ public class ReturnYouTubeDislikeApi {
 
             final int responseCode = connection.getResponseCode();
             if (checkIfRateLimitWasHit(responseCode)) {
-                connection.disconnect(); // disconnect, as no more connections will be made for a little while
+                Requester.releaseConnection(connection);
                 return false;
             }
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
                 Logger.printDebug(() -> "Vote confirm successful for video: " + videoId);
+                // Votes are fetched again after voting, and must include the new vote.
+                Requester.removeCachedResponse(ReturnYouTubeDislikeRoutes.GET_DISLIKES,
+                        getRYDConnectionFromRoute(ReturnYouTubeDislikeRoutes.GET_DISLIKES, videoId));
                 return true;
             }
 
@@ -535,8 +584,6 @@ public class ReturnYouTubeDislikeApi {
         connection.setRequestProperty("Cache-Control", "no-cache");
         connection.setUseCaches(false);
         connection.setDoOutput(true);
-        connection.setConnectTimeout(API_REGISTER_VOTE_TIMEOUT_MILLISECONDS); // timeout for TCP connection to server
-        connection.setReadTimeout(API_REGISTER_VOTE_TIMEOUT_MILLISECONDS); // timeout for server response
     }
 
 
@@ -12,11 +12,48 @@ import app.revanced.integrations.youtube.requests.Route;
 class ReturnYouTubeDislikeRoutes {
     static final String RYD_API_URL = "https://returnyoutubedislikeapi.com/";
 
-    static final Route SEND_VOTE = new Route(POST, "interact/vote");
-    static final Route CONFIRM_VOTE = new Route(POST, "interact/confirmVote");
-    static final Route GET_DISLIKES = new Route(GET, "votes?videoId={video_id}");
-    static final Route GET_REGISTRATION = new Route(GET, "puzzle/registration?userId={user_id}");
-    static final Route CONFIRM_REGISTRATION = new Route(POST, "puzzle/registration?userId={user_id}");
+    /**
+     * {@link #GET_DISLIKES} TCP connection timeout
+     */
+    private static final int API_GET_VOTES_TCP_TIMEOUT_MILLISECONDS = 2 * 1000; // 2 Seconds.
+
+    /**
+     * {@link #GET_DISLIKES} HTTP read timeout.
+     * To locally debug and force timeouts, change this to a very small number (ie: 100)
+     */
+    private static final int API_GET_VOTES_HTTP_TIMEOUT_MILLISECONDS = 4 * 1000; // 4 Seconds.
+
+    /**
+     * How long cached {@link #GET_DISLIKES} votes are used without revalidating.
+     * Less than how long {@link app.revanced.integrations.youtube.returnyoutubedislike.ReturnYouTubeDislike}
+     * keeps votes in memory, so votes are refetched after the memory cache expires.
+     */
+    private static final long API_GET_VOTES_CACHE_MAX_AGE_MILLISECONDS = 5 * 60 * 1000; // 5 Minutes.
+
+    /**
+     * How long cached {@link #GET_DISLIKES} votes are used if RYD cannot be reached or requested a rate limit.
+     */
+    private static final long API_GET_VOTES_CACHE_MAX_STALE_MILLISECONDS = 24 * 60 * 60 * 1000; // 1 Day.
+
+    /**
+     * Default connection and response timeout for voting and registration.
+     *
+     * Voting and user registration runs in the background and has has no urgency
+     * so this can be a larger value.
+     */
+    private static final int API_REGISTER_VOTE_TIMEOUT_MILLISECONDS = 60 * 1000; // 60 Seconds.
+
+    static final Route SEND_VOTE = new Route(POST, "interact/vote",
+            API_REGISTER_VOTE_TIMEOUT_MILLISECONDS, API_REGISTER_VOTE_TIMEOUT_MILLISECONDS);
+    static final Route CONFIRM_VOTE = new Route(POST, "interact/confirmVote",
+            API_REGISTER_VOTE_TIMEOUT_MILLISECONDS, API_REGISTER_VOTE_TIMEOUT_MILLISECONDS);
+    static final Route GET_DISLIKES = new Route(GET, "votes?videoId={video_id}",
+            API_GET_VOTES_TCP_TIMEOUT_MILLISECONDS, API_GET_VOTES_HTTP_TIMEOUT_MILLISECONDS,
+            API_GET_VOTES_CACHE_MAX_AGE_MILLISECONDS, API_GET_VOTES_CACHE_MAX_STALE_MILLISECONDS);
+    static final Route GET_REGISTRATION = new Route(GET, "puzzle/registration?userId={user_id}",
+            API_REGISTER_VOTE_TIMEOUT_MILLISECONDS, API_REGISTER_VOTE_TIMEOUT_MILLISECONDS);
+    static final Route CONFIRM_REGISTRATION = new Route(POST, "puzzle/registration?userId={user_id}",
+            API_REGISTER_VOTE_TIMEOUT_MILLISECONDS, API_REGISTER_VOTE_TIMEOUT_MILLISECONDS);
 
     private ReturnYouTubeDislikeRoutes() {
     }
@@ -277,6 +277,19 @@ public class Settings extends BaseSettings {
     public static final BooleanSetting CHECK_WATCH_HISTORY_DOMAIN_NAME = new BooleanSetting("revanced_check_watch_history_domain_name", TRUE, false, false);
     public static final BooleanSetting REMOVE_TRACKING_QUERY_PARAMETER = new BooleanSetting("revanced_remove_tracking_query_parameter", TRUE);
     public static final IntegerSetting CHECK_ENVIRONMENT_WARNINGS_ISSUED = new IntegerSetting("revanced_check_environment_warnings_issued", 0, true, false);
+    public static final BooleanSetting LITHO_FILTER_CACHE = new BooleanSetting("revanced_litho_filter_cache", FALSE);
+    /**
+     * Searches the buffers of large litho components using multiple threads.
+     */
+    public static final BooleanSetting LITHO_FILTER_PARALLEL_BUFFER_SEARCH = new BooleanSetting("revanced_litho_filter_parallel_buffer_search", FALSE);
+    /**
+     * Calls the litho filters that are cheap and often filter first, using statistics collected while filtering.
+     */
+    public static final BooleanSetting LITHO_FILTER_ADAPTIVE_ORDER = new BooleanSetting("revanced_litho_filter_adaptive_order", FALSE);
+    /**
+     * Caches the responses of RYD, SponsorBlock and announcements on disk, and revalidates them with the server.
+     */
+    public static final BooleanSetting RESPONSE_DISK_CACHE = new BooleanSetting("revanced_response_disk_cache", FALSE);
 
     // Debugging
     /**
@@ -284,6 +297,25 @@ public class Settings extends BaseSettings {
      * The buffer contains select user data, including the client ip address and information that could identify the end user.
      */
     public static final BooleanSetting DEBUG_PROTOBUFFER = new BooleanSetting("revanced_debug_protobuffer", FALSE, parent(BaseSettings.DEBUG));
+    /**
+     * Records the invocation counts and latencies of the litho filters.
+     * Does not require debug logging, as recording metrics does not log anything.
+     */
+    public static final BooleanSetting DEBUG_LITHO_FILTER_METRICS = new BooleanSetting("revanced_debug_litho_filter_metrics", FALSE);
+    /**
+     * Records a trace of a sample of the litho filter calls.
+     * Does not require debug logging, as traces are kept in memory and are not logged.
+     */
+    public static final BooleanSetting DEBUG_LITHO_FILTER_TRACE = new BooleanSetting("revanced_debug_litho_filter_trace", FALSE);
+    /**
+     * Traces 1 of every this many litho filter calls of each thread.
+     */
+    public static final IntegerSetting DEBUG_LITHO_FILTER_TRACE_SAMPLE_RATE = new IntegerSetting("revanced_debug_litho_filter_trace_sample_rate", 20, parent(DEBUG_LITHO_FILTER_TRACE));
+    /**
+     * Records the filtered litho components to a file, and replays a capture file if present.
+     * The capture contains the same user data as {@link #DEBUG_PROTOBUFFER}.
+     */
+    public static final BooleanSetting DEBUG_LITHO_CAPTURE = new BooleanSetting("revanced_debug_litho_capture", FALSE, parent(BaseSettings.DEBUG));
 
     // Old deprecated signature spoofing
     @Deprecated public static final BooleanSetting SPOOF_SIGNATURE = new BooleanSetting("revanced_spoof_signature_verification_enabled", TRUE, true, false,
@@ -319,6 +351,7 @@ public class Settings extends BaseSettings {
     public static final BooleanSetting RYD_DISLIKE_PERCENTAGE = new BooleanSetting("ryd_dislike_percentage", FALSE, parent(RYD_ENABLED));
     public static final BooleanSetting RYD_COMPACT_LAYOUT = new BooleanSetting("ryd_compact_layout", FALSE, parent(RYD_ENABLED));
     public static final BooleanSetting RYD_TOAST_ON_CONNECTION_ERROR = new BooleanSetting("ryd_toast_on_connection_error", TRUE, parent(RYD_ENABLED));
+    public static final BooleanSetting RYD_PREFETCH = new BooleanSetting("ryd_prefetch", FALSE, parent(RYD_ENABLED));
 
     // SponsorBlock
     public static final BooleanSetting SB_ENABLED = new BooleanSetting("sb_enabled", TRUE);
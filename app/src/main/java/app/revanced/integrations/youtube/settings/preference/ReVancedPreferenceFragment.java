@@ -3,14 +3,24 @@ package app.revanced.integrations.youtube.settings.preference;
 import android.os.Build;
 import android.preference.ListPreference;
 import android.preference.Preference;
+import android.preference.PreferenceGroup;
 
 import androidx.annotation.RequiresApi;
 
+import java.util.function.Supplier;
+
 import app.revanced.integrations.shared.Logger;
+import app.revanced.integrations.shared.Utils;
+import app.revanced.integrations.shared.settings.BooleanSetting;
 import app.revanced.integrations.shared.settings.preference.AbstractPreferenceFragment;
+import app.revanced.integrations.youtube.patches.components.LithoFilterMetrics;
+import app.revanced.integrations.youtube.patches.components.LithoFilterTrace;
 import app.revanced.integrations.youtube.patches.playback.speed.CustomPlaybackSpeedPatch;
+import app.revanced.integrations.youtube.requests.Requester;
 import app.revanced.integrations.youtube.settings.Settings;
 
+import static app.revanced.integrations.shared.StringRef.str;
+
 /**
  * Preference fragment for ReVanced settings.
  *
@@ -29,8 +39,50 @@ public class ReVancedPreferenceFragment extends AbstractPreferenceFragment {
             if (defaultSpeedPreference instanceof ListPreference) {
                 CustomPlaybackSpeedPatch.initializeListPreference((ListPreference) defaultSpeedPreference);
             }
+
+            Preference diskCachePreference = findPreference(Settings.RESPONSE_DISK_CACHE.key);
+            if (diskCachePreference != null) {
+                diskCachePreference.setOnPreferenceChangeListener((preference, newValue) -> {
+                    // Cached responses are no longer used or updated, so delete them.
+                    if (Boolean.FALSE.equals(newValue)) {
+                        Utils.runOnBackgroundThread(Requester::clearResponseCache);
+                    }
+                    return true;
+                });
+            }
+
+            addReportPreference(Settings.DEBUG_LITHO_FILTER_METRICS, "revanced_debug_litho_filter_metrics",
+                    LithoFilterMetrics::getReport, LithoFilterMetrics::reset);
+            addReportPreference(Settings.DEBUG_LITHO_FILTER_TRACE, "revanced_debug_litho_filter_trace",
+                    LithoFilterTrace::getReport, LithoFilterTrace::reset);
         } catch (Exception ex) {
             Logger.printException(() -> "initialize failure", ex);
         }
     }
+
+    /**
+     * Adds a preference to view a report, below the setting that records what is reported.
+     * The titles and buttons use the strings of the key prefix
+     * with the suffixes _view_title, _view_summary, _copy and _reset.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void addReportPreference(BooleanSetting setting, String keyPrefix,
+                                     Supplier<String> reportSupplier, Runnable resetAction) {
+        Preference settingPreference = findPreference(setting.key);
+        if (settingPreference == null) {
+            return;
+        }
+        PreferenceGroup group = settingPreference.getParent();
+        if (group == null) {
+            return;
+        }
+
+        ReportDialogPreference reportPreference = new ReportDialogPreference(getContext(),
+                reportSupplier, resetAction, str(keyPrefix + "_copy"), str(keyPrefix + "_reset"));
+        reportPreference.setTitle(str(keyPrefix + "_view_title"));
+        reportPreference.setSummary(str(keyPrefix + "_view_summary"));
+        reportPreference.setOrder(settingPreference.getOrder() + 1);
+        group.addPreference(reportPreference);
+        reportPreference.setDependency(setting.key);
+    }
 }
@@ -0,0 +1,65 @@
+package app.revanced.integrations.youtube.settings.preference;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.os.Build;
+import android.preference.Preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.util.function.Supplier;
+
+import app.revanced.integrations.shared.Logger;
+import app.revanced.integrations.shared.Utils;
+
+/**
+ * Shows a text report in a dialog, with options to copy the report or reset what it reports.
+ */
+@SuppressWarnings("deprecation")
+@RequiresApi(api = Build.VERSION_CODES.N)
+public class ReportDialogPreference extends Preference implements Preference.OnPreferenceClickListener {
+
+    private final Supplier<String> reportSupplier;
+    private final Runnable resetAction;
+    private final String copyButtonText;
+    private final String resetButtonText;
+
+    /**
+     * @param reportSupplier Creates the report each time the dialog is shown.
+     * @param resetAction    Called if the reset button is clicked.
+     */
+    public ReportDialogPreference(Context context, @NonNull Supplier<String> reportSupplier,
+                                  @NonNull Runnable resetAction,
+                                  @NonNull String copyButtonText, @NonNull String resetButtonText) {
+        super(context);
+        this.reportSupplier = reportSupplier;
+        this.resetAction = resetAction;
+        this.copyButtonText = copyButtonText;
+        this.resetButtonText = resetButtonText;
+        setSelectable(true);
+        setOnPreferenceClickListener(this);
+    }
+
+    @Override
+    public boolean onPreferenceClick(Preference preference) {
+        try {
+            String report = reportSupplier.get();
+
+            new AlertDialog.Builder(getContext())
+                    .setTitle(getTitle())
+                    .setMessage(report)
+                    .setPositiveButton(android.R.string.ok, null)
+                    .setNeutralButton(copyButtonText, (dialog, which) -> {
+                        Utils.setClipboard(report);
+                    })
+                    .setNegativeButton(resetButtonText, (dialog, which) -> {
+                        resetAction.run();
+                    })
+                    .show();
+        } catch (Exception ex) {
+            Logger.printException(() -> "onPreferenceClick failure", ex);
+        }
+        return true;
+    }
+}
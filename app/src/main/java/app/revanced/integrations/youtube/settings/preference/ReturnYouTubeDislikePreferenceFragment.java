@@ -44,11 +44,17 @@ public class ReturnYouTubeDislikePreferenceFragment extends PreferenceFragment {
      */
     private SwitchPreference toastOnRYDNotAvailable;
 
+    /**
+     * If the votes of videos shown in feeds are fetched before the videos are opened.
+     */
+    private SwitchPreference prefetchPreference;
+
     private void updateUIState() {
         shortsPreference.setEnabled(Settings.RYD_SHORTS.isAvailable());
         percentagePreference.setEnabled(Settings.RYD_DISLIKE_PERCENTAGE.isAvailable());
         compactLayoutPreference.setEnabled(Settings.RYD_COMPACT_LAYOUT.isAvailable());
         toastOnRYDNotAvailable.setEnabled(Settings.RYD_TOAST_ON_CONNECTION_ERROR.isAvailable());
+        prefetchPreference.setEnabled(Settings.RYD_PREFETCH.isAvailable());
     }
 
     @Override
@@ -129,6 +135,18 @@ public class ReturnYouTubeDislikePreferenceFragment extends PreferenceFragment {
             });
             preferenceScreen.addPreference(toastOnRYDNotAvailable);
 
+            prefetchPreference = new SwitchPreference(context);
+            prefetchPreference.setChecked(Settings.RYD_PREFETCH.get());
+            prefetchPreference.setTitle(str("revanced_ryd_prefetch_title"));
+            prefetchPreference.setSummaryOn(str("revanced_ryd_prefetch_summary_on"));
+            prefetchPreference.setSummaryOff(str("revanced_ryd_prefetch_summary_off"));
+            prefetchPreference.setOnPreferenceChangeListener((pref, newValue) -> {
+                Settings.RYD_PREFETCH.save((Boolean) newValue);
+                updateUIState();
+                return true;
+            });
+            preferenceScreen.addPreference(prefetchPreference);
+
             updateUIState();
 
 
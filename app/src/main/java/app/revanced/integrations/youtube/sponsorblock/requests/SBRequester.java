@@ -2,10 +2,11 @@ package app.revanced.integrations.youtube.sponsorblock.requests;
 
 import static app.revanced.integrations.shared.StringRef.str;
 
+import android.util.JsonReader;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -13,10 +14,13 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import app.revanced.integrations.youtube.patches.VideoInformation;
 import app.revanced.integrations.youtube.requests.Requester;
 import app.revanced.integrations.youtube.requests.Route;
 import app.revanced.integrations.youtube.settings.Settings;
@@ -31,16 +35,6 @@ import app.revanced.integrations.shared.Utils;
 public class SBRequester {
     private static final String TIME_TEMPLATE = "%.3f";
 
-    /**
-     * TCP timeout
-     */
-    private static final int TIMEOUT_TCP_DEFAULT_MILLISECONDS = 7000;
-
-    /**
-     * HTTP response timeout
-     */
-    private static final int TIMEOUT_HTTP_DEFAULT_MILLISECONDS = 10000;
-
     /**
      * Response code of a successful API call
      */
@@ -58,33 +52,37 @@ public class SBRequester {
         }
     }
 
+    /**
+     * Concurrent calls for the same video share the same network call.
+     */
     @NonNull
     public static SponsorSegment[] getSegments(@NonNull String videoId) {
         Utils.verifyOffMainThread();
+        try {
+            String key = Requester.getRequestKey(Settings.SB_API_URL.get(), SBRoutes.GET_SEGMENTS,
+                    videoId, SegmentCategory.sponsorBlockAPIFetchCategories);
+            // Copy, since callers sort the array.
+            return Utils.submitOnBackgroundThreadCoalesced(key, () -> fetchSegments(videoId)).get().clone();
+        } catch (InterruptedException ex) {
+            Logger.printInfo(() -> "getSegments interrupted", ex);
+            Thread.currentThread().interrupt(); // Restore interrupt status flag.
+            return new SponsorSegment[0];
+        } catch (ExecutionException ex) {
+            Logger.printException(() -> "getSegments failure", ex); // Should never happen.
+            return new SponsorSegment[0];
+        }
+    }
+
+    @NonNull
+    private static SponsorSegment[] fetchSegments(@NonNull String videoId) {
         List<SponsorSegment> segments = new ArrayList<>();
         try {
             HttpURLConnection connection = getConnectionFromRoute(SBRoutes.GET_SEGMENTS, videoId, SegmentCategory.sponsorBlockAPIFetchCategories);
-            final int responseCode = connection.getResponseCode();
+            Requester.Response response = Requester.getResponse(SBRoutes.GET_SEGMENTS, connection);
+            final int responseCode = response.getResponseCode();
 
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
-                JSONArray responseArray = Requester.parseJSONArray(connection);
-                final long minSegmentDuration = (long) (Settings.SB_SEGMENT_MIN_DURATION.get() * 1000);
-                for (int i = 0, length = responseArray.length(); i < length; i++) {
-                    JSONObject obj = (JSONObject) responseArray.get(i);
-                    JSONArray segment = obj.getJSONArray("segment");
-                    final long start = (long) (segment.getDouble(0) * 1000);
-                    final long end = (long) (segment.getDouble(1) * 1000);
-
-                    String uuid = obj.getString("UUID");
-                    final boolean locked = obj.getInt("locked") == 1;
-                    String categoryKey = obj.getString("category");
-                    SegmentCategory category = SegmentCategory.byCategoryKey(categoryKey);
-                    if (category == null) {
-                        Logger.printException(() -> "Received unknown category: " + categoryKey); // should never happen
-                    } else if ((end - start) >= minSegmentDuration || category == SegmentCategory.HIGHLIGHT) {
-                        segments.add(new SponsorSegment(category, uuid, start, end, locked));
-                    }
-                }
+                segments.addAll(parseSegments(response));
                 Logger.printDebug(() -> {
                     StringBuilder builder = new StringBuilder("Downloaded segments:");
                     for (SponsorSegment segment : segments) {
@@ -98,12 +96,15 @@ public class SBRequester {
                 Logger.printDebug(() -> "No segments found for video: " + videoId);
             } else {
                 handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_status", responseCode), null);
-                connection.disconnect(); // something went wrong, might as well disconnect
+                response.release();
+                segments.addAll(getStaleSegments(videoId));
             }
         } catch (SocketTimeoutException ex) {
             handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_timeout"), ex);
+            segments.addAll(getStaleSegments(videoId));
         } catch (IOException ex) {
             handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_generic"), ex);
+            segments.addAll(getStaleSegments(videoId));
         } catch (Exception ex) {
             // Should never happen
             Logger.printException(() -> "getSegments failure", ex);
@@ -154,6 +155,8 @@ public class SBRequester {
             switch (responseCode) {
                 case HTTP_STATUS_CODE_SUCCESS:
                     messageToToast = str("revanced_sb_submit_succeeded");
+                    // Segments are fetched again after submitting, and must include the new segment.
+                    removeCachedSegments(videoId);
                     break;
                 case 409:
                     messageToToast = str("revanced_sb_submit_failed_duplicate");
@@ -208,6 +211,8 @@ public class SBRequester {
         voteOrRequestCategoryChange(segment, SegmentVote.CATEGORY_CHANGE, categoryToVoteFor);
     }
     private static void voteOrRequestCategoryChange(@NonNull SponsorSegment segment, @NonNull SegmentVote voteOption, SegmentCategory categoryToVoteFor) {
+        // Only segments of the current video can be voted on.
+        final String videoId = VideoInformation.getVideoId();
         Utils.runOnBackgroundThread(() -> {
             try {
                 String segmentUuid = segment.UUID;
@@ -220,6 +225,10 @@ public class SBRequester {
                 switch (responseCode) {
                     case HTTP_STATUS_CODE_SUCCESS:
                         Logger.printDebug(() -> "Vote success for segment: " + segment);
+                        // The vote can hide the segment or change the category.
+                        if (!videoId.isEmpty()) {
+                            removeCachedSegments(videoId);
+                        }
                         break;
                     case 403:
                         Utils.showToastLong(
@@ -300,13 +309,98 @@ public class SBRequester {
         });
     }
 
+    private static List<SponsorSegment> parseSegments(Requester.Response response) throws IOException, JSONException {
+        final long minSegmentDuration = (long) (Settings.SB_SEGMENT_MIN_DURATION.get() * 1000);
+        return Requester.parseJSONArrayStreaming(response, reader -> parseSegment(reader, minSegmentDuration));
+    }
+
+    /**
+     * @return The cached segments of the video, or an empty list if the segments are not cached or are too old.
+     * @see Requester#getStaleResponse(Route, HttpURLConnection)
+     */
+    private static List<SponsorSegment> getStaleSegments(String videoId) {
+        try {
+            Requester.Response response = Requester.getStaleResponse(SBRoutes.GET_SEGMENTS,
+                    getConnectionFromRoute(SBRoutes.GET_SEGMENTS, videoId, SegmentCategory.sponsorBlockAPIFetchCategories));
+            if (response != null && response.getResponseCode() == HTTP_STATUS_CODE_SUCCESS) {
+                List<SponsorSegment> segments = parseSegments(response);
+                Logger.printDebug(() -> "Using cached segments: " + segments.size());
+                return segments;
+            }
+        } catch (IOException | JSONException ex) {
+            Logger.printInfo(() -> "Failed to read cached segments of video: " + videoId, ex);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Parses a segment of the {@link SBRoutes#GET_SEGMENTS} response, while it is read from the response stream.
+     *
+     * @return The segment, or null if the segment is shorter than the minimum duration or has an unknown category.
+     */
+    @Nullable
+    private static SponsorSegment parseSegment(JsonReader reader, long minSegmentDuration)
+            throws IOException, JSONException {
+        long start = -1;
+        long end = -1;
+        String uuid = null;
+        boolean locked = false;
+        String categoryKey = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "segment":
+                    reader.beginArray();
+                    start = (long) (reader.nextDouble() * 1000);
+                    end = (long) (reader.nextDouble() * 1000);
+                    while (reader.hasNext()) {
+                        reader.skipValue();
+                    }
+                    reader.endArray();
+                    break;
+                case "UUID":
+                    uuid = reader.nextString();
+                    break;
+                case "locked":
+                    locked = reader.nextInt() == 1;
+                    break;
+                case "category":
+                    categoryKey = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (start < 0 || uuid == null || categoryKey == null) {
+            throw new JSONException("Incomplete segment: " + uuid);
+        }
+        SegmentCategory category = SegmentCategory.byCategoryKey(categoryKey);
+        if (category == null) {
+            final String key = categoryKey;
+            Logger.printException(() -> "Received unknown category: " + key); // should never happen
+            return null;
+        }
+        if ((end - start) >= minSegmentDuration || category == SegmentCategory.HIGHLIGHT) {
+            return new SponsorSegment(category, uuid, start, end, locked);
+        }
+        return null;
+    }
+
     // helpers
 
+    /**
+     * Removes the disk cached segments of a video, so the next fetch includes changes made by the user.
+     */
+    private static void removeCachedSegments(@NonNull String videoId) throws IOException {
+        Requester.removeCachedResponse(SBRoutes.GET_SEGMENTS, getConnectionFromRoute(
+                SBRoutes.GET_SEGMENTS, videoId, SegmentCategory.sponsorBlockAPIFetchCategories));
+    }
+
     private static HttpURLConnection getConnectionFromRoute(@NonNull Route route, String... params) throws IOException {
-        HttpURLConnection connection = Requester.getConnectionFromRoute(Settings.SB_API_URL.get(), route, params);
-        connection.setConnectTimeout(TIMEOUT_TCP_DEFAULT_MILLISECONDS);
-        connection.setReadTimeout(TIMEOUT_HTTP_DEFAULT_MILLISECONDS);
-        return connection;
+        return Requester.getConnectionFromRoute(Settings.SB_API_URL.get(), route, params);
     }
 
     private static JSONObject getJSONObject(@NonNull Route route, String... params) throws IOException, JSONException {
@@ -6,14 +6,35 @@ import static app.revanced.integrations.youtube.requests.Route.Method.POST;
 import app.revanced.integrations.youtube.requests.Route;
 
 class SBRoutes {
-    static final Route IS_USER_VIP = new Route(GET, "/api/isUserVIP?userID={user_id}");
-    static final Route GET_SEGMENTS = new Route(GET, "/api/skipSegments?videoID={video_id}&categories={categories}");
-    static final Route VIEWED_SEGMENT = new Route(POST, "/api/viewedVideoSponsorTime?UUID={segment_id}");
-    static final Route GET_USER_STATS = new Route(GET, "/api/userInfo?userID={user_id}&values=[\"userID\",\"userName\",\"reputation\",\"segmentCount\",\"ignoredSegmentCount\",\"viewCount\",\"minutesSaved\"]");
-    static final Route CHANGE_USERNAME = new Route(POST, "/api/setUsername?userID={user_id}&username={username}");
-    static final Route SUBMIT_SEGMENTS = new Route(POST, "/api/skipSegments?userID={user_id}&videoID={video_id}&category={category}&startTime={start_time}&endTime={end_time}&videoDuration={duration}");
-    static final Route VOTE_ON_SEGMENT_QUALITY = new Route(POST, "/api/voteOnSponsorTime?userID={user_id}&UUID={segment_id}&type={type}");
-    static final Route VOTE_ON_SEGMENT_CATEGORY = new Route(POST, "/api/voteOnSponsorTime?userID={user_id}&UUID={segment_id}&category={category}");
+    /**
+     * TCP timeout
+     */
+    private static final int TIMEOUT_TCP_DEFAULT_MILLISECONDS = 7000;
+
+    /**
+     * HTTP response timeout
+     */
+    private static final int TIMEOUT_HTTP_DEFAULT_MILLISECONDS = 10000;
+
+    /**
+     * How long cached segments are used without revalidating.  Segments of a video rarely change.
+     */
+    private static final long SEGMENTS_CACHE_MAX_AGE_MILLISECONDS = 5 * 60 * 1000; // 5 Minutes.
+
+    /**
+     * How long cached segments are used if SponsorBlock cannot be reached.
+     */
+    private static final long SEGMENTS_CACHE_MAX_STALE_MILLISECONDS = 7 * 24 * 60 * 60 * 1000L; // 7 Days.
+
+    static final Route IS_USER_VIP = new Route(GET, "/api/isUserVIP?userID={user_id}", TIMEOUT_TCP_DEFAULT_MILLISECONDS, TIMEOUT_HTTP_DEFAULT_MILLISECONDS);
+    static final Route GET_SEGMENTS = new Route(GET, "/api/skipSegments?videoID={video_id}&categories={categories}", TIMEOUT_TCP_DEFAULT_MILLISECONDS, TIMEOUT_HTTP_DEFAULT_MILLISECONDS,
+            SEGMENTS_CACHE_MAX_AGE_MILLISECONDS, SEGMENTS_CACHE_MAX_STALE_MILLISECONDS);
+    static final Route VIEWED_SEGMENT = new Route(POST, "/api/viewedVideoSponsorTime?UUID={segment_id}", TIMEOUT_TCP_DEFAULT_MILLISECONDS, TIMEOUT_HTTP_DEFAULT_MILLISECONDS);
+    static final Route GET_USER_STATS = new Route(GET, "/api/userInfo?userID={user_id}&values=[\"userID\",\"userName\",\"reputation\",\"segmentCount\",\"ignoredSegmentCount\",\"viewCount\",\"minutesSaved\"]", TIMEOUT_TCP_DEFAULT_MILLISECONDS, TIMEOUT_HTTP_DEFAULT_MILLISECONDS);
+    static final Route CHANGE_USERNAME = new Route(POST, "/api/setUsername?userID={user_id}&username={username}", TIMEOUT_TCP_DEFAULT_MILLISECONDS, TIMEOUT_HTTP_DEFAULT_MILLISECONDS);
+    static final Route SUBMIT_SEGMENTS = new Route(POST, "/api/skipSegments?userID={user_id}&videoID={video_id}&category={category}&startTime={start_time}&endTime={end_time}&videoDuration={duration}", TIMEOUT_TCP_DEFAULT_MILLISECONDS, TIMEOUT_HTTP_DEFAULT_MILLISECONDS);
+    static final Route VOTE_ON_SEGMENT_QUALITY = new Route(POST, "/api/voteOnSponsorTime?userID={user_id}&UUID={segment_id}&type={type}", TIMEOUT_TCP_DEFAULT_MILLISECONDS, TIMEOUT_HTTP_DEFAULT_MILLISECONDS);
+    static final Route VOTE_ON_SEGMENT_CATEGORY = new Route(POST, "/api/voteOnSponsorTime?userID={user_id}&UUID={segment_id}&category={category}", TIMEOUT_TCP_DEFAULT_MILLISECONDS, TIMEOUT_HTTP_DEFAULT_MILLISECONDS);
 
     private SBRoutes() {
     }
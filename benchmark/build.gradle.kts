@@ -0,0 +1,80 @@
+plugins {
+    java
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            // The search classes do not use Android, and are benchmarked directly from the app sources.
+            srcDir("../app/src/main/java")
+            include(
+                "app/revanced/integrations/benchmark/**",
+                "app/revanced/integrations/youtube/TrieSearch.java",
+                "app/revanced/integrations/youtube/ByteTrieSearch.java",
+                "app/revanced/integrations/youtube/StringTrieSearch.java",
+                "app/revanced/integrations/youtube/BytePrefixScanner.java",
+                "app/revanced/integrations/youtube/ByteKmpSearch.java",
+                "app/revanced/integrations/youtube/LithoCaptureFile.java",
+                "app/revanced/integrations/youtube/VideoIdSearch.java",
+                "app/revanced/integrations/youtube/ParallelByteSearch.java",
+            )
+        }
+    }
+}
+
+dependencies {
+    implementation(libs.annotation)
+    implementation(libs.jmh.core)
+    // JVM versions of the Android JSON parsers.  Gson JsonReader is the same API as android.util.JsonReader.
+    implementation(libs.gson)
+    implementation(libs.json)
+    annotationProcessor(libs.jmh.generator.annprocess)
+}
+
+tasks {
+    // Usage: ./gradlew :benchmark:jmh -Pjmh.include=ByteSearch
+    val jmh by registering(JavaExec::class) {
+        description = "Runs the JMH benchmarks."
+        group = "benchmark"
+
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("org.openjdk.jmh.Main")
+        // Report the allocation rate with the throughput.
+        args("-prof", "gc")
+        project.findProperty("jmh.include")?.let { args(it.toString()) }
+    }
+
+    // Usage: ./gradlew :benchmark:checkAllocations
+    val checkAllocations by registering(JavaExec::class) {
+        description = "Fails if the litho filter searches allocate memory."
+        group = "benchmark"
+
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("app.revanced.integrations.benchmark.FilterAllocationBenchmark")
+    }
+
+    // Usage: ./gradlew :benchmark:checkVideoIdSearch
+    val checkVideoIdSearch by registering(JavaExec::class) {
+        description = "Fails if a concurrently published Shorts video id is not found."
+        group = "benchmark"
+
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("app.revanced.integrations.benchmark.VideoIdSearchBenchmark")
+    }
+
+    // Usage: ./gradlew :benchmark:compareCaptures -Pbaseline=<capture> -Pcandidate=<capture>
+    val compareCaptures by registering(JavaExec::class) {
+        description = "Compares the verdicts and filter times of two litho captures."
+        group = "benchmark"
+
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("app.revanced.integrations.benchmark.LithoCaptureCompare")
+        project.findProperty("baseline")?.let { args(it.toString()) }
+        project.findProperty("candidate")?.let { args(it.toString()) }
+    }
+}
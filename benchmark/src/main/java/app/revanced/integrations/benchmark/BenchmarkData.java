@@ -0,0 +1,190 @@
+package app.revanced.integrations.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import app.revanced.integrations.youtube.LithoCaptureFile;
+
+/**
+ * Patterns and search data used by the benchmarks.
+ *
+ * Patterns are copied from the Litho filters, so the searches have a realistic size and shape.
+ */
+final class BenchmarkData {
+
+    /**
+     * Path and identifier patterns of the Litho filters.
+     */
+    static final String[] PATH_PATTERNS = {
+            "animated_button_border.eml", "brand_video_shelf", "channel_profile.eml",
+            "chapters_horizontal_shelf", "chips_shelf", "comment_composer.eml", "compact_channel_bar.eml",
+            "compact_video.eml", "composer_short_creation_button.eml", "cta_shelf_card",
+            "horizontal_gaming_shelf.eml", "horizontal_movie_shelf", "horizontal_shelf.eml",
+            "horizontal_shelf_inline.eml", "horizontal_tile_shelf.eml", "horizontal_video_shelf.eml",
+            "image_shelf", "images_post_root.eml", "images_post_slim.eml",
+            "learning_concept_macro_markers_carousel_shelf", "library_recent_shelf", "like_fountain.eml",
+            "macro_markers_carousel.eml", "member_recognition_shelf", "mini_game_card.eml",
+            "mixed_content_shelf", "post_base_wrapper_slim.eml", "post_shelf", "reel_channel_bar.eml",
+            "reel_metapanel.eml", "reel_player_disclosure.eml", "search_video_with_context.eml",
+            "shelf_header.eml", "shorts_shelf", "sponsorships_comments_footer.eml",
+            "sponsorships_comments_header.eml", "stickers_layer.eml", "suggested_action.eml",
+            "super_thanks_button.eml", "text_post_root.eml", "text_post_root_slim.eml",
+            "video_action_bar.eml", "video_card.eml", "|button.eml|", "|clip_button.eml|",
+            "|download_button.eml|"
+    };
+
+    /**
+     * Buffer patterns of the flyout menu, button and Shorts filters.
+     */
+    static final String[] BUFFER_PATTERNS = {
+            "quality_sheet", "yt_outline_bag_", "yt_outline_bell_", "yt_outline_bookmark_",
+            "yt_outline_camera_", "yt_outline_dollar_sign_heart_", "yt_outline_flag", "yt_outline_gear",
+            "yt_outline_hashtag_", "yt_outline_info_circle", "yt_outline_list_add_",
+            "yt_outline_location_point_", "yt_outline_lock", "yt_outline_person_radar",
+            "yt_outline_play_arrow_half_circle", "yt_outline_question_circle", "yt_outline_scissors",
+            "yt_outline_screen_light", "yt_outline_search_", "yt_outline_share",
+            "yt_outline_template_add_", "yt_outline_vr", "yt_outline_youtube_shorts_plus"
+    };
+
+    /**
+     * Keywords a user might enter to hide videos.
+     */
+    static final String[] KEYWORDS = {
+            "mr beast", "minecraft", "fortnite", "reaction", "unboxing", "asmr", "prank", "tier list",
+            "try not to laugh", "challenge", "compilation", "gameplay", "trailer", "podcast", "live stream",
+            "crypto", "news", "politics", "shorts", "vlog"
+    };
+
+    /**
+     * Strings found in most buffers, none of which match any pattern.
+     */
+    private static final String[] BUFFER_STRINGS = {
+            "googlevideo.com/initplayback?source=youtube", "https://i.ytimg.com/vi/", "hqdefault.jpg",
+            "OMX.google.vp9.decoder", "c2.android.av1.decoder", "browse-feed", "FEwhat_to_watch",
+            "thumbnail.eml", "avatar.eml", "overflow_button.eml", "YouTubeSans-SemiBold", "sans-serif",
+            "yt_outline_overflow_vertical", "Video title of a home feed item", "Channel name", "1.2M views"
+    };
+
+    private static final String[] PATH_COMPONENTS = {
+            "video_with_context.eml", "inline_player_controls.eml", "thumbnail.eml", "avatar.eml",
+            "metadata.eml", "overflow_button.eml", "cell_divider.eml", "rich_item_renderer.eml",
+            "video_lockup_with_attachment.eml", "feed_nudge.eml"
+    };
+
+    private BenchmarkData() {
+    }
+
+    static byte[][] toBytes(String... strings) {
+        byte[][] bytes = new byte[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return Litho paths, similar to the paths seen while scrolling the home feed.
+     * Some paths contain a filtered component.
+     */
+    static StringBuilder[] createPaths(int count, long seed) {
+        Random random = new Random(seed);
+        StringBuilder[] paths = new StringBuilder[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder path = new StringBuilder();
+            final int depth = 3 + random.nextInt(8);
+            for (int j = 0; j < depth; j++) {
+                // About 1 in 30 components are filtered.
+                String component = random.nextInt(30) == 0
+                        ? PATH_PATTERNS[random.nextInt(PATH_PATTERNS.length)]
+                        : PATH_COMPONENTS[random.nextInt(PATH_COMPONENTS.length)];
+                path.append(component).append('|');
+            }
+            paths[i] = path;
+        }
+        return paths;
+    }
+
+    /**
+     * @return Synthetic proto buffers of the requested size.
+     * Each buffer is random binary data with common buffer strings, and 1 in 4 buffers contain a match.
+     */
+    static byte[][] createBuffers(int count, int size, String[] matchingStrings, long seed) {
+        Random random = new Random(seed);
+        byte[][] buffers = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            byte[] buffer = new byte[size];
+            random.nextBytes(buffer);
+
+            int index = 0;
+            while (index < size) {
+                // Random field data followed by a string field.
+                index += 4 + random.nextInt(40);
+                String string = BUFFER_STRINGS[random.nextInt(BUFFER_STRINGS.length)];
+                index = putString(buffer, index, string);
+            }
+            if (i % 4 == 0) {
+                String match = matchingStrings[random.nextInt(matchingStrings.length)];
+                putString(buffer, random.nextInt(size), match);
+            }
+            buffers[i] = buffer;
+        }
+        return buffers;
+    }
+
+    private static int putString(byte[] buffer, int index, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        final int length = Math.min(bytes.length, buffer.length - index);
+        if (length > 0) {
+            System.arraycopy(bytes, 0, buffer, index, length);
+        }
+        return index + bytes.length;
+    }
+
+    /**
+     * @param location Directory of files, where each file is the raw content of a single proto buffer,
+     *                 or a {@link LithoCaptureFile} of recorded litho components.
+     */
+    static byte[][] loadBuffers(String location) throws IOException {
+        File locationFile = new File(location);
+        if (locationFile.isFile()) {
+            return loadCapturedBuffers(locationFile);
+        }
+
+        File[] files = locationFile.listFiles(File::isFile);
+        if (files == null || files.length == 0) {
+            throw new IOException("No buffer files found in: " + location);
+        }
+        Arrays.sort(files);
+
+        List<byte[]> buffers = new ArrayList<>(files.length);
+        for (File file : files) {
+            buffers.add(Files.readAllBytes(file.toPath()));
+        }
+        return buffers.toArray(new byte[0][]);
+    }
+
+    /**
+     * @return The buffers of a capture, excluding empty buffers.
+     */
+    private static byte[][] loadCapturedBuffers(File captureFile) throws IOException {
+        List<byte[]> buffers = new ArrayList<>();
+        try (LithoCaptureFile.Reader reader = new LithoCaptureFile.Reader(captureFile)) {
+            LithoCaptureFile.Record record;
+            while ((record = reader.read()) != null) {
+                if (record.buffer.length > 0) {
+                    buffers.add(record.buffer);
+                }
+            }
+        }
+        if (buffers.isEmpty()) {
+            throw new IOException("No buffers found in: " + captureFile);
+        }
+        return buffers.toArray(new byte[0][]);
+    }
+}
@@ -0,0 +1,118 @@
+package app.revanced.integrations.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import app.revanced.integrations.youtube.ByteKmpSearch;
+import app.revanced.integrations.youtube.ByteTrieSearch;
+
+/**
+ * Proto buffer search of the buffer patterns used by the flyout menu, button and Shorts filters.
+ *
+ * Each invocation searches one buffer, and all buffers are searched in turn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteSearchBenchmark {
+
+    /**
+     * Size of the synthetic buffers. Most buffers are a few KB, and some feed items are over 30 KB.
+     */
+    @Param({"2000", "30000"})
+    public int bufferSize;
+
+    /**
+     * Directory of recorded buffers to search instead of synthetic buffers.
+     * Each file is the raw content of one buffer, or the directory can be a litho capture file.
+     * If set, {@link #bufferSize} is ignored.
+     */
+    @Param({""})
+    public String bufferDirectory;
+
+    private byte[][] buffers;
+    private int bufferIndex;
+
+    private ByteTrieSearch trie;
+    private ByteTrieSearch compiledTrie;
+    private ByteTrieSearch frozenTrie;
+
+    private byte[][] patterns;
+    private int[][] failurePatterns;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        buffers = bufferDirectory.isEmpty()
+                ? BenchmarkData.createBuffers(64, bufferSize, BenchmarkData.BUFFER_PATTERNS, 1)
+                : BenchmarkData.loadBuffers(bufferDirectory);
+
+        patterns = BenchmarkData.toBytes(BenchmarkData.BUFFER_PATTERNS);
+        failurePatterns = new int[patterns.length][];
+        for (int i = 0; i < patterns.length; i++) {
+            failurePatterns[i] = ByteKmpSearch.createFailurePattern(patterns[i]);
+        }
+
+        trie = new ByteTrieSearch(patterns);
+        compiledTrie = new ByteTrieSearch(patterns);
+        compiledTrie.compile();
+        frozenTrie = new ByteTrieSearch(patterns);
+        frozenTrie.freeze();
+    }
+
+    private byte[] nextBuffer() {
+        byte[] buffer = buffers[bufferIndex];
+        bufferIndex = (bufferIndex + 1) % buffers.length;
+        return buffer;
+    }
+
+    /**
+     * Search used by the trie before it was compiled.
+     */
+    @Benchmark
+    public boolean trie() {
+        byte[] buffer = nextBuffer();
+        return trie.matches(buffer, 0, buffer.length);
+    }
+
+    @Benchmark
+    public boolean compiledTrie() {
+        byte[] buffer = nextBuffer();
+        return compiledTrie.matches(buffer, 0, buffer.length);
+    }
+
+    @Benchmark
+    public boolean frozenTrie() {
+        byte[] buffer = nextBuffer();
+        return frozenTrie.matches(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Search of a list of byte array filter groups, where each pattern is searched separately.
+     */
+    @Benchmark
+    public boolean kmp() {
+        byte[] buffer = nextBuffer();
+        for (int i = 0, length = patterns.length; i < length; i++) {
+            if (ByteKmpSearch.indexOf(buffer, 0, buffer.length, patterns[i], failurePatterns[i]) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,157 @@
+package app.revanced.integrations.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import app.revanced.integrations.youtube.ByteTrieSearch;
+import app.revanced.integrations.youtube.StringTrieSearch;
+
+/**
+ * Steady state memory allocation of the searches done for each Litho component:
+ * the identifier and path searches of a reused path builder, recording matches into reused arrays,
+ * and then a buffer range search of each matched component.
+ *
+ * The Litho filter patch uses Android classes and cannot run here, so this uses the same search classes
+ * and callbacks the same way the patch does.
+ *
+ * Usage: ./gradlew :benchmark:checkAllocations
+ * Fails if any allocation is found, as the filter hot path should not allocate memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterAllocationBenchmark {
+
+    /**
+     * Allocation per operation that is considered zero.
+     * The gc profiler reports a small non zero amount from the measurement itself.
+     */
+    private static final double MAXIMUM_BYTES_PER_OPERATION = 1;
+
+    private static final String ALLOCATION_RESULT_NAME = "gc.alloc.rate.norm";
+
+    /**
+     * Reused matches of a single component, the same as the Litho filter parameters.
+     */
+    private static final class Matches {
+        final int[] matchedIndexes = new int[64];
+        int matchedCount;
+        int bufferMatchedIndex;
+
+        void addMatch(int matchedIndex) {
+            if (matchedCount < matchedIndexes.length) {
+                matchedIndexes[matchedCount++] = matchedIndex;
+            }
+        }
+    }
+
+    private String[] identifiers;
+    private StringBuilder[] paths;
+    private byte[][] buffers;
+    private int index;
+
+    private StringTrieSearch identifierSearch;
+    private StringTrieSearch pathSearch;
+    private ByteTrieSearch bufferSearch;
+
+    private final Matches matches = new Matches();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        paths = BenchmarkData.createPaths(256, 1);
+        identifiers = new String[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            identifiers[i] = paths[i].substring(0, paths[i].indexOf("|"));
+        }
+        buffers = BenchmarkData.createBuffers(256, 4000, BenchmarkData.BUFFER_PATTERNS, 1);
+
+        identifierSearch = createSearch();
+        pathSearch = createSearch();
+
+        bufferSearch = new ByteTrieSearch();
+        for (byte[] pattern : BenchmarkData.toBytes(BenchmarkData.BUFFER_PATTERNS)) {
+            bufferSearch.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                ((Matches) callbackParameter).bufferMatchedIndex = matchedStartIndex;
+                return true;
+            });
+        }
+        bufferSearch.freeze();
+    }
+
+    private static StringTrieSearch createSearch() {
+        StringTrieSearch search = new StringTrieSearch();
+        for (String pattern : BenchmarkData.PATH_PATTERNS) {
+            search.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                ((Matches) callbackParameter).addMatch(matchedStartIndex);
+                return false;
+            });
+        }
+        search.freeze();
+        return search;
+    }
+
+    @Benchmark
+    public boolean filter() {
+        String identifier = identifiers[index];
+        StringBuilder path = paths[index];
+        byte[] buffer = buffers[index];
+        index = (index + 1) % paths.length;
+
+        Matches parameters = matches;
+        parameters.matchedCount = 0;
+        identifierSearch.matches(identifier, parameters);
+        pathSearch.matches(path, parameters);
+
+        for (int i = 0; i < parameters.matchedCount; i++) {
+            parameters.bufferMatchedIndex = -1;
+            // Search only a range, the same as the Litho buffer content window.
+            if (bufferSearch.matches(buffer, 1, buffer.length - 1, parameters)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FilterAllocationBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        for (RunResult result : results) {
+            Result<?> allocation = result.getSecondaryResults().get(ALLOCATION_RESULT_NAME);
+            if (allocation == null) {
+                throw new IllegalStateException("No allocation result, gc profiler is not supported by this JVM");
+            }
+            final double bytesPerOperation = allocation.getScore();
+            System.out.println("Bytes allocated per operation: " + bytesPerOperation);
+            if (bytesPerOperation > MAXIMUM_BYTES_PER_OPERATION) {
+                throw new IllegalStateException("Filter searches allocate memory: "
+                        + bytesPerOperation + " bytes per operation");
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package app.revanced.integrations.benchmark;
+
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a SponsorBlock segments response, by reading the response into a String and then a JSONArray
+ * (as previously done), compared to parsing while reading the response stream.
+ *
+ * The streaming parser is Gson JsonReader, which is the same API as the android.util.JsonReader used on device.
+ * Use with the gc profiler (the default of the jmh task) to compare the bytes allocated per response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonParseBenchmark {
+
+    private static final String[] CATEGORIES = {
+            "sponsor", "selfpromo", "interaction", "intro", "outro", "preview", "filler", "poi_highlight"
+    };
+
+    /**
+     * Segment data kept from each response element.
+     */
+    private static final class Segment {
+        final String category;
+        final String uuid;
+        final long start;
+        final long end;
+        final boolean locked;
+
+        Segment(String category, String uuid, long start, long end, boolean locked) {
+            this.category = category;
+            this.uuid = uuid;
+            this.start = start;
+            this.end = end;
+            this.locked = locked;
+        }
+    }
+
+    @Param({"1", "10", "100"})
+    public int segmentCount;
+
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random random = new Random(1);
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < segmentCount; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            final double start = random.nextInt(600_000) / 1000.0;
+            final double end = start + random.nextInt(60_000) / 1000.0;
+            builder.append(String.format(Locale.US,
+                    "{\"category\":\"%s\",\"actionType\":\"skip\",\"segment\":[%.3f,%.3f],"
+                            + "\"UUID\":\"%064x\",\"videoDuration\":%.3f,\"locked\":%d,\"votes\":%d,"
+                            + "\"description\":\"\"}",
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], start, end,
+                    random.nextLong(), 660.0, random.nextInt(2), random.nextInt(50)));
+        }
+        response = builder.append(']').toString().getBytes(StandardCharsets.UTF_8);
+
+        final int stringCount = parseString().size();
+        final int streamingCount = parseStreaming().size();
+        if (stringCount != segmentCount || streamingCount != segmentCount) {
+            throw new IllegalStateException("Parsed: " + stringCount + " streaming: " + streamingCount);
+        }
+    }
+
+    /**
+     * Previous parsing: the response as a String, parsed into a JSONArray.
+     */
+    @Benchmark
+    public List<Segment> parseString() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(response), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.append(line).append('\n');
+            }
+        }
+
+        JSONArray array = new JSONArray(builder.toString());
+        List<Segment> segments = new ArrayList<>();
+        for (int i = 0, length = array.length(); i < length; i++) {
+            JSONObject obj = array.getJSONObject(i);
+            JSONArray segment = obj.getJSONArray("segment");
+            segments.add(new Segment(obj.getString("category"), obj.getString("UUID"),
+                    (long) (segment.getDouble(0) * 1000), (long) (segment.getDouble(1) * 1000),
+                    obj.getInt("locked") == 1));
+        }
+        return segments;
+    }
+
+    /**
+     * Streaming parsing, as done by the requester.
+     */
+    @Benchmark
+    public List<Segment> parseStreaming() throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(response), StandardCharsets.UTF_8))) {
+            List<Segment> segments = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                long start = 0;
+                long end = 0;
+                String uuid = null;
+                boolean locked = false;
+                String category = null;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "segment":
+                            reader.beginArray();
+                            start = (long) (reader.nextDouble() * 1000);
+                            end = (long) (reader.nextDouble() * 1000);
+                            reader.endArray();
+                            break;
+                        case "UUID":
+                            uuid = reader.nextString();
+                            break;
+                        case "locked":
+                            locked = reader.nextInt() == 1;
+                            break;
+                        case "category":
+                            category = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                segments.add(new Segment(category, uuid, start, end, locked));
+            }
+            reader.endArray();
+            return segments;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package app.revanced.integrations.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import app.revanced.integrations.youtube.ByteTrieSearch;
+
+/**
+ * Keyword filter search of the feed buffers.
+ *
+ * Compares the case insensitive search with searching for the common case variations of each keyword.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KeywordSearchBenchmark {
+
+    @Param({"30000"})
+    public int bufferSize;
+
+    /**
+     * Directory of recorded buffers, or a litho capture file, to search instead of synthetic buffers.
+     */
+    @Param({""})
+    public String bufferDirectory;
+
+    private byte[][] buffers;
+    private int bufferIndex;
+
+    private ByteTrieSearch caseInsensitiveSearch;
+    private ByteTrieSearch caseVariationsSearch;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        buffers = bufferDirectory.isEmpty()
+                ? BenchmarkData.createBuffers(64, bufferSize, BenchmarkData.KEYWORDS, 1)
+                : BenchmarkData.loadBuffers(bufferDirectory);
+
+        caseInsensitiveSearch = new ByteTrieSearch(true,
+                BenchmarkData.toBytes(BenchmarkData.KEYWORDS));
+        caseInsensitiveSearch.freeze();
+
+        ArrayList<String> variations = new ArrayList<>();
+        for (String keyword : BenchmarkData.KEYWORDS) {
+            addCaseVariations(variations, keyword);
+        }
+        caseVariationsSearch = new ByteTrieSearch(
+                BenchmarkData.toBytes(variations.toArray(new String[0])));
+        caseVariationsSearch.freeze();
+    }
+
+    /**
+     * Case variations previously searched by the keyword filter.
+     */
+    private static void addCaseVariations(ArrayList<String> variations, String keyword) {
+        variations.add(keyword);
+        variations.add(keyword.toLowerCase(Locale.ROOT));
+        variations.add(keyword.toUpperCase(Locale.ROOT));
+        variations.add(Character.toUpperCase(keyword.charAt(0)) + keyword.substring(1));
+
+        StringBuilder allFirstLetters = new StringBuilder(keyword);
+        for (int i = 0, length = allFirstLetters.length(); i < length; i++) {
+            if (i == 0 || allFirstLetters.charAt(i - 1) == ' ') {
+                allFirstLetters.setCharAt(i, Character.toUpperCase(allFirstLetters.charAt(i)));
+            }
+        }
+        variations.add(allFirstLetters.toString());
+    }
+
+    private byte[] nextBuffer() {
+        byte[] buffer = buffers[bufferIndex];
+        bufferIndex = (bufferIndex + 1) % buffers.length;
+        return buffer;
+    }
+
+    @Benchmark
+    public boolean caseInsensitive() {
+        byte[] buffer = nextBuffer();
+        return caseInsensitiveSearch.matches(buffer, 0, buffer.length);
+    }
+
+    @Benchmark
+    public boolean caseVariations() {
+        byte[] buffer = nextBuffer();
+        return caseVariationsSearch.matches(buffer, 0, buffer.length);
+    }
+}
@@ -0,0 +1,119 @@
+package app.revanced.integrations.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import app.revanced.integrations.youtube.LithoCaptureFile;
+
+/**
+ * Compares the verdicts and filter times of two litho captures of the same components,
+ * such as a capture and the replay result of a different build.
+ *
+ * Usage: ./gradlew :benchmark:compareCaptures -Pbaseline=litho_capture.bin -Pcandidate=litho_replay_result.bin
+ *
+ * If only a baseline is given, then the timing of the baseline is reported.
+ */
+public final class LithoCaptureCompare {
+
+    /**
+     * Maximum number of different verdicts to print.
+     */
+    private static final int MAXIMUM_DIFFERENCES_SHOWN = 50;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 100};
+
+    private static List<LithoCaptureFile.Record> read(String fileName) throws IOException {
+        List<LithoCaptureFile.Record> records = new ArrayList<>();
+        try (LithoCaptureFile.Reader reader = new LithoCaptureFile.Reader(new File(fileName))) {
+            LithoCaptureFile.Record record;
+            while ((record = reader.read()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static String getTimingSummary(List<LithoCaptureFile.Record> records) {
+        final int count = records.size();
+        if (count == 0) {
+            return "no records";
+        }
+        long[] nanos = new long[count];
+        long totalNanos = 0;
+        int filteredCount = 0;
+        for (int i = 0; i < count; i++) {
+            LithoCaptureFile.Record record = records.get(i);
+            nanos[i] = record.filterNanos;
+            totalNanos += record.filterNanos;
+            if (record.filtered) {
+                filteredCount++;
+            }
+        }
+        Arrays.sort(nanos);
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(count).append(" components, ").append(filteredCount).append(" filtered, total: ")
+                .append(totalNanos / 1000).append(" us, mean: ").append(totalNanos / count).append(" ns");
+        for (double percentile : PERCENTILES) {
+            final int index = Math.max(0, (int) Math.ceil(count * percentile / 100) - 1);
+            builder.append(", p").append((int) percentile).append(": ").append(nanos[index]).append(" ns");
+        }
+        return builder.toString();
+    }
+
+    private static boolean isSameComponent(LithoCaptureFile.Record first, LithoCaptureFile.Record second) {
+        return first.path.equals(second.path)
+                && (first.identifier == null ? second.identifier == null : first.identifier.equals(second.identifier))
+                && Arrays.equals(first.buffer, second.buffer);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: LithoCaptureCompare <baseline capture> [candidate capture]");
+            System.exit(1);
+        }
+
+        List<LithoCaptureFile.Record> baseline = read(args[0]);
+        System.out.println("Baseline:  " + getTimingSummary(baseline));
+        if (args.length == 1) {
+            return;
+        }
+
+        List<LithoCaptureFile.Record> candidate = read(args[1]);
+        System.out.println("Candidate: " + getTimingSummary(candidate));
+
+        if (baseline.size() != candidate.size()) {
+            System.out.println("Captures have a different number of components: "
+                    + baseline.size() + " and " + candidate.size());
+        }
+
+        int differences = 0;
+        int nowFiltered = 0;
+        for (int i = 0, count = Math.min(baseline.size(), candidate.size()); i < count; i++) {
+            LithoCaptureFile.Record baselineRecord = baseline.get(i);
+            LithoCaptureFile.Record candidateRecord = candidate.get(i);
+            if (!isSameComponent(baselineRecord, candidateRecord)) {
+                System.out.println("Captures are not of the same components, stopping at record " + i);
+                break;
+            }
+            if (baselineRecord.filtered == candidateRecord.filtered) {
+                continue;
+            }
+
+            differences++;
+            if (candidateRecord.filtered) {
+                nowFiltered++;
+            }
+            if (differences <= MAXIMUM_DIFFERENCES_SHOWN) {
+                System.out.println((candidateRecord.filtered ? "Now filtered: " : "No longer filtered: ")
+                        + "#" + i + " " + candidateRecord);
+            }
+        }
+
+        System.out.println(differences + " different verdicts (" + nowFiltered + " now filtered, "
+                + (differences - nowFiltered) + " no longer filtered)");
+    }
+}
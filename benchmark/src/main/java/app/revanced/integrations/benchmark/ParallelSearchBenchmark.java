@@ -0,0 +1,83 @@
+package app.revanced.integrations.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import app.revanced.integrations.youtube.ByteTrieSearch;
+import app.revanced.integrations.youtube.ParallelByteSearch;
+
+/**
+ * Search of large proto buffers by only the calling thread, compared to {@link ParallelByteSearch}.
+ * Used to choose the buffer length where the litho filter starts searching in parallel.
+ *
+ * Each invocation searches one buffer, and all buffers are searched in turn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelSearchBenchmark {
+
+    @Param({"8000", "32000", "128000", "512000"})
+    public int bufferSize;
+
+    /**
+     * Number of pool threads.  The litho filter uses up to 3.
+     */
+    @Param({"3"})
+    public int parallelism;
+
+    private byte[][] buffers;
+    private int bufferIndex;
+
+    private ByteTrieSearch search;
+    private ParallelByteSearch parallelSearch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        buffers = BenchmarkData.createBuffers(16, bufferSize, BenchmarkData.BUFFER_PATTERNS, 1);
+        search = new ByteTrieSearch(BenchmarkData.toBytes(BenchmarkData.BUFFER_PATTERNS));
+        search.freeze();
+        parallelSearch = new ParallelByteSearch(parallelism, 8 * 1024);
+
+        for (byte[] buffer : buffers) {
+            final boolean sequentialMatch = search.matches(buffer, 0, buffer.length, null);
+            final boolean parallelMatch = parallelSearch.matches(search, buffer, 0, buffer.length, Object::new) != null;
+            if (sequentialMatch != parallelMatch) {
+                throw new IllegalStateException("Parallel search result differs");
+            }
+        }
+    }
+
+    private byte[] nextBuffer() {
+        byte[] buffer = buffers[bufferIndex];
+        bufferIndex = (bufferIndex + 1) % buffers.length;
+        return buffer;
+    }
+
+    @Benchmark
+    public boolean sequential() {
+        byte[] buffer = nextBuffer();
+        return search.matches(buffer, 0, buffer.length, null);
+    }
+
+    @Benchmark
+    public boolean parallel() {
+        byte[] buffer = nextBuffer();
+        return parallelSearch.matches(search, buffer, 0, buffer.length, Object::new) != null;
+    }
+}
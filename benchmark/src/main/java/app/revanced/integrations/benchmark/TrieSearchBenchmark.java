@@ -0,0 +1,68 @@
+package app.revanced.integrations.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import app.revanced.integrations.youtube.StringTrieSearch;
+
+/**
+ * Litho path search of all path patterns, the same search done for every Litho component.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TrieSearchBenchmark {
+
+    private StringBuilder[] paths;
+    private int pathIndex;
+
+    private StringTrieSearch trie;
+    private StringTrieSearch compiledTrie;
+    private StringTrieSearch frozenTrie;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        paths = BenchmarkData.createPaths(1024, 1);
+
+        trie = new StringTrieSearch(BenchmarkData.PATH_PATTERNS);
+        compiledTrie = new StringTrieSearch(BenchmarkData.PATH_PATTERNS);
+        compiledTrie.compile();
+        frozenTrie = new StringTrieSearch(BenchmarkData.PATH_PATTERNS);
+        frozenTrie.freeze();
+    }
+
+    private StringBuilder nextPath() {
+        StringBuilder path = paths[pathIndex];
+        pathIndex = (pathIndex + 1) % paths.length;
+        return path;
+    }
+
+    @Benchmark
+    public boolean trie() {
+        return trie.matches(nextPath());
+    }
+
+    @Benchmark
+    public boolean compiledTrie() {
+        return compiledTrie.matches(nextPath());
+    }
+
+    @Benchmark
+    public boolean frozenTrie() {
+        return frozenTrie.matches(nextPath());
+    }
+}
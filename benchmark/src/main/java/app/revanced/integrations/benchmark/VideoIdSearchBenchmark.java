@@ -0,0 +1,326 @@
+package app.revanced.integrations.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import app.revanced.integrations.youtube.VideoIdSearch;
+
+/**
+ * Shorts video id search while swiping, with litho threads searching buffers
+ * while another thread adds the video ids of new Shorts.
+ *
+ * Compares the copy on write {@link VideoIdSearch} with the previous synchronized map,
+ * that scanned the buffer once for each id while holding the lock.
+ *
+ * Readers search the buffer of the most recently published id.  If the id is not found
+ * and too few ids were published since to remove it, the id was missed and the trial fails.
+ *
+ * {@link #main(String[])} is a stress test that checks every published id is found by every reader.
+ * Usage: ./gradlew :benchmark:checkVideoIdSearch
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class VideoIdSearchBenchmark {
+
+    private static final int NUMBER_OF_LAST_VIDEO_IDS_TO_TRACK = 5;
+
+    private static final String VIDEO_ID_CHARACTERS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    @Param({"2000"})
+    public int bufferSize;
+
+    /**
+     * Number of distinct video ids.  Must be a power of 2.
+     */
+    private static final int NUMBER_OF_VIDEO_IDS = 64;
+
+    private static final int STRESS_READER_COUNT = 3;
+    private static final int STRESS_PUBLISH_COUNT = 200_000;
+    /**
+     * Maximum number of ids the writer adds that the slowest reader has not yet checked.
+     * A reader then checks ids that are at most this many ids older than the newest id,
+     * so this must be less than the number of tracked ids.
+     */
+    private static final int STRESS_WRITER_LEAD = 2;
+
+    /**
+     * Video ids of the Shorts swiped through.  Buffer at each index contains the id at the same index.
+     */
+    private String[] videoIds;
+    private byte[][] buffers;
+
+    private final AtomicReference<VideoIdSearch> copyOnWriteIds = new AtomicReference<>(VideoIdSearch.EMPTY);
+
+    private final Map<String, Boolean> synchronizedIds = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > NUMBER_OF_LAST_VIDEO_IDS_TO_TRACK;
+        }
+    };
+
+    /**
+     * Sequence of the next id to publish. Only the writer thread modifies this.
+     */
+    private long nextSequence;
+    /**
+     * Sequence of the last published id, or -1 if nothing is published.
+     * Set after the id is added, so a reader that reads this and then the ids always sees the id.
+     */
+    private final AtomicLong publishedSequence = new AtomicLong(-1);
+    private final AtomicLong missedVideoIds = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1);
+        videoIds = createVideoIds(random, NUMBER_OF_VIDEO_IDS);
+        buffers = createBuffers(random, videoIds, bufferSize);
+    }
+
+    private static String[] createVideoIds(Random random, int count) {
+        String[] videoIds = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder builder = new StringBuilder(VideoIdSearch.VIDEO_ID_LENGTH);
+            for (int j = 0; j < VideoIdSearch.VIDEO_ID_LENGTH; j++) {
+                builder.append(VIDEO_ID_CHARACTERS.charAt(random.nextInt(VIDEO_ID_CHARACTERS.length())));
+            }
+            videoIds[i] = builder.toString();
+        }
+        return videoIds;
+    }
+
+    /**
+     * @return Buffers where the buffer at each index contains only the video id at the same index.
+     */
+    private static byte[][] createBuffers(Random random, String[] videoIds, int bufferSize) {
+        byte[][] buffers = BenchmarkData.createBuffers(videoIds.length, bufferSize, BenchmarkData.BUFFER_PATTERNS, 1);
+        for (int i = 0; i < buffers.length; i++) {
+            // Video id is a string field, preceded by the field length.
+            byte[] idBytes = videoIds[i].getBytes(StandardCharsets.US_ASCII);
+            final int index = bufferSize / 2 + random.nextInt(bufferSize / 4);
+            buffers[i][index - 1] = (byte) idBytes.length;
+            System.arraycopy(idBytes, 0, buffers[i], index, idBytes.length);
+            buffers[i][index + idBytes.length] = 0;
+        }
+        return buffers;
+    }
+
+    private static int getVideoIdIndex(long sequence) {
+        return (int) sequence & (NUMBER_OF_VIDEO_IDS - 1);
+    }
+
+    /**
+     * Called when a reader did not find the id of a sequence it read before reading the ids.
+     * The writer can add at most one more id before publishing it, so the id is still tracked
+     * unless the writer published enough ids since to remove it.
+     */
+    private void verifyNotFound(long sequence) {
+        if (publishedSequence.get() - sequence < NUMBER_OF_LAST_VIDEO_IDS_TO_TRACK - 1) {
+            missedVideoIds.incrementAndGet();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void verify() {
+        final long missed = missedVideoIds.get();
+        if (missed > 0) {
+            throw new IllegalStateException("Missed video ids: " + missed);
+        }
+    }
+
+    private static void addVideoId(AtomicReference<VideoIdSearch> ids, String videoId) {
+        while (true) {
+            VideoIdSearch current = ids.get();
+            VideoIdSearch updated = current.withVideoId(videoId, NUMBER_OF_LAST_VIDEO_IDS_TO_TRACK);
+            if (updated == current || ids.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("copyOnWrite")
+    @GroupThreads(3)
+    public String copyOnWriteFind() {
+        final long sequence = publishedSequence.get();
+        if (sequence < 0) {
+            return null;
+        }
+        byte[] buffer = buffers[getVideoIdIndex(sequence)];
+        VideoIdSearch search = copyOnWriteIds.get();
+        final int found = search.findIndex(buffer, 0, buffer.length);
+        if (found < 0) {
+            verifyNotFound(sequence);
+            return null;
+        }
+        return search.getVideoId(found);
+    }
+
+    @Benchmark
+    @Group("copyOnWrite")
+    @GroupThreads(1)
+    public void copyOnWriteAdd() {
+        final long sequence = nextSequence++;
+        addVideoId(copyOnWriteIds, videoIds[getVideoIdIndex(sequence)]);
+        publishedSequence.set(sequence);
+    }
+
+    @Benchmark
+    @Group("synchronized")
+    @GroupThreads(3)
+    public String synchronizedFind() {
+        final long sequence = publishedSequence.get();
+        if (sequence < 0) {
+            return null;
+        }
+        byte[] buffer = buffers[getVideoIdIndex(sequence)];
+        synchronized (synchronizedIds) {
+            for (String videoId : synchronizedIds.keySet()) {
+                if (byteArrayContainsString(buffer, 0, buffer.length, videoId)) {
+                    return videoId;
+                }
+            }
+        }
+        verifyNotFound(sequence);
+        return null;
+    }
+
+    @Benchmark
+    @Group("synchronized")
+    @GroupThreads(1)
+    public void synchronizedAdd() {
+        final long sequence = nextSequence++;
+        synchronized (synchronizedIds) {
+            synchronizedIds.put(videoIds[getVideoIdIndex(sequence)], Boolean.TRUE);
+        }
+        publishedSequence.set(sequence);
+    }
+
+    /**
+     * Search previously used by the Shorts dislike filter.
+     */
+    private static boolean byteArrayContainsString(byte[] array, int arrayStartIndex, int arrayEndIndex,
+                                                   String text) {
+        for (int i = arrayStartIndex, lastArrayStartIndex = arrayEndIndex - text.length(); i <= lastArrayStartIndex; i++) {
+            boolean found = true;
+            for (int j = 0, textLength = text.length(); j < textLength; j++) {
+                if (array[i + j] != (byte) text.charAt(j)) {
+                    found = false;
+                    break;
+                }
+            }
+            if (found) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Stress test of {@link VideoIdSearch} as used by the Shorts dislike filter.
+     *
+     * A writer thread publishes ids while reader threads search.  The writer never gets more than
+     * {@link #STRESS_WRITER_LEAD} ids ahead of the slowest reader, so each reader can check
+     * every published id while it is still tracked, and every reader checks every id.
+     * Fails if any id is not found, or if a buffer finds a different id.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Random random = new Random(1);
+        String[] videoIds = createVideoIds(random, NUMBER_OF_VIDEO_IDS);
+        byte[][] buffers = createBuffers(random, videoIds, 2000);
+
+        AtomicReference<VideoIdSearch> ids = new AtomicReference<>(VideoIdSearch.EMPTY);
+        AtomicLong publishedSequence = new AtomicLong(-1);
+        AtomicLongArray checkedSequences = new AtomicLongArray(STRESS_READER_COUNT);
+        for (int i = 0; i < STRESS_READER_COUNT; i++) {
+            checkedSequences.set(i, -1);
+        }
+        AtomicLong missedVideoIds = new AtomicLong();
+        AtomicLong checkedVideoIds = new AtomicLong();
+
+        Thread[] readers = new Thread[STRESS_READER_COUNT];
+        for (int i = 0; i < STRESS_READER_COUNT; i++) {
+            final int readerIndex = i;
+            readers[i] = new Thread(() -> {
+                long checked = -1;
+                while (checked < STRESS_PUBLISH_COUNT - 1) {
+                    final long sequence = publishedSequence.get();
+                    if (sequence == checked) {
+                        Thread.yield();
+                        continue;
+                    }
+                    VideoIdSearch search = ids.get();
+                    // The writer added at most the writer lead more ids since the last check,
+                    // so all ids published since the last check are still tracked.
+                    for (long s = checked + 1; s <= sequence; s++) {
+                        final int index = getVideoIdIndex(s);
+                        byte[] buffer = buffers[index];
+                        final int found = search.findIndex(buffer, 0, buffer.length);
+                        if (found < 0 || !videoIds[index].equals(search.getVideoId(found))) {
+                            missedVideoIds.incrementAndGet();
+                        }
+                        checkedVideoIds.incrementAndGet();
+                    }
+                    checked = sequence;
+                    checkedSequences.set(readerIndex, checked);
+                }
+            });
+            readers[i].start();
+        }
+
+        for (long sequence = 0; sequence < STRESS_PUBLISH_COUNT; sequence++) {
+            while (getMinimum(checkedSequences) < sequence - STRESS_WRITER_LEAD) {
+                Thread.yield();
+            }
+            addVideoId(ids, videoIds[getVideoIdIndex(sequence)]);
+            publishedSequence.set(sequence);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        final long expected = (long) STRESS_PUBLISH_COUNT * STRESS_READER_COUNT;
+        System.out.println("Checked video ids: " + checkedVideoIds.get() + " missed: " + missedVideoIds.get());
+        if (missedVideoIds.get() > 0) {
+            throw new IllegalStateException("Missed video ids: " + missedVideoIds.get());
+        }
+        if (checkedVideoIds.get() != expected) {
+            throw new IllegalStateException("Checked " + checkedVideoIds.get() + " ids, expected: " + expected);
+        }
+    }
+
+    private static long getMinimum(AtomicLongArray values) {
+        long minimum = Long.MAX_VALUE;
+        for (int i = 0, length = values.length(); i < length; i++) {
+            minimum = Math.min(minimum, values.get(i));
+        }
+        return minimum;
+    }
+}
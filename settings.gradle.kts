@@ -24,3 +24,4 @@ buildCache {
 
 include(":app")
 include(":stub")
+include(":benchmark")